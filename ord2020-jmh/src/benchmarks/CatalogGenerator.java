@@ -0,0 +1,78 @@
+package benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import food.IngredientContainer;
+import food.Recipe;
+
+/**
+ * Generates synthetic recipe catalogs for the benchmarks. The same seed always gives the same catalog.
+ */
+public class CatalogGenerator {
+
+    private final Random random;
+    private final int distinctIngredients;
+
+    /**
+     * @param seed The seed of the random generator
+     * @param distinctIngredients The number of different ingredient names to draw from
+     */
+    public CatalogGenerator(long seed, int distinctIngredients) {
+        this.random = new Random(seed);
+        this.distinctIngredients = distinctIngredients;
+    }
+
+    /**
+     * @param i The number of an ingredient
+     * @return The name of ingredient number i
+     */
+    public static String ingredientName(int i) {
+        return "ingredient " + i;
+    }
+
+    /**
+     * @param n The number of distinct ingredients
+     * @return Ingredients with `n` distinct names, all with positive amounts
+     */
+    public IngredientContainer ingredients(int n) {
+        var ig = new IngredientContainer();
+        while (ig.getIngredientNames().size() < Math.min(n, distinctIngredients)) {
+            ig.addIngredient(ingredientName(random.nextInt(distinctIngredients)), 1 + random.nextInt(500) / 4d);
+        }
+        return ig;
+    }
+
+    /**
+     * @param catalogSize The number of recipes
+     * @param ingredientsPerRecipe The number of distinct ingredients in each recipe
+     * @return The recipes
+     */
+    public Recipe[] recipes(int catalogSize, int ingredientsPerRecipe) {
+        var recipes = new Recipe[catalogSize];
+        for (var r = 0; r < catalogSize; r++) {
+            recipes[r] = new Recipe("recipe " + r, "category " + r % 16, 1 + random.nextInt(8), ingredients(ingredientsPerRecipe));
+        }
+        return recipes;
+    }
+
+    /**
+     * @param recipes The recipes to write
+     * @return The recipes in the text format read by {@link food.RecipeReader}, including the header line
+     */
+    public static byte[] toText(Recipe[] recipes) {
+        var text = new StringBuilder("name$category$nPortions$ingredients$amounts\n");
+        for (var recipe : recipes) {
+            var ingredients = recipe.getIngredients();
+            text.append(recipe.getName()).append('$').append(recipe.getCategory()).append('$').append(recipe.getNPortions()).append('$');
+            text.append(String.join(";", ingredients.getIngredientNames())).append('$');
+            var first = true;
+            for (var name : ingredients.getIngredientNames()) {
+                text.append(first ? "" : ";").append(ingredients.getIngredientAmount(name));
+                first = false;
+            }
+            text.append('\n');
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,77 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import food.IndexedIngredientContainer;
+import food.Ingredients;
+import food.SparseIngredients;
+
+/**
+ * containsIngredients, missingIngredients and scaleIngredients for each Ingredients implementation,
+ * with a storage holding half of the recipe's ingredients.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IngredientsBenchmark {
+
+    @Param({ "8", "32", "128" })
+    public int ingredientsPerRecipe;
+
+    @Param({ "container", "indexed", "sparse" })
+    public String implementation;
+
+    private Ingredients storage;
+    private Ingredients recipe;
+
+    @Setup
+    public void setup() {
+        var generator = new CatalogGenerator(42, ingredientsPerRecipe * 4);
+        var recipeIngredients = generator.ingredients(ingredientsPerRecipe);
+        var storageIngredients = generator.ingredients(ingredientsPerRecipe * 2);
+
+        switch (implementation) {
+            case "indexed":
+                recipe = new IndexedIngredientContainer(recipeIngredients);
+                storage = new IndexedIngredientContainer(storageIngredients);
+                break;
+            case "sparse":
+                recipe = new SparseIngredients(recipeIngredients);
+                storage = new SparseIngredients(storageIngredients);
+                break;
+            default:
+                recipe = recipeIngredients;
+                storage = storageIngredients;
+        }
+    }
+
+    @Benchmark
+    public boolean containsIngredients() {
+        return storage.containsIngredients(recipe);
+    }
+
+    @Benchmark
+    public Ingredients missingIngredients() {
+        return recipe.missingIngredients(storage);
+    }
+
+    @Benchmark
+    public Ingredients scaleIngredients() {
+        return recipe.scaleIngredients(2.5);
+    }
+}
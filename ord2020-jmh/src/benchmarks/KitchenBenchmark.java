@@ -0,0 +1,114 @@
+package benchmarks;
+
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import food.ConcurrentIngredientContainer;
+import food.IngredientContainer;
+import food.IngredientStorage;
+import food.Kitchen;
+import food.Recipe;
+
+/**
+ * Cooking and catalog queries on a kitchen.
+ *
+ * Run with e.g. `-t 8` to cook from several threads; only the `concurrent` storage is safe with more than one thread.
+ * The parallel queries use a pool with `parallelism` threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KitchenBenchmark {
+
+    @Param({ "1000", "100000" })
+    public int catalogSize;
+
+    @Param({ "10" })
+    public int ingredientsPerRecipe;
+
+    @Param({ "concurrent" })
+    public String storage;
+
+    @Param({ "4" })
+    public int parallelism;
+
+    private Recipe[] recipes;
+    private Kitchen kitchen;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setup() {
+        var distinctIngredients = Math.max(100, catalogSize / 10);
+        var generator = new CatalogGenerator(42, distinctIngredients);
+        recipes = generator.recipes(catalogSize, ingredientsPerRecipe);
+
+        IngredientStorage ingredientStorage = storage.equals("concurrent") ? new ConcurrentIngredientContainer() : new IngredientContainer();
+        kitchen = new Kitchen(ingredientStorage, recipes);
+        // Stock half of the ingredients plentifully, so some recipes can be created and some cannot
+        for (var i = 0; i < distinctIngredients; i += 2) {
+            kitchen.getStorage().addIngredient(CatalogGenerator.ingredientName(i), 1e15);
+        }
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Restocks and cooks a random recipe, so the storage stays the same size.
+     */
+    @Benchmark
+    public void createRecipe() {
+        var recipe = recipes[ThreadLocalRandom.current().nextInt(recipes.length)];
+        kitchen.getStorage().addIngredients(recipe.getIngredients());
+        kitchen.createRecipe(recipe);
+    }
+
+    @Benchmark
+    public Collection<Recipe> getRecipesThatCanBeCreated() {
+        return kitchen.getRecipesThatCanBeCreated();
+    }
+
+    @Benchmark
+    public Collection<Recipe> getRecipesThatCanBeCreatedParallel() {
+        return kitchen.getRecipesThatCanBeCreated(pool);
+    }
+
+    /**
+     * The parallel scan without the ingredient bitset prefilter of {@link #getRecipesThatCanBeCreatedParallel()}.
+     */
+    @Benchmark
+    public Collection<Recipe> getRecipesThatCanBeCreatedParallelUnfiltered() {
+        return kitchen.filterRecipes(kitchen::canCreateRecipe, pool);
+    }
+
+    @Benchmark
+    public Collection<Recipe> getRecipiesContainingIngredient() {
+        return kitchen.getRecipiesContainingIngredient(CatalogGenerator.ingredientName(7));
+    }
+
+    @Benchmark
+    public Collection<Recipe> getRecipiesContainingIngredientParallel() {
+        return kitchen.getRecipiesContainingIngredient(CatalogGenerator.ingredientName(7), pool);
+    }
+}
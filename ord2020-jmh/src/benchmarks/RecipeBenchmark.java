@@ -0,0 +1,60 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import food.Recipe;
+import food.ScaledRecipeCache;
+
+/**
+ * Scaling a recipe by copying its ingredients compared to scaling through a delegating view,
+ * and to looking the scaled recipe up in a {@link ScaledRecipeCache}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecipeBenchmark {
+
+    @Param({ "8", "32", "128" })
+    public int ingredientsPerRecipe;
+
+    private Recipe recipe;
+    private int portions;
+    private ScaledRecipeCache cache;
+
+    @Setup
+    public void setup() {
+        recipe = new CatalogGenerator(42, ingredientsPerRecipe * 4).recipes(1, ingredientsPerRecipe)[0];
+        portions = recipe.getNPortions() * 3;
+        cache = new ScaledRecipeCache(ScaledRecipeCache.DEFAULT_MAX_SIZE);
+    }
+
+    @Benchmark
+    public Recipe createNPortions() {
+        return recipe.createNPortions(portions);
+    }
+
+    @Benchmark
+    public Recipe createNPortionsUsingDelegation() {
+        return recipe.createNPortionsUsingDelegation(portions);
+    }
+
+    @Benchmark
+    public Recipe scaledRecipeCache() {
+        return cache.get(recipe, portions);
+    }
+}
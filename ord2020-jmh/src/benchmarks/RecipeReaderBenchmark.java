@@ -0,0 +1,52 @@
+package benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import food.Recipe;
+import food.RecipeReader;
+
+/**
+ * Reading a catalog in the text format from memory.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecipeReaderBenchmark {
+
+    @Param({ "1000", "100000" })
+    public int catalogSize;
+
+    @Param({ "10" })
+    public int ingredientsPerRecipe;
+
+    private byte[] text;
+
+    @Setup
+    public void setup() {
+        var generator = new CatalogGenerator(42, Math.max(100, catalogSize / 10));
+        text = CatalogGenerator.toText(generator.recipes(catalogSize, ingredientsPerRecipe));
+    }
+
+    @Benchmark
+    public List<Recipe> readRecipes() throws IOException {
+        return new RecipeReader().readRecipes(new ByteArrayInputStream(text));
+    }
+}
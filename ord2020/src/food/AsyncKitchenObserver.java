@@ -0,0 +1,276 @@
+package food;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Passes a {@link Kitchen}'s events on to another observer on an executor, so a slow observer does not
+ * hold up the thread changing the kitchen. Use {@link Kitchen#addObserver(KitchenObserver, Executor)}.
+ *
+ * Events are queued and delivered by one task at a time, so the observer gets them in the order they
+ * happened and is never called concurrently, even with a multi-threaded executor.
+ * Additions and removals that are queued together are merged into one
+ * {@link KitchenObserver#weeklyRecipesChanged(List, List)} call, where a removal cancels an earlier addition
+ * of the same recipe. Other removals are kept even if the recipe is added again later, since the kitchen
+ * also reports removing a recipe that was not in the weekly recipes. A registration is delivered with a copy
+ * of the weekly recipes as they were when it happened, and the changes before and after it are never merged
+ * with each other.
+ *
+ * An exception thrown by the observer is passed on to the executor, and the rest of that batch of events is dropped.
+ */
+public class AsyncKitchenObserver implements KitchenObserver {
+
+    private final KitchenObserver observer;
+    private final Executor executor;
+    private final ConcurrentLinkedQueue<Event> queue;
+    private final AtomicBoolean scheduled;
+    private final AtomicInteger queueDepth;
+
+    private final AtomicLong deliveredEvents;
+    private final AtomicLong deliveredBatches;
+    private final AtomicLong totalLatencyNanos;
+    private final AtomicLong maxLatencyNanos;
+
+    /**
+     * @param observer The observer to deliver the events to
+     * @param executor The executor to deliver the events on
+     */
+    public AsyncKitchenObserver(KitchenObserver observer, Executor executor) {
+        this.observer = observer;
+        this.executor = executor;
+        queue = new ConcurrentLinkedQueue<>();
+        scheduled = new AtomicBoolean();
+        queueDepth = new AtomicInteger();
+        deliveredEvents = new AtomicLong();
+        deliveredBatches = new AtomicLong();
+        totalLatencyNanos = new AtomicLong();
+        maxLatencyNanos = new AtomicLong();
+    }
+
+    @Override
+    public void weeklyRecipeAdded(Recipe recipe) {
+        enqueue(new Event(EventType.ADDED, recipe));
+    }
+
+    @Override
+    public void weeklyRecipeRemoved(Recipe recipe) {
+        enqueue(new Event(EventType.REMOVED, recipe));
+    }
+
+    @Override
+    public void weeklyRecipesRegistered(List<Recipe> recipes) {
+        enqueue(new Event(EventType.REGISTERED, Collections.unmodifiableList(new ArrayList<>(recipes))));
+    }
+
+    @Override
+    public void weeklyShoppingListRegistered(Ingredients shoppingList) {
+        enqueue(new Event(EventType.SHOPPING_LIST, shoppingList));
+    }
+
+    /**
+     * @return The observer the events are delivered to
+     */
+    public KitchenObserver getObserver() {
+        return observer;
+    }
+
+    /**
+     * @return The number of events waiting to be delivered
+     */
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    /**
+     * @return The number of events delivered so far, counting each merged addition and removal
+     */
+    public long getDeliveredEvents() {
+        return deliveredEvents.get();
+    }
+
+    /**
+     * @return The number of times the queue has been drained
+     */
+    public long getDeliveredBatches() {
+        return deliveredBatches.get();
+    }
+
+    /**
+     * @return The average time from an event happening until it was delivered, in nanoseconds
+     */
+    public double getAverageLatencyNanos() {
+        var events = deliveredEvents.get();
+        return events == 0 ? 0 : (double) totalLatencyNanos.get() / events;
+    }
+
+    /**
+     * @return The longest time from an event happening until it was delivered, in nanoseconds
+     */
+    public long getMaxLatencyNanos() {
+        return maxLatencyNanos.get();
+    }
+
+    private void enqueue(Event event) {
+        queue.add(event);
+        queueDepth.incrementAndGet();
+        schedule();
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                scheduled.set(false);
+                throw e;
+            }
+        }
+    }
+
+    private void drain() {
+        try {
+            var batch = new ArrayList<Event>();
+            Event event;
+            while ((event = queue.poll()) != null) {
+                batch.add(event);
+            }
+            queueDepth.addAndGet(-batch.size());
+            deliveredBatches.incrementAndGet();
+            deliver(batch);
+        } finally {
+            scheduled.set(false);
+            // An event queued after the queue was emptied, but before scheduled was cleared, was not scheduled
+            if (!queue.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+
+    private void deliver(List<Event> batch) {
+        var changes = new Changes();
+        for (var event : batch) {
+            switch (event.type) {
+            case ADDED:
+                changes.add(event);
+                break;
+            case REMOVED:
+                changes.remove(event);
+                break;
+            case REGISTERED:
+                deliverChanges(changes);
+                observer.weeklyRecipesRegistered(event.recipes);
+                recordLatency(event);
+                break;
+            case SHOPPING_LIST:
+                deliverChanges(changes);
+                observer.weeklyShoppingListRegistered(event.shoppingList);
+                recordLatency(event);
+                break;
+            }
+        }
+        deliverChanges(changes);
+    }
+
+    private void deliverChanges(Changes changes) {
+        if (changes.events.isEmpty()) {
+            return;
+        }
+
+        var added = new ArrayList<Recipe>();
+        for (var recipe : changes.added) {
+            if (recipe != null) {
+                added.add(recipe);
+            }
+        }
+        if (!added.isEmpty() || !changes.removed.isEmpty()) {
+            observer.weeklyRecipesChanged(added, changes.removed);
+        }
+
+        // Only now have the additions and removals been delivered, or cancelled out
+        for (var event : changes.events) {
+            recordLatency(event);
+        }
+        changes.clear();
+    }
+
+    private void recordLatency(Event event) {
+        var latency = System.nanoTime() - event.time;
+        deliveredEvents.incrementAndGet();
+        totalLatencyNanos.addAndGet(latency);
+        maxLatencyNanos.accumulateAndGet(latency, Math::max);
+    }
+
+    /**
+     * The additions and removals queued since the last delivered change.
+     */
+    private static class Changes {
+        // The recipes added, in order, with null for an addition cancelled by a later removal
+        final List<Recipe> added = new ArrayList<>();
+        final List<Recipe> removed = new ArrayList<>();
+        final List<Event> events = new ArrayList<>();
+        // The positions in added of each recipe's additions that have not been cancelled
+        private final HashMap<Recipe, ArrayDeque<Integer>> positions = new HashMap<>();
+
+        void add(Event event) {
+            positions.computeIfAbsent(event.recipe, r -> new ArrayDeque<>()).push(added.size());
+            added.add(event.recipe);
+            events.add(event);
+        }
+
+        void remove(Event event) {
+            var recipePositions = positions.get(event.recipe);
+            if (recipePositions != null && !recipePositions.isEmpty()) {
+                added.set(recipePositions.pop(), null);
+            } else {
+                removed.add(event.recipe);
+            }
+            events.add(event);
+        }
+
+        void clear() {
+            added.clear();
+            removed.clear();
+            events.clear();
+            positions.clear();
+        }
+    }
+
+    private enum EventType {
+        ADDED, REMOVED, REGISTERED, SHOPPING_LIST
+    }
+
+    private static class Event {
+        final EventType type;
+        final long time;
+        Recipe recipe;
+        List<Recipe> recipes;
+        Ingredients shoppingList;
+
+        Event(EventType type, Recipe recipe) {
+            this.type = type;
+            this.recipe = recipe;
+            time = System.nanoTime();
+        }
+
+        Event(EventType type, List<Recipe> recipes) {
+            this.type = type;
+            this.recipes = recipes;
+            time = System.nanoTime();
+        }
+
+        Event(EventType type, Ingredients shoppingList) {
+            this.type = type;
+            this.shoppingList = shoppingList;
+            time = System.nanoTime();
+        }
+    }
+}
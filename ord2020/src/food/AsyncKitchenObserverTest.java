@@ -0,0 +1,140 @@
+package food;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class AsyncKitchenObserverTest {
+
+	private static class RecordingObserver implements KitchenObserver {
+		final List<String> events = new ArrayList<>();
+
+		@Override
+		public void weeklyRecipeAdded(Recipe recipe) {
+			events.add("added " + recipe.getName());
+		}
+
+		@Override
+		public void weeklyRecipeRemoved(Recipe recipe) {
+			events.add("removed " + recipe.getName());
+		}
+
+		@Override
+		public void weeklyRecipesRegistered(List<Recipe> recipes) {
+			events.add("registered " + recipes.size());
+		}
+
+		@Override
+		public void weeklyShoppingListRegistered(Ingredients shoppingList) {
+			events.add("shopping list " + shoppingList.getIngredientAmount("egg"));
+		}
+	}
+
+	private Recipe recipe(String name) {
+		IngredientContainer ingredients = new IngredientContainer();
+		ingredients.addIngredient("egg", 1);
+		return new Recipe(name, "Dinner", 1, ingredients);
+	}
+
+	@Test
+	public void testEventsAreMergedAndDelayed() {
+		Queue<Runnable> tasks = new ArrayDeque<>();
+		RecordingObserver observer = new RecordingObserver();
+		Kitchen kitchen = new Kitchen();
+		AsyncKitchenObserver async = kitchen.addObserver(observer, tasks::add);
+
+		Recipe a = recipe("a");
+		Recipe b = recipe("b");
+		kitchen.addRecipeToWeekly(a);
+		kitchen.addRecipeToWeekly(b);
+		kitchen.removeRecipeFromWeekly(a);
+		kitchen.registerWeekly();
+		kitchen.clearWeekly();
+		kitchen.addRecipeToWeekly(a);
+
+		assertTrue(observer.events.isEmpty());
+		assertEquals(6, async.getQueueDepth());
+		assertEquals(1, tasks.size());
+
+		tasks.poll().run();
+		assertEquals(List.of("added b", "registered 1", "shopping list 1.0", "added a"), observer.events);
+		assertEquals(0, async.getQueueDepth());
+		assertEquals(6, async.getDeliveredEvents());
+		assertEquals(1, async.getDeliveredBatches());
+		assertTrue(tasks.isEmpty());
+	}
+
+	@Test
+	public void testOrderIsKeptOnThreadPool() throws InterruptedException {
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		RecordingObserver observer = new RecordingObserver();
+		AsyncKitchenObserver async = new AsyncKitchenObserver(observer, pool);
+
+		List<String> expected = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			List<Recipe> recipes = List.of(recipe("r" + i));
+			async.weeklyRecipesRegistered(recipes);
+			expected.add("registered 1");
+			async.weeklyShoppingListRegistered(new IngredientContainer());
+			expected.add("shopping list 0.0");
+		}
+
+		long deadline = System.currentTimeMillis() + 10000;
+		while (async.getDeliveredEvents() < 2000 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		pool.shutdown();
+		assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+		assertEquals(expected, observer.events);
+		assertEquals(0, async.getQueueDepth());
+		assertTrue(async.getMaxLatencyNanos() >= async.getAverageLatencyNanos());
+	}
+
+	@Test
+	public void testRemovalBeforeAdditionIsKept() {
+		Queue<Runnable> tasks = new ArrayDeque<>();
+		RecordingObserver observer = new RecordingObserver();
+		Kitchen kitchen = new Kitchen();
+		AsyncKitchenObserver async = kitchen.addObserver(observer, tasks::add);
+
+		// The kitchen reports removing a recipe that is not in the weekly recipes, which must not cancel the addition
+		Recipe a = recipe("a");
+		Recipe b = recipe("b");
+		kitchen.removeRecipeFromWeekly(a);
+		kitchen.addRecipeToWeekly(a);
+		kitchen.addRecipeToWeekly(b);
+		kitchen.addRecipeToWeekly(b);
+		kitchen.removeRecipeFromWeekly(b);
+
+		tasks.poll().run();
+		assertEquals(List.of("removed a", "added a", "added b"), observer.events);
+		assertEquals(List.of(a, b), new ArrayList<>(kitchen.getWeeklyRecipes()));
+		assertEquals(5, async.getDeliveredEvents());
+	}
+
+	@Test
+	public void testLatencyIncludesDelivery() {
+		Queue<Runnable> tasks = new ArrayDeque<>();
+		AsyncKitchenObserver async = new AsyncKitchenObserver(new RecordingObserver() {
+			@Override
+			public void weeklyRecipesChanged(List<Recipe> added, List<Recipe> removed) {
+				try {
+					Thread.sleep(50);
+				} catch (InterruptedException e) {}
+			}
+		}, tasks::add);
+
+		async.weeklyRecipeAdded(recipe("a"));
+		tasks.poll().run();
+		assertTrue(async.getMaxLatencyNanos() >= 50_000_000L);
+	}
+}
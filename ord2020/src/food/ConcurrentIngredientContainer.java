@@ -0,0 +1,445 @@
+package food;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Thread-safe ingredient storage, for kitchens where several cooking stations share one storage.
+ *
+ * Changes are guarded by striped locks: each ingredient name maps to one of a fixed number of locks,
+ * and a multi-ingredient change locks the stripes of all its ingredients in ascending order.
+ * {@link #removeIngredients(Ingredients)} is therefore atomic and all-or-nothing, while
+ * changes touching different stripes never contend. Reads of single amounts do not lock,
+ * so reading several amounts while other threads change them gives no consistent view;
+ * use {@link #snapshot()} for that.
+ */
+public class ConcurrentIngredientContainer implements IngredientStorage {
+
+    /**
+     * The number of lock stripes used by the default constructor.
+     */
+    public static final int DEFAULT_STRIPES = 64;
+
+    private final ConcurrentHashMap<String, Double> ingredients;
+    private final ReentrantLock[] stripes;
+    private final CopyOnWriteArrayList<IngredientStorageObserver> observers;
+
+    /**
+     * Initializes a new, empty container with {@link #DEFAULT_STRIPES} lock stripes.
+     */
+    public ConcurrentIngredientContainer() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * Initializes a new, empty container.
+     * @param stripes The number of lock stripes, rounded up to a power of two
+     * @throws IllegalArgumentException if stripes is not positive
+     */
+    public ConcurrentIngredientContainer(int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("Number of stripes must be positive");
+        }
+
+        var n = Integer.highestOneBit(stripes);
+        if (n < stripes) {
+            n <<= 1;
+        }
+
+        ingredients = new ConcurrentHashMap<>();
+        observers = new CopyOnWriteArrayList<>();
+        this.stripes = new ReentrantLock[n];
+        for (var i = 0; i < n; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Add `amount` of `ingredient` to the container.
+     *
+     * @param ingredient The name of the ingredient to add
+     * @param amount The amount of the ingredient to add
+     * @throws IllegalArgumentException if amount is not positive
+     */
+    @Override
+    public void addIngredient(String ingredient, double amount) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Amount must be positive");
+        }
+
+        var lock = stripes[stripeOf(ingredient)];
+        lock.lock();
+        try {
+            add(ingredient, amount);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove `amount` of `ingredient` from the container.
+     *
+     * If the resulting amount of the ingredient is 0, its name is removed.
+     *
+     * @param ingredient The name of the ingredient to remove
+     * @param amount The amount of the ingredient to remove
+     * @throws IllegalArgumentException if the ingredient is not in the container
+     */
+    @Override
+    public void removeIngredient(String ingredient, double amount) {
+        var lock = stripes[stripeOf(ingredient)];
+        lock.lock();
+        try {
+            var existing = ingredients.get(ingredient);
+            if (existing == null) {
+                throw new IllegalArgumentException("Key does not exist");
+            }
+            subtract(ingredient, existing, amount);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Add all ingredients from another Ingredients object into this, as one atomic change.
+     *
+     * @param ingredients the ingredients to add
+     */
+    @Override
+    public void addIngredients(Ingredients ingredients) {
+        var change = new Change(ingredients);
+        var locked = lockStripes(change);
+        try {
+            for (var i = 0; i < change.size; i++) {
+                add(change.names[i], change.amounts[i]);
+            }
+        } finally {
+            unlockStripes(locked);
+        }
+    }
+
+    /**
+     * Remove all ingredients in other from this, as one atomic change.
+     *
+     * @param ingredients the ingredients to remove
+     * @throws IllegalArgumentException if this does not contain enough of any of the ingredients (without changing this)
+     */
+    @Override
+    public void removeIngredients(Ingredients ingredients) {
+        var change = new Change(ingredients);
+        var locked = lockStripes(change);
+        try {
+            for (var i = 0; i < change.size; i++) {
+                if (this.ingredients.getOrDefault(change.names[i], 0d) < change.amounts[i]) {
+                    throw new IllegalArgumentException("Not enough of any of the ingredients");
+                }
+            }
+
+            for (var i = 0; i < change.size; i++) {
+                var existing = this.ingredients.get(change.names[i]);
+                if (existing != null) {
+                    subtract(change.names[i], existing, change.amounts[i]);
+                }
+            }
+        } finally {
+            unlockStripes(locked);
+        }
+    }
+
+    /**
+     * Copies the container while holding all its stripe locks, so the copy has every multi-ingredient
+     * change either fully or not at all. This stops all changes during the copy, so for frequent
+     * snapshots of a large storage a {@link SnapshotIngredientContainer} is cheaper.
+     *
+     * @return A copy of the ingredients currently in the container
+     */
+    @Override
+    public Ingredients snapshot() {
+        // All stripes in ascending order, like lockStripes, so this cannot deadlock with a change
+        for (var stripe : stripes) {
+            stripe.lock();
+        }
+        try {
+            var copy = new IngredientContainer();
+            for (var entry : ingredients.entrySet()) {
+                copy.addIngredient(entry.getKey(), entry.getValue());
+            }
+            return copy;
+        } finally {
+            for (var i = stripes.length - 1; i >= 0; i--) {
+                stripes[i].unlock();
+            }
+        }
+    }
+
+    /**
+     * @return An Iterable giving the names of all the ingredients
+     */
+    @Override
+    public Iterable<String> ingredientNames() {
+        return ingredients.keySet();
+    }
+
+    /**
+     * @return A collection containing the names of all the ingredients
+     */
+    @Override
+    public Collection<String> getIngredientNames() {
+        return ingredients.keySet();
+    }
+
+    /**
+     * @param ingredient The ingredient to get the amount of
+     * If the ingredient does not exist, the double 0.0 is returned.
+     * @return The amount of ingredient
+     */
+    @Override
+    public double getIngredientAmount(String ingredient) {
+        return ingredients.getOrDefault(ingredient, 0d);
+    }
+
+    /**
+     * Checks if the all the ingredients in other is contained in this.
+     * The amounts are read one at a time without locking.
+     * @param other
+     * @return true of there is at least the same or larger amount of ingredients in this than in other, false otherwise
+     */
+    @Override
+    public boolean containsIngredients(Ingredients other) {
+        for (var name : other.ingredientNames()) {
+            if (getIngredientAmount(name) < other.getIngredientAmount(name)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the ingredients that must be added to other for this to be contained in it
+     * @param other
+     * @return a new Ingredients that if added to other would make it contain this
+     */
+    @Override
+    public Ingredients missingIngredients(Ingredients other) {
+        var missing = new IngredientContainer();
+
+        for (var entry : ingredients.entrySet()) {
+            var amount = entry.getValue();
+            var otherAmount = other.getIngredientAmount(entry.getKey());
+            if (otherAmount < amount) {
+                missing.addIngredient(entry.getKey(), amount - otherAmount);
+            }
+        }
+
+        return missing;
+    }
+
+    /**
+     * Returns the ingredients that you get if you scale this by factor 'scale'.
+     * @param scale
+     * @return a new scaled Ingredients
+     */
+    @Override
+    public Ingredients scaleIngredients(double scale) {
+        var scaled = new IngredientContainer();
+
+        for (var entry : ingredients.entrySet()) {
+            scaled.addIngredient(entry.getKey(), entry.getValue() * scale);
+        }
+
+        return scaled;
+    }
+
+    /**
+     * Get a string containing the ingredients with amounts in the same format as {@link IngredientContainer#toString()}.
+     *
+     * @return A string with one `name: amount` line per ingredient
+     */
+    @Override
+    public String toString() {
+        var strings = new ArrayList<String>();
+        for (var entry : ingredients.entrySet()) {
+            strings.add(entry.getKey() + ": " + entry.getValue());
+        }
+
+        return String.join("\n", strings);
+    }
+
+    private int stripeOf(String ingredient) {
+        var h = ingredient.hashCode();
+        return (h ^ (h >>> 16)) & (stripes.length - 1);
+    }
+
+    /**
+     * Register an observer that is told about every change to the amount of an ingredient.
+     * Observers are called on the changing thread while the ingredient's stripe is locked,
+     * so the changes to one ingredient are seen in order. Observers must not change this storage.
+     *
+     * @param observer The observer to add
+     */
+    @Override
+    public void addObserver(IngredientStorageObserver observer) {
+        observers.add(observer);
+    }
+
+    @Override
+    public void removeObserver(IngredientStorageObserver observer) {
+        observers.remove(observer);
+    }
+
+    /**
+     * Must be called with the stripe of `ingredient` locked.
+     */
+    private void add(String ingredient, double amount) {
+        var oldAmount = getIngredientAmount(ingredient);
+        var newAmount = ingredients.merge(ingredient, amount, Double::sum);
+        fireIngredientChanged(ingredient, oldAmount, newAmount);
+    }
+
+    /**
+     * Must be called with the stripe of `ingredient` locked.
+     */
+    private void subtract(String ingredient, double existing, double amount) {
+        var newAmount = existing - amount;
+        if (newAmount <= 0) {
+            ingredients.remove(ingredient);
+            fireIngredientChanged(ingredient, existing, 0d);
+        } else {
+            ingredients.put(ingredient, newAmount);
+            fireIngredientChanged(ingredient, existing, newAmount);
+        }
+    }
+
+    private void fireIngredientChanged(String ingredient, double oldAmount, double newAmount) {
+        for (var o : observers) {
+            o.ingredientChanged(ingredient, oldAmount, newAmount);
+        }
+    }
+
+    /**
+     * Locks the stripes of all ingredients in the change in ascending order, which prevents deadlocks
+     * between changes that share some of their stripes.
+     *
+     * @return The locked stripes, in locking order
+     */
+    private int[] lockStripes(Change change) {
+        var order = new int[change.size];
+        for (var i = 0; i < change.size; i++) {
+            order[i] = stripeOf(change.names[i]);
+        }
+        Arrays.sort(order);
+
+        var n = 0;
+        for (var i = 0; i < order.length; i++) {
+            if (n == 0 || order[n - 1] != order[i]) {
+                order[n++] = order[i];
+            }
+        }
+
+        var locked = Arrays.copyOf(order, n);
+        for (var stripe : locked) {
+            stripes[stripe].lock();
+        }
+        return locked;
+    }
+
+    private void unlockStripes(int[] locked) {
+        for (var i = locked.length - 1; i >= 0; i--) {
+            stripes[locked[i]].unlock();
+        }
+    }
+
+    /**
+     * The names and amounts of a multi-ingredient change, read once from the argument before locking.
+     */
+    private static class Change {
+        final String[] names;
+        final double[] amounts;
+        int size;
+
+        Change(Ingredients ingredients) {
+            var n = ingredients.getIngredientNames();
+            names = new String[n.size()];
+            amounts = new double[n.size()];
+            for (var name : n) {
+                if (size == names.length) {
+                    break;
+                }
+                names[size] = name;
+                amounts[size] = ingredients.getIngredientAmount(name);
+                size++;
+            }
+        }
+    }
+
+    /**
+     * Reports the throughput of atomic recipe removal as the number of threads goes up,
+     * compared to an IngredientContainer behind one global lock.
+     * @param args
+     */
+    public static void main(String[] args) throws InterruptedException {
+        var random = new Random(42);
+        var recipes = new ArrayList<Ingredients>();
+        for (var r = 0; r < 1000; r++) {
+            var ig = new IngredientContainer();
+            for (var i = 0; i < 8; i++) {
+                ig.addIngredient("ingredient" + random.nextInt(2000), 1 + random.nextInt(5));
+            }
+            recipes.add(ig);
+        }
+
+        var maxThreads = Runtime.getRuntime().availableProcessors();
+        System.out.println("threads\tglobal lock ops/s\tstriped ops/s");
+        for (var threads = 1; threads <= maxThreads; threads *= 2) {
+            var global = new IngredientContainer();
+            var striped = new ConcurrentIngredientContainer();
+            for (var i = 0; i < 2000; i++) {
+                global.addIngredient("ingredient" + i, 1e12);
+                striped.addIngredient("ingredient" + i, 1e12);
+            }
+
+            var globalOps = measure(threads, recipes, recipe -> {
+                synchronized (global) {
+                    global.removeIngredients(recipe);
+                }
+            });
+            var stripedOps = measure(threads, recipes, striped::removeIngredients);
+            System.out.printf("%d\t%.0f\t%.0f%n", threads, globalOps, stripedOps);
+        }
+    }
+
+    private static double measure(int threads, ArrayList<Ingredients> recipes, Consumer<Ingredients> remove)
+            throws InterruptedException {
+        var durationMillis = 500;
+        var ops = new LongAdder();
+        var running = new AtomicBoolean(true);
+        var done = new CountDownLatch(threads);
+
+        for (var t = 0; t < threads; t++) {
+            var offset = t * 7919;
+            new Thread(() -> {
+                var i = offset;
+                while (running.get()) {
+                    remove.accept(recipes.get(i++ % recipes.size()));
+                    ops.increment();
+                }
+                done.countDown();
+            }).start();
+        }
+
+        Thread.sleep(durationMillis);
+        running.set(false);
+        done.await();
+
+        return ops.sum() * 1000d / durationMillis;
+    }
+}
@@ -0,0 +1,154 @@
+package food;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class ConcurrentIngredientContainerTest {
+	private static final double EPSILON = 0.0001;
+
+	private IngredientContainer createIG(Map<String, Double> ingredients) {
+		IngredientContainer ig = new IngredientContainer();
+		for (String i : ingredients.keySet()) {
+			ig.addIngredient(i, ingredients.get(i));
+		}
+		return ig;
+	}
+
+	@Test
+	public void testRemoveIngredientsIsAllOrNothing() {
+		ConcurrentIngredientContainer storage = new ConcurrentIngredientContainer(4);
+		storage.addIngredient("food1", 15.0);
+		storage.addIngredient("food2", 3.0);
+
+		try {
+			storage.removeIngredients(createIG(Map.of("food1", 10.0, "food2", 5.0)));
+			fail();
+		} catch (IllegalArgumentException e) {}
+		assertEquals(15.0, storage.getIngredientAmount("food1"), EPSILON);
+		assertEquals(3.0, storage.getIngredientAmount("food2"), EPSILON);
+
+		storage.removeIngredients(createIG(Map.of("food1", 10.0, "food2", 3.0)));
+		assertEquals(5.0, storage.getIngredientAmount("food1"), EPSILON);
+		IngredientContainerTest.assertCollectionsContainTheSame(Set.of("food1"), storage.getIngredientNames());
+	}
+
+	@Test
+	public void testConcurrentRemoval() throws InterruptedException {
+		ConcurrentIngredientContainer storage = new ConcurrentIngredientContainer();
+		storage.addIngredient("egg", 1000.0);
+		storage.addIngredient("milk", 1000.0);
+		storage.addIngredient("flour", 500.0);
+		Ingredients recipe = createIG(Map.of("egg", 2.0, "milk", 2.0, "flour", 1.0));
+
+		// 8 threads each try 100 removals, but there is only enough for 500 in total
+		int[] succeeded = new int[8];
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < succeeded.length; t++) {
+			int index = t;
+			threads.add(new Thread(() -> {
+				for (int i = 0; i < 100; i++) {
+					try {
+						storage.removeIngredients(recipe);
+						succeeded[index]++;
+					} catch (IllegalArgumentException e) {}
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		int total = 0;
+		for (int s : succeeded) {
+			total += s;
+		}
+		assertEquals(500, total);
+		assertTrue(storage.getIngredientNames().isEmpty());
+	}
+
+	@Test
+	public void testKitchenWithConcurrentStorage() {
+		Recipe recipe = new Recipe("Recipe", "Dinner", 4, createIG(Map.of("food1", 10.0)));
+		Kitchen kitchen = new Kitchen(new ConcurrentIngredientContainer(), recipe);
+		kitchen.getStorage().addIngredient("food1", 15.0);
+
+		kitchen.createRecipe(recipe);
+		assertEquals(5.0, kitchen.getStorage().getIngredientAmount("food1"), EPSILON);
+	}
+
+	@Test
+	public void testCooksDoNotWaitForTheRecipeIndex() throws InterruptedException {
+		ConcurrentIngredientContainer storage = new ConcurrentIngredientContainer();
+		RecipeIndex index = new RecipeIndex();
+		storage.addObserver(index);
+		// food1 and food2 are on different stripes
+		index.add(new Recipe("Recipe1", "Dinner", 1, createIG(Map.of("food1", 100.0))), storage);
+		index.add(new Recipe("Recipe2", "Dinner", 1, createIG(Map.of("food2", 100.0))), storage);
+
+		List<Thread> cooks = new ArrayList<>();
+		for (String ingredient : List.of("food1", "food2")) {
+			cooks.add(new Thread(() -> {
+				for (int i = 0; i < 1000; i++) {
+					storage.addIngredient(ingredient, 1.0);
+					storage.removeIngredients(createIG(Map.of(ingredient, 0.5)));
+				}
+			}));
+		}
+
+		// A reader holding the index's lock for a long query must not stop the cooks
+		synchronized (index) {
+			for (Thread cook : cooks) {
+				cook.start();
+			}
+			for (Thread cook : cooks) {
+				cook.join(10_000);
+				assertFalse(cook.isAlive());
+			}
+		}
+
+		assertEquals(500.0, storage.getIngredientAmount("food1"), EPSILON);
+		assertEquals(2, index.getFeasibleRecipes().size());
+		storage.removeIngredient("food2", 450.0);
+		assertEquals("Recipe1", index.getFeasibleRecipes().get(0).getName());
+		assertEquals(1, index.getFeasibleRecipes().size());
+	}
+
+	@Test
+	public void testSnapshotSeesWholeChanges() throws InterruptedException {
+		ConcurrentIngredientContainer storage = new ConcurrentIngredientContainer();
+		// egg and milk are on different stripes, and there is always as much of one as of the other
+		storage.addIngredient("egg", 1000.0);
+		storage.addIngredient("milk", 1000.0);
+		Ingredients recipe = createIG(Map.of("egg", 1.0, "milk", 1.0));
+
+		Thread cook = new Thread(() -> {
+			for (int i = 0; i < 20000; i++) {
+				if (i % 2 == 0) {
+					storage.removeIngredients(recipe);
+				} else {
+					storage.addIngredients(recipe);
+				}
+			}
+		});
+		cook.start();
+		Kitchen kitchen = new Kitchen(storage);
+		while (cook.isAlive()) {
+			Ingredients snapshot = kitchen.getStorageSnapshot();
+			assertEquals(snapshot.getIngredientAmount("egg"), snapshot.getIngredientAmount("milk"), 0);
+		}
+		cook.join();
+		assertEquals(1000.0, kitchen.getStorageSnapshot().getIngredientAmount("milk"), EPSILON);
+	}
+}
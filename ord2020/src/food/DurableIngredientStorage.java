@@ -0,0 +1,806 @@
+package food;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+/**
+ * Ingredient storage that survives restarts. Every change is appended to a write-ahead log in a directory as
+ * a compact binary record, and a change method returns only when its record is on disk. The storage is
+ * recovered from the directory when it is opened.
+ *
+ * The log is synced with group commit: while one thread syncs the log, the changes of other threads are
+ * appended to a buffer, and the next sync writes all of them at once, so concurrent cooks share the cost
+ * of a sync. Every `snapshotInterval` records the contents are written to a snapshot file and a new log is
+ * started, so recovery only replays the log since the last snapshot.
+ *
+ * The directory holds `snapshot-N` files with the contents at the start of `log-N`. A log record is
+ *
+ * payload length, CRC-32 of the payload, payload: type, entry count, entries
+ *
+ * where an entry is an ingredient number, followed by the ingredient name the first time the number is used
+ * in the log, and an amount. Recovery stops at the first record of the last log that is cut off or fails its
+ * checksum, since that is a change that was never acknowledged, and cuts the log there.
+ *
+ * The contents are kept in a {@link SnapshotIngredientContainer}, so reads never lock. Readers may see a
+ * change while its record is being synced, before the change method returns.
+ */
+public class DurableIngredientStorage implements IngredientStorage, Closeable {
+
+    /**
+     * The number of records between snapshots used by {@link #DurableIngredientStorage(Path)}.
+     */
+    public static final long DEFAULT_SNAPSHOT_INTERVAL = 1_000_000;
+
+    private static final int SNAPSHOT_MAGIC = 0x494e4753; // "INGS"
+    private static final int VERSION = 1;
+    private static final byte ADD = 1;
+    private static final byte REMOVE = 2;
+    private static final byte REMOVE_ALL = 3;
+
+    private final Path directory;
+    private final long snapshotInterval;
+    private final boolean sync;
+    private final SnapshotIngredientContainer contents;
+    private final Object flushLock;
+    private final Object checkpointLock;
+    private final AtomicBoolean checkpointing;
+
+    // Guarded by this
+    private final Map<String, Integer> names;
+    private final RecordBuffer payload;
+    private RecordBuffer pending;
+    private RecordBuffer spare;
+    private long appended;
+    private volatile long recordsInLog;
+    private IOException failure;
+
+    // Guarded by flushLock, and by this when switching logs
+    private FileChannel log;
+    private long generation;
+    private volatile long durable;
+    private long syncs;
+
+    private long recoveredRecords;
+    private long recoveryNanos;
+
+    /**
+     * Open a storage syncing every change, with a snapshot every {@link #DEFAULT_SNAPSHOT_INTERVAL} records.
+     *
+     * @see #DurableIngredientStorage(Path, long, boolean)
+     */
+    public DurableIngredientStorage(Path directory) throws IOException {
+        this(directory, DEFAULT_SNAPSHOT_INTERVAL, true);
+    }
+
+    /**
+     * Open a storage, recovering its contents from the directory.
+     *
+     * @param directory The directory of the storage's files, which is created if it does not exist
+     * @param snapshotInterval The number of records to write to a log before starting a new one with a snapshot
+     * @param sync false to write records to the file system without waiting for them to reach the disk,
+     * which loses the last changes if the machine crashes, but not if the process does
+     * @throws IOException if the directory cannot be read, or its files are corrupt
+     * @throws IllegalArgumentException if snapshotInterval is not positive
+     */
+    public DurableIngredientStorage(Path directory, long snapshotInterval, boolean sync) throws IOException {
+        if (snapshotInterval <= 0) {
+            throw new IllegalArgumentException("Snapshot interval must be positive");
+        }
+
+        this.directory = directory;
+        this.snapshotInterval = snapshotInterval;
+        this.sync = sync;
+        contents = new SnapshotIngredientContainer();
+        flushLock = new Object();
+        checkpointLock = new Object();
+        checkpointing = new AtomicBoolean();
+        names = new HashMap<>();
+        payload = new RecordBuffer();
+        pending = new RecordBuffer();
+        spare = new RecordBuffer();
+
+        Files.createDirectories(directory);
+        recover();
+    }
+
+    /**
+     * @return The number of log records replayed when the storage was opened
+     */
+    public long getRecoveredRecords() {
+        return recoveredRecords;
+    }
+
+    /**
+     * @return The time it took to recover the storage when it was opened, in nanoseconds
+     */
+    public long getRecoveryNanos() {
+        return recoveryNanos;
+    }
+
+    /**
+     * @return The number of records appended to the log since the storage was opened
+     */
+    public synchronized long getAppendedRecords() {
+        return appended;
+    }
+
+    /**
+     * @return The number of times the log has been synced since the storage was opened,
+     * which is lower than the number of records when several threads change the storage
+     */
+    public long getSyncCount() {
+        synchronized (flushLock) {
+            return syncs;
+        }
+    }
+
+    /**
+     * Add `amount` of `ingredient` to the storage, and wait until the change is on disk.
+     *
+     * @param ingredient The name of the ingredient to add
+     * @param amount The amount of the ingredient to add
+     * @throws IllegalArgumentException if amount is not positive, or the name is too long for the log
+     * @throws UncheckedIOException if the change cannot be written to the log
+     */
+    @Override
+    public void addIngredient(String ingredient, double amount) {
+        checkName(ingredient);
+        long record;
+        synchronized (this) {
+            checkFailure();
+            var newNames = encode(ADD, List.of(ingredient), new double[] { amount });
+            contents.addIngredient(ingredient, amount);
+            record = append(newNames);
+        }
+        commit(record);
+    }
+
+    /**
+     * Remove `amount` of `ingredient` from the storage, and wait until the change is on disk.
+     *
+     * If the resulting amount of the ingredient is 0, its name is removed.
+     *
+     * @param ingredient The name of the ingredient to remove
+     * @param amount The amount of the ingredient to remove
+     * @throws IllegalArgumentException if the ingredient is not in the storage
+     * @throws UncheckedIOException if the change cannot be written to the log
+     */
+    @Override
+    public void removeIngredient(String ingredient, double amount) {
+        checkName(ingredient);
+        long record;
+        synchronized (this) {
+            checkFailure();
+            var newNames = encode(REMOVE, List.of(ingredient), new double[] { amount });
+            contents.removeIngredient(ingredient, amount);
+            record = append(newNames);
+        }
+        commit(record);
+    }
+
+    /**
+     * Add all ingredients from another Ingredients object into this as one record, and wait until it is on disk.
+     *
+     * @param ingredients the ingredients to add
+     * @throws IllegalArgumentException if any of the amounts is negative, or any of the names is too long for the log
+     * @throws UncheckedIOException if the change cannot be written to the log
+     */
+    @Override
+    public void addIngredients(Ingredients ingredients) {
+        var change = Change.of(ingredients);
+        long record;
+        synchronized (this) {
+            checkFailure();
+            var newNames = encode(ADD, change.names, change.amounts);
+            contents.addIngredients(change.ingredients);
+            record = append(newNames);
+        }
+        commit(record);
+    }
+
+    /**
+     * Remove all ingredients in other from this as one record, and wait until it is on disk.
+     *
+     * @param ingredients the ingredients to remove
+     * @throws IllegalArgumentException if this does not contain enough of any of the ingredients (without changing this),
+     * or if any of the amounts is negative, or any of the names is too long for the log
+     * @throws UncheckedIOException if the change cannot be written to the log
+     */
+    @Override
+    public void removeIngredients(Ingredients ingredients) {
+        var change = Change.of(ingredients);
+        long record;
+        synchronized (this) {
+            checkFailure();
+            var newNames = encode(REMOVE_ALL, change.names, change.amounts);
+            contents.removeIngredients(change.ingredients);
+            record = append(newNames);
+        }
+        commit(record);
+    }
+
+    @Override
+    public PersistentIngredients snapshot() {
+        return contents.snapshot();
+    }
+
+    @Override
+    public Iterable<String> ingredientNames() {
+        return contents.ingredientNames();
+    }
+
+    @Override
+    public Collection<String> getIngredientNames() {
+        return contents.getIngredientNames();
+    }
+
+    @Override
+    public double getIngredientAmount(String ingredient) {
+        return contents.getIngredientAmount(ingredient);
+    }
+
+    @Override
+    public boolean containsIngredients(Ingredients other) {
+        return contents.containsIngredients(other);
+    }
+
+    @Override
+    public Ingredients missingIngredients(Ingredients other) {
+        return contents.missingIngredients(other);
+    }
+
+    @Override
+    public Ingredients scaleIngredients(double scale) {
+        return contents.scaleIngredients(scale);
+    }
+
+    /**
+     * Register an observer that is told about every change to the amount of an ingredient.
+     * Observers are called before the change is on disk.
+     *
+     * @param observer The observer to add
+     */
+    @Override
+    public void addObserver(IngredientStorageObserver observer) {
+        contents.addObserver(observer);
+    }
+
+    @Override
+    public void removeObserver(IngredientStorageObserver observer) {
+        contents.removeObserver(observer);
+    }
+
+    @Override
+    public String toString() {
+        return contents.toString();
+    }
+
+    /**
+     * Write a snapshot of the contents and start a new log, so a recovery does not have to replay the records
+     * so far. Called automatically every `snapshotInterval` records. Checkpoints run one at a time.
+     *
+     * @throws IOException if the snapshot or the new log cannot be written
+     */
+    public void checkpoint() throws IOException {
+        checkpoint(false);
+    }
+
+    /**
+     * @param onlyIfDue true to skip the checkpoint if another one has started a new log since it was due
+     */
+    private void checkpoint(boolean onlyIfDue) throws IOException {
+        // Checkpoints share the temporary snapshot file and delete each other's old files, so they must not overlap
+        synchronized (checkpointLock) {
+            if (onlyIfDue && recordsInLog < snapshotInterval) {
+                return;
+            }
+
+            PersistentIngredients state;
+            long snapshotGeneration;
+            synchronized (flushLock) {
+                synchronized (this) {
+                    flush();
+                    state = contents.snapshot();
+                    log.close();
+                    generation++;
+                    snapshotGeneration = generation;
+                    log = FileChannel.open(logFile(generation), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                            StandardOpenOption.TRUNCATE_EXISTING);
+                    names.clear();
+                    recordsInLog = 0;
+                }
+            }
+
+            // Until the snapshot is written, recovery replays the previous log followed by the new one
+            writeSnapshot(snapshotGeneration, state);
+            for (var g : generations("snapshot-")) {
+                if (g < snapshotGeneration) {
+                    Files.deleteIfExists(snapshotFile(g));
+                }
+            }
+            for (var g : generations("log-")) {
+                if (g < snapshotGeneration) {
+                    Files.deleteIfExists(logFile(g));
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the changes that are not on disk yet, and close the log.
+     *
+     * @throws IOException if the log cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (flushLock) {
+            synchronized (this) {
+                if (!log.isOpen()) {
+                    return;
+                }
+                flush();
+                log.close();
+            }
+        }
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new UncheckedIOException("The storage's log could not be written", failure);
+        }
+    }
+
+    /**
+     * Rejects a name that {@link DataOutputStream#writeUTF(String)} cannot write, before anything is changed.
+     */
+    private static void checkName(String ingredient) {
+        var length = 0;
+        for (var i = 0; i < ingredient.length(); i++) {
+            var c = ingredient.charAt(i);
+            length += c >= 0x0001 && c <= 0x007F ? 1 : c <= 0x07FF ? 2 : 3;
+        }
+        if (length > 0xFFFF) {
+            throw new IllegalArgumentException("Ingredient name is too long: " + length + " bytes");
+        }
+    }
+
+    /**
+     * Encodes a record into the payload buffer, without changing anything else, so a change that fails after
+     * this leaves the log as it was. Must be called holding this, followed by {@link #append(List)} once the
+     * change has been applied.
+     *
+     * @return The names numbered in this record for the first time, in order of their numbers
+     */
+    private List<String> encode(byte type, List<String> ingredients, double[] amounts) {
+        var newNames = new ArrayList<String>();
+        try {
+            payload.reset();
+            var out = payload.data;
+            out.writeByte(type);
+            out.writeInt(ingredients.size());
+            for (var i = 0; i < ingredients.size(); i++) {
+                var name = ingredients.get(i);
+                var id = names.get(name);
+                if (id == null) {
+                    out.writeInt(names.size() + newNames.size());
+                    out.writeUTF(name);
+                    newNames.add(name);
+                } else {
+                    out.writeInt(id);
+                }
+                out.writeDouble(amounts[i]);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return newNames;
+    }
+
+    /**
+     * Appends the record in the payload buffer to the pending buffer. Must be called holding this,
+     * right after the change encoded by {@link #encode(byte, List, double[])} is applied.
+     *
+     * @param newNames The names numbered by the record
+     * @return The number of the record, to wait for with {@link #commit(long)}
+     */
+    private long append(List<String> newNames) {
+        for (var name : newNames) {
+            names.put(name, names.size());
+        }
+
+        try {
+            var crc = new CRC32();
+            crc.update(payload.view());
+            pending.data.writeInt(payload.size());
+            pending.data.writeInt((int) crc.getValue());
+            pending.write(payload.array(), 0, payload.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        recordsInLog++;
+        return ++appended;
+    }
+
+    /**
+     * Waits until the given record is on disk. The first waiting thread writes and syncs everything pending,
+     * while the rest wait for it and usually find their records written when it is done.
+     */
+    private void commit(long record) {
+        try {
+            synchronized (flushLock) {
+                if (durable < record) {
+                    // Other threads keep appending to the new pending buffer while this one syncs
+                    RecordBuffer toWrite;
+                    long upTo;
+                    synchronized (this) {
+                        checkFailure();
+                        toWrite = pending;
+                        pending = spare;
+                        spare = toWrite;
+                        upTo = appended;
+                    }
+                    try {
+                        write(toWrite);
+                    } catch (IOException e) {
+                        synchronized (this) {
+                            failure = e;
+                        }
+                        throw new UncheckedIOException(e);
+                    }
+                    durable = upTo;
+                }
+            }
+        } finally {
+            if (recordsInLog >= snapshotInterval && checkpointing.compareAndSet(false, true)) {
+                try {
+                    checkpoint(true);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    checkpointing.set(false);
+                }
+            }
+        }
+    }
+
+    /**
+     * Must be called holding flushLock and this.
+     */
+    private void flush() throws IOException {
+        var toWrite = pending;
+        pending = spare;
+        spare = toWrite;
+        write(toWrite);
+        durable = appended;
+    }
+
+    /**
+     * Writes and syncs a buffer of records, and empties it. Must be called holding flushLock.
+     */
+    private void write(RecordBuffer records) throws IOException {
+        if (records.size() == 0) {
+            return;
+        }
+
+        var buffer = records.view();
+        while (buffer.hasRemaining()) {
+            log.write(buffer);
+        }
+        if (sync) {
+            log.force(false);
+        }
+        syncs++;
+        records.reset();
+    }
+
+    private void recover() throws IOException {
+        var start = System.nanoTime();
+
+        var snapshots = generations("snapshot-");
+        generation = snapshots.isEmpty() ? 0 : snapshots.last();
+        if (!snapshots.isEmpty()) {
+            contents.addIngredients(readSnapshot(generation));
+        }
+
+        var logs = generations("log-").tailSet(generation);
+        for (var g : logs) {
+            names.clear();
+            recordsInLog = 0;
+            var last = g.equals(logs.last());
+            var end = replay(logFile(g), last);
+            if (last) {
+                try (var channel = FileChannel.open(logFile(g), StandardOpenOption.WRITE)) {
+                    channel.truncate(end);
+                }
+            }
+            generation = g;
+        }
+
+        log = FileChannel.open(logFile(generation), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        log.position(log.size());
+        recoveryNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Applies the records of a log to the contents.
+     *
+     * @param lenient true to stop at a cut-off or corrupt record, which is expected at the end of the last log
+     * @return The length of the valid records
+     */
+    private long replay(Path file, boolean lenient) throws IOException {
+        var bytes = Files.readAllBytes(file);
+        var buffer = ByteBuffer.wrap(bytes);
+        var ids = new ArrayList<String>();
+        var crc = new CRC32();
+
+        var end = 0;
+        while (buffer.remaining() > 0) {
+            var start = buffer.position();
+            var valid = buffer.remaining() >= 8;
+            var length = valid ? buffer.getInt() : -1;
+            var checksum = valid ? buffer.getInt() : 0;
+            valid = valid && length >= 0 && length <= buffer.remaining();
+            if (valid) {
+                crc.reset();
+                crc.update(bytes, buffer.position(), length);
+                valid = (int) crc.getValue() == checksum;
+            }
+            if (!valid) {
+                if (!lenient) {
+                    throw new IOException("Corrupt record at " + start + " in " + file);
+                }
+                break;
+            }
+
+            var in = new DataInputStream(new ByteArrayInputStream(bytes, buffer.position(), length));
+            apply(in, ids);
+            buffer.position(buffer.position() + length);
+            end = buffer.position();
+            recordsInLog++;
+            recoveredRecords++;
+        }
+
+        for (var i = 0; i < ids.size(); i++) {
+            names.put(ids.get(i), i);
+        }
+        return end;
+    }
+
+    private void apply(DataInputStream in, List<String> ids) throws IOException {
+        var type = in.readByte();
+        var n = in.readInt();
+        var change = PersistentIngredients.empty();
+        String name = null;
+        var amount = 0d;
+        for (var i = 0; i < n; i++) {
+            var id = in.readInt();
+            if (id == ids.size()) {
+                ids.add(in.readUTF());
+            } else if (id < 0 || id > ids.size()) {
+                throw new IOException("Unknown ingredient number " + id);
+            }
+            name = ids.get(id);
+            amount = in.readDouble();
+            change = change.with(name, amount);
+        }
+
+        switch (type) {
+        case ADD:
+            contents.addIngredients(change);
+            break;
+        case REMOVE:
+            contents.removeIngredient(name, amount);
+            break;
+        case REMOVE_ALL:
+            contents.removeIngredients(change);
+            break;
+        default:
+            throw new IOException("Unknown record type " + type);
+        }
+    }
+
+    private void writeSnapshot(long snapshotGeneration, PersistentIngredients state) throws IOException {
+        var buffer = new RecordBuffer();
+        var out = buffer.data;
+        out.writeInt(SNAPSHOT_MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(snapshotGeneration);
+        out.writeInt(state.size());
+        for (var name : state.ingredientNames()) {
+            out.writeUTF(name);
+            out.writeDouble(state.getIngredientAmount(name));
+        }
+        var crc = new CRC32();
+        crc.update(buffer.view());
+        out.writeInt((int) crc.getValue());
+
+        var tmp = directory.resolve("snapshot.tmp");
+        try (var channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            var view = buffer.view();
+            while (view.hasRemaining()) {
+                channel.write(view);
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, snapshotFile(snapshotGeneration), StandardCopyOption.ATOMIC_MOVE);
+        try (var dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            // Not every platform can sync a directory, and the rename is usually durable anyway
+        }
+    }
+
+    private PersistentIngredients readSnapshot(long snapshotGeneration) throws IOException {
+        var file = snapshotFile(snapshotGeneration);
+        var bytes = Files.readAllBytes(file);
+        var crc = new CRC32();
+        crc.update(bytes, 0, Math.max(0, bytes.length - 4));
+        if (bytes.length < 24 || ByteBuffer.wrap(bytes, bytes.length - 4, 4).getInt() != (int) crc.getValue()) {
+            throw new IOException("Corrupt snapshot " + file);
+        }
+
+        var in = new DataInputStream(new ByteArrayInputStream(bytes));
+        if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != VERSION || in.readLong() != snapshotGeneration) {
+            throw new IOException("Not a snapshot of this storage: " + file);
+        }
+        var state = PersistentIngredients.empty();
+        try {
+            for (var n = in.readInt(); n > 0; n--) {
+                state = state.with(in.readUTF(), in.readDouble());
+            }
+        } catch (EOFException e) {
+            throw new IOException("Corrupt snapshot " + file, e);
+        }
+        return state;
+    }
+
+    private TreeSet<Long> generations(String prefix) throws IOException {
+        var result = new TreeSet<Long>();
+        try (var files = Files.list(directory)) {
+            files.map(f -> f.getFileName().toString())
+                    .filter(f -> f.startsWith(prefix) && f.substring(prefix.length()).matches("\\d+"))
+                    .forEach(f -> result.add(Long.parseLong(f.substring(prefix.length()))));
+        }
+        return result;
+    }
+
+    private Path logFile(long g) {
+        return directory.resolve("log-" + g);
+    }
+
+    private Path snapshotFile(long g) {
+        return directory.resolve("snapshot-" + g);
+    }
+
+    /**
+     * A byte buffer that records are encoded into, which can be written without copying.
+     */
+    private static class RecordBuffer extends ByteArrayOutputStream {
+        final DataOutputStream data = new DataOutputStream(this);
+
+        RecordBuffer() {
+            super(1 << 16);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+
+        ByteBuffer view() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+
+    /**
+     * The ingredients of a multi-ingredient change, read once before locking. Entries with amount 0 change
+     * nothing and are left out.
+     */
+    private static class Change {
+        final List<String> names;
+        final double[] amounts;
+        final PersistentIngredients ingredients;
+
+        private Change(List<String> names, double[] amounts, PersistentIngredients ingredients) {
+            this.names = names;
+            this.amounts = amounts;
+            this.ingredients = ingredients;
+        }
+
+        static Change of(Ingredients ingredients) {
+            var names = new ArrayList<String>();
+            var amounts = new double[ingredients.getIngredientNames().size()];
+            var persistent = PersistentIngredients.empty();
+            for (var name : ingredients.ingredientNames()) {
+                checkName(name);
+                var amount = ingredients.getIngredientAmount(name);
+                if (amount < 0) {
+                    throw new IllegalArgumentException("Amount must not be negative");
+                }
+                if (amount > 0 && names.size() < amounts.length) {
+                    amounts[names.size()] = amount;
+                    names.add(name);
+                    persistent = persistent.with(name, amount);
+                }
+            }
+            return new Change(names, amounts, persistent);
+        }
+    }
+
+    /**
+     * Appends operations to a storage in the directory given as the first argument from several threads,
+     * then reopens it and reports the append throughput and the recovery time.
+     * The second and third arguments are the number of operations (default 1000000) and threads (default 8).
+     * @param args
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        var directory = Path.of(args[0]);
+        var operations = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        var threads = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+
+        var recipes = new ArrayList<Ingredients>();
+        var random = new Random(42);
+        for (var r = 0; r < 100; r++) {
+            var ig = new IngredientContainer();
+            for (var i = 0; i < 5; i++) {
+                ig.addIngredient("ingredient" + random.nextInt(1000), 1 + random.nextInt(5));
+            }
+            recipes.add(ig);
+        }
+
+        var storage = new DurableIngredientStorage(directory);
+        System.out.printf("opened with %d records replayed in %.1f ms%n",
+                storage.getRecoveredRecords(), storage.getRecoveryNanos() / 1e6);
+
+        var start = System.nanoTime();
+        var workers = new ArrayList<Thread>();
+        for (var t = 0; t < threads; t++) {
+            var seed = t;
+            var worker = new Thread(() -> {
+                var r = new Random(seed);
+                for (var i = seed; i < operations / 2; i += threads) {
+                    var recipe = recipes.get(r.nextInt(recipes.size()));
+                    // Restock and cook, so the storage stays the same size
+                    storage.addIngredients(recipe);
+                    storage.removeIngredients(recipe);
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (var worker : workers) {
+            worker.join();
+        }
+        var seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d records from %d threads in %.1f s: %.0f records/s, %d syncs%n",
+                storage.getAppendedRecords(), threads, seconds, storage.getAppendedRecords() / seconds, storage.getSyncCount());
+        storage.close();
+
+        var recovered = new DurableIngredientStorage(directory);
+        System.out.printf("recovered %d records in %.1f ms%n",
+                recovered.getRecoveredRecords(), recovered.getRecoveryNanos() / 1e6);
+        recovered.close();
+    }
+}
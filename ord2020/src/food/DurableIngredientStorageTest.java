@@ -0,0 +1,251 @@
+package food;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+public class DurableIngredientStorageTest {
+
+	private static void delete(Path directory) throws IOException {
+		try (Stream<Path> files = Files.walk(directory)) {
+			for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(file);
+			}
+		}
+	}
+
+	private static IngredientContainer recipe(String name, double amount) {
+		IngredientContainer recipe = new IngredientContainer();
+		recipe.addIngredient(name, amount);
+		recipe.addIngredient("salt", 1);
+		return recipe;
+	}
+
+	private static void assertSameContents(Ingredients expected, Ingredients actual) {
+		IngredientContainerTest.assertCollectionsContainTheSame(expected.getIngredientNames(), actual.getIngredientNames());
+		for (String name : expected.ingredientNames()) {
+			assertEquals(expected.getIngredientAmount(name), actual.getIngredientAmount(name), 0);
+		}
+	}
+
+	@Test
+	public void testRecoversChanges() throws IOException {
+		Path directory = Files.createTempDirectory("storage");
+		try {
+			IngredientContainer expected = new IngredientContainer();
+			DurableIngredientStorage storage = new DurableIngredientStorage(directory);
+			for (IngredientStorage s : List.of(expected, storage)) {
+				s.addIngredient("egg", 6);
+				s.addIngredient("salt", 10);
+				s.addIngredients(recipe("flour", 500));
+				s.removeIngredient("egg", 2);
+				s.removeIngredients(recipe("flour", 200));
+				s.removeIngredient("salt", 5);
+			}
+			try {
+				storage.removeIngredients(recipe("flour", 1000));
+				fail();
+			} catch (IllegalArgumentException e) {}
+			storage.close();
+
+			DurableIngredientStorage recovered = new DurableIngredientStorage(directory);
+			assertEquals(6, recovered.getRecoveredRecords());
+			assertSameContents(expected, recovered);
+			assertTrue(recovered.getIngredientNames().contains("egg"));
+			recovered.close();
+		} finally {
+			delete(directory);
+		}
+	}
+
+	@Test
+	public void testSnapshotsBoundReplay() throws IOException {
+		Path directory = Files.createTempDirectory("storage");
+		try {
+			IngredientContainer expected = new IngredientContainer();
+			DurableIngredientStorage storage = new DurableIngredientStorage(directory, 100, false);
+			for (int i = 0; i < 1050; i++) {
+				storage.addIngredient("ingredient" + i % 30, 1);
+				expected.addIngredient("ingredient" + i % 30, 1);
+			}
+			storage.close();
+
+			DurableIngredientStorage recovered = new DurableIngredientStorage(directory, 100, false);
+			assertEquals(50, recovered.getRecoveredRecords());
+			assertSameContents(expected, recovered);
+			try (Stream<Path> files = Files.list(directory)) {
+				assertEquals(2, files.count());
+			}
+
+			recovered.addIngredient("egg", 1);
+			recovered.close();
+			recovered = new DurableIngredientStorage(directory, 100, false);
+			assertEquals(1, recovered.getIngredientAmount("egg"), 0);
+			recovered.close();
+		} finally {
+			delete(directory);
+		}
+	}
+
+	@Test
+	public void testCutOffRecordIsDropped() throws IOException {
+		Path directory = Files.createTempDirectory("storage");
+		try {
+			DurableIngredientStorage storage = new DurableIngredientStorage(directory);
+			storage.addIngredient("egg", 2);
+			storage.addIngredient("milk", 1);
+			storage.close();
+
+			// A crash while the last record was written
+			Path log = directory.resolve("log-0");
+			byte[] bytes = Files.readAllBytes(log);
+			Files.write(log, Arrays.copyOf(bytes, bytes.length - 3));
+
+			DurableIngredientStorage recovered = new DurableIngredientStorage(directory);
+			assertEquals(1, recovered.getRecoveredRecords());
+			assertEquals(2, recovered.getIngredientAmount("egg"), 0);
+			assertEquals(0, recovered.getIngredientAmount("milk"), 0);
+
+			recovered.addIngredient("flour", 3);
+			recovered.close();
+			Files.write(log, new byte[] { 1, 2, 3 }, StandardOpenOption.APPEND);
+			recovered = new DurableIngredientStorage(directory);
+			assertEquals(3, recovered.getIngredientAmount("flour"), 0);
+			recovered.close();
+		} finally {
+			delete(directory);
+		}
+	}
+
+	@Test
+	public void testConcurrentChanges() throws Exception {
+		Path directory = Files.createTempDirectory("storage");
+		try {
+			DurableIngredientStorage storage = new DurableIngredientStorage(directory, 1000, false);
+			List<Thread> threads = new ArrayList<>();
+			for (int t = 0; t < 4; t++) {
+				String ingredient = "ingredient" + t;
+				Thread thread = new Thread(() -> {
+					for (int i = 0; i < 500; i++) {
+						storage.addIngredients(recipe(ingredient, 2));
+						storage.removeIngredients(recipe(ingredient, 1));
+					}
+				});
+				threads.add(thread);
+				thread.start();
+			}
+			for (Thread thread : threads) {
+				thread.join();
+			}
+			assertEquals(4000, storage.getAppendedRecords());
+			assertTrue(storage.getSyncCount() <= 4000);
+			storage.close();
+
+			DurableIngredientStorage recovered = new DurableIngredientStorage(directory, 1000, false);
+			for (int t = 0; t < 4; t++) {
+				assertEquals(500, recovered.getIngredientAmount("ingredient" + t), 0);
+			}
+			assertEquals(0, recovered.getIngredientAmount("salt"), 0);
+			recovered.close();
+		} finally {
+			delete(directory);
+		}
+	}
+
+	@Test
+	public void testTooLongNameIsRejected() throws IOException {
+		Path directory = Files.createTempDirectory("storage");
+		try {
+			DurableIngredientStorage storage = new DurableIngredientStorage(directory);
+			storage.addIngredient("egg", 2);
+			String name = "x".repeat(70000);
+			try {
+				storage.addIngredient(name, 1);
+				fail();
+			} catch (IllegalArgumentException e) {}
+			try {
+				storage.addIngredients(recipe(name, 1));
+				fail();
+			} catch (IllegalArgumentException e) {}
+			// Fewer than 65536 chars, but more than 65535 bytes when encoded
+			try {
+				storage.addIngredient("\u00e6\u0800".repeat(14000), 1);
+				fail();
+			} catch (IllegalArgumentException e) {}
+			try {
+				storage.removeIngredients(recipe("butter", 1));
+				fail();
+			} catch (IllegalArgumentException e) {}
+			assertEquals(0, storage.getIngredientAmount(name), 0);
+			assertEquals(0, storage.getIngredientAmount("salt"), 0);
+			storage.addIngredient("butter", 3);
+			storage.close();
+
+			DurableIngredientStorage recovered = new DurableIngredientStorage(directory);
+			assertEquals(2, recovered.getRecoveredRecords());
+			assertEquals(2, recovered.getIngredientAmount("egg"), 0);
+			assertEquals(3, recovered.getIngredientAmount("butter"), 0);
+			assertEquals(2, recovered.getIngredientNames().size());
+			recovered.close();
+		} finally {
+			delete(directory);
+		}
+	}
+
+	@Test
+	public void testCheckpointsDoNotOverlap() throws Exception {
+		Path directory = Files.createTempDirectory("storage");
+		try {
+			DurableIngredientStorage storage = new DurableIngredientStorage(directory, 10, false);
+			List<Thread> threads = new ArrayList<>();
+			List<Throwable> failures = new ArrayList<>();
+			for (int t = 0; t < 4; t++) {
+				String ingredient = "ingredient" + t;
+				Thread thread = new Thread(() -> {
+					try {
+						for (int i = 0; i < 200; i++) {
+							storage.addIngredient(ingredient, 1);
+							if (i % 20 == 0) {
+								storage.checkpoint();
+							}
+						}
+					} catch (Throwable e) {
+						synchronized (failures) {
+							failures.add(e);
+						}
+					}
+				});
+				threads.add(thread);
+				thread.start();
+			}
+			for (Thread thread : threads) {
+				thread.join();
+			}
+			assertTrue(failures.toString(), failures.isEmpty());
+			storage.close();
+
+			DurableIngredientStorage recovered = new DurableIngredientStorage(directory, 10, false);
+			for (int t = 0; t < 4; t++) {
+				assertEquals(200, recovered.getIngredientAmount("ingredient" + t), 0);
+			}
+			recovered.close();
+			try (Stream<Path> files = Files.list(directory)) {
+				assertEquals(2, files.count());
+			}
+		} finally {
+			delete(directory);
+		}
+	}
+}
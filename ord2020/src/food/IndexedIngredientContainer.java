@@ -0,0 +1,503 @@
+package food;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Container of ingredients that stores amounts in primitive arrays keyed by
+ * the ingredient IDs of an {@link IngredientDictionary}.
+ *
+ * The ingredients are kept in an open addressing hash table of `int` IDs and `double`
+ * amounts, so no Strings are hashed and no amounts are boxed when working with IDs.
+ * The String-based methods of {@link Ingredients} translate names through the dictionary.
+ */
+public class IndexedIngredientContainer implements IngredientStorage {
+
+    private static final int FREE = -1;
+    private static final int INITIAL_CAPACITY = 8;
+
+    private final IngredientDictionary dictionary;
+    private int[] ids;
+    private double[] amounts;
+    private int size;
+    private List<IngredientStorageObserver> observers;
+
+    /**
+     * Initializes a new, empty container using the default dictionary.
+     */
+    public IndexedIngredientContainer() {
+        this(IngredientDictionary.getDefault());
+    }
+
+    /**
+     * Initializes a new, empty container.
+     * @param dictionary The dictionary used to translate ingredient names to IDs
+     */
+    public IndexedIngredientContainer(IngredientDictionary dictionary) {
+        this.dictionary = dictionary;
+        ids = newIds(INITIAL_CAPACITY);
+        amounts = new double[INITIAL_CAPACITY];
+        size = 0;
+    }
+
+    /**
+     * Initializes a new container using the default dictionary.
+     * @param ingredients Initial ingredients in the container
+     */
+    public IndexedIngredientContainer(Ingredients ingredients) {
+        this(ingredients, IngredientDictionary.getDefault());
+    }
+
+    /**
+     * Initializes a new container.
+     * @param ingredients Initial ingredients in the container
+     * @param dictionary The dictionary used to translate ingredient names to IDs
+     */
+    public IndexedIngredientContainer(Ingredients ingredients, IngredientDictionary dictionary) {
+        this(dictionary);
+        addIngredients(ingredients);
+    }
+
+    /**
+     * @return The dictionary used to translate ingredient names to IDs
+     */
+    public IngredientDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * @return The number of distinct ingredients in the container
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Add `amount` of `ingredient` to the container.
+     *
+     * @param ingredient The name of the ingredient to add
+     * @param amount The amount of the ingredient to add
+     * @throws IllegalArgumentException if amount is not positive
+     */
+    public void addIngredient(String ingredient, double amount) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Amount must be positive");
+        }
+
+        add(dictionary.getId(ingredient), amount);
+    }
+
+    /**
+     * Add `amount` of the ingredient with the given ID to the container.
+     *
+     * @param id The ID of the ingredient to add
+     * @param amount The amount of the ingredient to add
+     * @throws IllegalArgumentException if amount is not positive
+     */
+    public void addIngredient(int id, double amount) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Amount must be positive");
+        }
+
+        add(id, amount);
+    }
+
+    /**
+     * Remove `amount` of `ingredient` from the container.
+     *
+     * If the resulting amount of the ingredient is 0, its name is removed.
+     *
+     * @param ingredient The name of the ingredient to remove
+     * @param amount The amount of the ingredient to remove
+     * @throws IllegalArgumentException if the ingredient is not in the container
+     */
+    public void removeIngredient(String ingredient, double amount) {
+        removeIngredient(dictionary.findId(ingredient), amount);
+    }
+
+    /**
+     * Remove `amount` of the ingredient with the given ID from the container.
+     *
+     * If the resulting amount of the ingredient is 0, it is removed.
+     *
+     * @param id The ID of the ingredient to remove
+     * @param amount The amount of the ingredient to remove
+     * @throws IllegalArgumentException if the ingredient is not in the container
+     */
+    public void removeIngredient(int id, double amount) {
+        var slot = id < 0 ? -1 : slotOf(id);
+        if (slot < 0) {
+            throw new IllegalArgumentException("Key does not exist");
+        }
+
+        subtract(slot, amount);
+    }
+
+    /**
+     * @return An Iterable giving the names of all the ingredients
+     */
+    @Override
+    public Iterable<String> ingredientNames() {
+        return getIngredientNames();
+    }
+
+    /**
+     * @return A collection containing the names of all the ingredients
+     */
+    @Override
+    public Collection<String> getIngredientNames() {
+        return new AbstractCollection<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                return new Iterator<String>() {
+                    private int slot = nextSlot(0);
+
+                    @Override
+                    public boolean hasNext() {
+                        return slot < ids.length;
+                    }
+
+                    @Override
+                    public String next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        var name = dictionary.getName(ids[slot]);
+                        slot = nextSlot(slot + 1);
+                        return name;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                if (!(o instanceof String)) {
+                    return false;
+                }
+                var id = dictionary.findId((String) o);
+                return id >= 0 && slotOf(id) >= 0;
+            }
+        };
+    }
+
+    /**
+     * @param ingredient The ingredient to get the amount of
+     * If the ingredient does not exist, the double 0.0 is returned.
+     * @return The amount of ingredient
+     */
+    @Override
+    public double getIngredientAmount(String ingredient) {
+        return getIngredientAmount(dictionary.findId(ingredient));
+    }
+
+    /**
+     * @param id The ID of the ingredient to get the amount of
+     * If the ingredient does not exist, the double 0.0 is returned.
+     * @return The amount of ingredient
+     */
+    public double getIngredientAmount(int id) {
+        if (id < 0) {
+            return 0d;
+        }
+
+        var slot = slotOf(id);
+        return slot < 0 ? 0d : amounts[slot];
+    }
+
+    /**
+     * Get a string containing the ingredients with amounts in the same format as {@link IngredientContainer#toString()}.
+     *
+     * @return A string with one `name: amount` line per ingredient
+     */
+    @Override
+    public String toString() {
+        var strings = new ArrayList<String>();
+        for (var slot = nextSlot(0); slot < ids.length; slot = nextSlot(slot + 1)) {
+            strings.add(dictionary.getName(ids[slot]) + ": " + amounts[slot]);
+        }
+
+        return String.join("\n", strings);
+    }
+
+    /**
+     * Add all ingredients from another Ingredients object into this.
+     *
+     * @param ingredients the ingredients to add
+     */
+    public void addIngredients(Ingredients ingredients) {
+        if (sharesDictionary(ingredients)) {
+            var other = (IndexedIngredientContainer) ingredients;
+            for (var slot = other.nextSlot(0); slot < other.ids.length; slot = other.nextSlot(slot + 1)) {
+                add(other.ids[slot], other.amounts[slot]);
+            }
+            return;
+        }
+
+        for (var name : ingredients.ingredientNames()) {
+            add(dictionary.getId(name), ingredients.getIngredientAmount(name));
+        }
+    }
+
+    /**
+     * Remove all ingredients in other from this.
+     *
+     * @param ingredients the ingredients to remove
+     * @throws IllegalArgumentException if this does not contain enough of any of the ingredients (without changing this)
+     */
+    public void removeIngredients(Ingredients ingredients) {
+        if (!containsIngredients(ingredients)) {
+            throw new IllegalArgumentException("Not enough of any of the ingredients");
+        }
+
+        if (sharesDictionary(ingredients)) {
+            var other = (IndexedIngredientContainer) ingredients;
+            for (var slot = other.nextSlot(0); slot < other.ids.length; slot = other.nextSlot(slot + 1)) {
+                subtract(slotOf(other.ids[slot]), other.amounts[slot]);
+            }
+            return;
+        }
+
+        for (var name : ingredients.ingredientNames()) {
+            var amount = ingredients.getIngredientAmount(name);
+            var id = dictionary.findId(name);
+            var slot = id < 0 ? -1 : slotOf(id);
+            if (slot >= 0) {
+                subtract(slot, amount);
+            }
+        }
+    }
+
+    /**
+     * Checks if the all the ingredients in other is contained in this
+     * @param other
+     * @return true of there is at least the same or larger amount of ingredients in this than in other, false otherwise
+     */
+    @Override
+    public boolean containsIngredients(Ingredients other) {
+        if (sharesDictionary(other)) {
+            var o = (IndexedIngredientContainer) other;
+            for (var slot = o.nextSlot(0); slot < o.ids.length; slot = o.nextSlot(slot + 1)) {
+                if (getIngredientAmount(o.ids[slot]) < o.amounts[slot]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        for (var name : other.ingredientNames()) {
+            if (getIngredientAmount(name) < other.getIngredientAmount(name)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the ingredients that must be added to other for this to be contained in it
+     * @param other
+     * @return a new Ingredients that if added to other would make it contain this
+     */
+    @Override
+    public Ingredients missingIngredients(Ingredients other) {
+        var missing = new IndexedIngredientContainer(dictionary);
+        var indexed = sharesDictionary(other) ? (IndexedIngredientContainer) other : null;
+
+        for (var slot = nextSlot(0); slot < ids.length; slot = nextSlot(slot + 1)) {
+            var amount = amounts[slot];
+            var otherAmount = indexed != null
+                    ? indexed.getIngredientAmount(ids[slot])
+                    : other.getIngredientAmount(dictionary.getName(ids[slot]));
+            if (otherAmount < amount) {
+                missing.add(ids[slot], amount - otherAmount);
+            }
+        }
+
+        return missing;
+    }
+
+    /**
+     * Returns the ingredients that you get if you scale this by factor 'scale'.
+     * The table layout is copied as is, so no IDs are rehashed.
+     * @param scale
+     * @return a new scaled Ingredients
+     */
+    @Override
+    public Ingredients scaleIngredients(double scale) {
+        var scaled = new IndexedIngredientContainer(dictionary);
+        scaled.ids = ids.clone();
+        scaled.amounts = new double[amounts.length];
+        scaled.size = size;
+
+        for (var slot = nextSlot(0); slot < ids.length; slot = nextSlot(slot + 1)) {
+            scaled.amounts[slot] = amounts[slot] * scale;
+        }
+
+        return scaled;
+    }
+
+    @Override
+    public void addObserver(IngredientStorageObserver observer) {
+        if (observers == null) {
+            observers = new ArrayList<>();
+        }
+        observers.add(observer);
+    }
+
+    @Override
+    public void removeObserver(IngredientStorageObserver observer) {
+        if (observers != null) {
+            observers.remove(observer);
+        }
+    }
+
+    boolean sharesDictionary(Ingredients other) {
+        return other instanceof IndexedIngredientContainer
+                && ((IndexedIngredientContainer) other).dictionary == dictionary;
+    }
+
+    /**
+     * @return The first occupied slot at or after `slot`, or the table length if there is none
+     */
+    int nextSlot(int slot) {
+        while (slot < ids.length && ids[slot] == FREE) {
+            slot++;
+        }
+        return slot;
+    }
+
+    int idAt(int slot) {
+        return ids[slot];
+    }
+
+    double amountAt(int slot) {
+        return amounts[slot];
+    }
+
+    int capacity() {
+        return ids.length;
+    }
+
+    private static int[] newIds(int capacity) {
+        var newIds = new int[capacity];
+        Arrays.fill(newIds, FREE);
+        return newIds;
+    }
+
+    private static int hash(int id, int mask) {
+        return (id * 0x9E3779B9) >>> 7 & mask;
+    }
+
+    private int slotOf(int id) {
+        var mask = ids.length - 1;
+        for (var slot = hash(id, mask); ; slot = (slot + 1) & mask) {
+            var current = ids[slot];
+            if (current == id) {
+                return slot;
+            } else if (current == FREE) {
+                return -1;
+            }
+        }
+    }
+
+    private void add(int id, double amount) {
+        var mask = ids.length - 1;
+        var slot = hash(id, mask);
+        while (ids[slot] != FREE) {
+            if (ids[slot] == id) {
+                var oldAmount = amounts[slot];
+                amounts[slot] += amount;
+                fireIngredientChanged(id, oldAmount, amounts[slot]);
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        ids[slot] = id;
+        amounts[slot] = amount;
+        size++;
+
+        if (size * 4 > ids.length * 3) {
+            rehash(ids.length * 2);
+        }
+        fireIngredientChanged(id, 0d, amount);
+    }
+
+    private void subtract(int slot, double amount) {
+        var id = ids[slot];
+        var oldAmount = amounts[slot];
+        var newAmount = oldAmount - amount;
+        if (newAmount <= 0) {
+            delete(slot);
+            fireIngredientChanged(id, oldAmount, 0d);
+        } else {
+            amounts[slot] = newAmount;
+            fireIngredientChanged(id, oldAmount, newAmount);
+        }
+    }
+
+    private void fireIngredientChanged(int id, double oldAmount, double newAmount) {
+        if (observers == null) {
+            return;
+        }
+
+        var name = dictionary.getName(id);
+        for (var o : observers) {
+            o.ingredientChanged(name, oldAmount, newAmount);
+        }
+    }
+
+    /**
+     * Removes the entry in `slot`, shifting later entries of the same probe sequence back so
+     * that lookups never need tombstones.
+     */
+    private void delete(int slot) {
+        var mask = ids.length - 1;
+        var hole = slot;
+        var next = (hole + 1) & mask;
+
+        while (ids[next] != FREE) {
+            var home = hash(ids[next], mask);
+            // Move the entry into the hole if the hole lies cyclically between its home slot and its current slot
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                ids[hole] = ids[next];
+                amounts[hole] = amounts[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+
+        ids[hole] = FREE;
+        amounts[hole] = 0d;
+        size--;
+    }
+
+    private void rehash(int capacity) {
+        var oldIds = ids;
+        var oldAmounts = amounts;
+
+        ids = newIds(capacity);
+        amounts = new double[capacity];
+
+        var mask = capacity - 1;
+        for (var slot = 0; slot < oldIds.length; slot++) {
+            if (oldIds[slot] != FREE) {
+                var newSlot = hash(oldIds[slot], mask);
+                while (ids[newSlot] != FREE) {
+                    newSlot = (newSlot + 1) & mask;
+                }
+                ids[newSlot] = oldIds[slot];
+                amounts[newSlot] = oldAmounts[slot];
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package food;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collection;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class IndexedIngredientContainerTest {
+	private static final double EPSILON = 0.0001;
+
+	private IndexedIngredientContainer createDefaultContainer(IngredientDictionary dictionary) {
+		IndexedIngredientContainer ig = new IndexedIngredientContainer(dictionary);
+		ig.addIngredient("food1", 5.0);
+		ig.addIngredient("food2", 10.0);
+		ig.addIngredient("food3", 15.0);
+		return ig;
+	}
+
+	@Test
+	public void testDictionary() {
+		IngredientDictionary dictionary = new IngredientDictionary();
+		assertEquals(-1, dictionary.findId("food1"));
+		assertEquals(0, dictionary.getId("food1"));
+		assertEquals(1, dictionary.getId("food2"));
+		assertEquals(0, dictionary.getId("food1"));
+		assertEquals("food2", dictionary.getName(1));
+		assertEquals(2, dictionary.size());
+	}
+
+	@Test
+	public void testAddAndRemoveIngredient() {
+		IndexedIngredientContainer container = createDefaultContainer(new IngredientDictionary());
+		container.addIngredient("food1", 2.5);
+		assertEquals(7.5, container.getIngredientAmount("food1"), EPSILON);
+
+		container.removeIngredient("food2", 10.0);
+		assertEquals(0.0, container.getIngredientAmount("food2"), EPSILON);
+		Collection<String> expectedNames = Set.of("food1", "food3");
+		IngredientContainerTest.assertCollectionsContainTheSame(expectedNames, container.getIngredientNames());
+		assertEquals(2, container.size());
+
+		try {
+			container.removeIngredient("food4", 1.0);
+			fail();
+		} catch (IllegalArgumentException e) {}
+	}
+
+	@Test
+	public void testManyIngredients() {
+		IngredientDictionary dictionary = new IngredientDictionary();
+		IndexedIngredientContainer container = new IndexedIngredientContainer(dictionary);
+		for (int i = 0; i < 1000; i++) {
+			container.addIngredient("food" + i, i + 1);
+		}
+		for (int i = 0; i < 1000; i += 2) {
+			container.removeIngredient("food" + i, i + 1);
+		}
+
+		assertEquals(500, container.size());
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(i % 2 == 0 ? 0.0 : i + 1, container.getIngredientAmount("food" + i), EPSILON);
+		}
+	}
+
+	@Test
+	public void testContainsAndMissing() {
+		IngredientDictionary dictionary = new IngredientDictionary();
+		IndexedIngredientContainer storage = createDefaultContainer(dictionary);
+
+		IndexedIngredientContainer needed = new IndexedIngredientContainer(dictionary);
+		needed.addIngredient("food1", 5.0);
+		needed.addIngredient("food2", 12.0);
+		assertFalse(storage.containsIngredients(needed));
+
+		Ingredients missing = needed.missingIngredients(storage);
+		IngredientContainerTest.assertCollectionsContainTheSame(Set.of("food2"), missing.getIngredientNames());
+		assertEquals(2.0, missing.getIngredientAmount("food2"), EPSILON);
+
+		// Mixing with the String-keyed container must give the same answers
+		IngredientContainer plain = new IngredientContainer(needed);
+		assertFalse(storage.containsIngredients(plain));
+		assertEquals(2.0, plain.missingIngredients(storage).getIngredientAmount("food2"), EPSILON);
+
+		storage.addIngredients(missing);
+		assertTrue(storage.containsIngredients(needed));
+		storage.removeIngredients(needed);
+		assertEquals(0.0, storage.getIngredientAmount("food1"), EPSILON);
+		assertEquals(0.0, storage.getIngredientAmount("food2"), EPSILON);
+		assertEquals(15.0, storage.getIngredientAmount("food3"), EPSILON);
+	}
+
+	@Test
+	public void testScaleIngredients() {
+		IndexedIngredientContainer container = createDefaultContainer(new IngredientDictionary());
+		Ingredients scaled = container.scaleIngredients(2);
+		assertEquals(10.0, scaled.getIngredientAmount("food1"), EPSILON);
+		assertEquals(30.0, scaled.getIngredientAmount("food3"), EPSILON);
+		assertEquals(5.0, container.getIngredientAmount("food1"), EPSILON);
+	}
+}
@@ -5,13 +5,15 @@ import static org.junit.Assert.assertEquals;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 
 /**
  * Generic container of ingredients.
  */
-public class IngredientContainer implements Ingredients {
+public class IngredientContainer implements IngredientStorage {
 
     private final HashMap<String, Double> ingredients;
+    private List<IngredientStorageObserver> observers;
 
     /**
      * Initializes a new, empty IngredientContainer.
@@ -45,7 +47,9 @@ public class IngredientContainer implements Ingredients {
             throw new IllegalArgumentException("Amount must be positive");
         }
 
-        ingredients.merge(ingredient, amount, Double::sum);
+        var oldAmount = observers == null ? 0d : getIngredientAmount(ingredient);
+        var newAmount = ingredients.merge(ingredient, amount, Double::sum);
+        fireIngredientChanged(ingredient, oldAmount, newAmount);
     }
 
     /**
@@ -58,13 +62,12 @@ public class IngredientContainer implements Ingredients {
      * @throws IllegalArgumentException if amount cannot be removed from this
      */
     public void removeIngredient(String ingredient, double amount) {
-        var newAmount = ingredients.computeIfPresent(ingredient, (key, existing) -> existing - amount);
+        var existing = ingredients.get(ingredient);
 
-        if (newAmount == null) {
+        if (existing == null) {
             throw new IllegalArgumentException("Key does not exist");
-        } else if (newAmount <= 0) {
-            ingredients.remove(ingredient);
         }
+        subtract(ingredient, existing, amount);
     }
 
     /**
@@ -122,7 +125,9 @@ public class IngredientContainer implements Ingredients {
     public void addIngredients(Ingredients ingredients) {
         for (var name : ingredients.ingredientNames()) {
             var amount = ingredients.getIngredientAmount(name);
-            this.ingredients.merge(name, amount, Double::sum);
+            var oldAmount = observers == null ? 0d : getIngredientAmount(name);
+            var newAmount = this.ingredients.merge(name, amount, Double::sum);
+            fireIngredientChanged(name, oldAmount, newAmount);
         }
     }
 
@@ -140,15 +145,48 @@ public class IngredientContainer implements Ingredients {
         for (var name : ingredients.ingredientNames()) {
             var amount = ingredients.getIngredientAmount(name);
             var existing = this.ingredients.get(name);
-            var newAmount = existing - amount;
-            if (newAmount <= 0) {
-                this.ingredients.remove(name);
-            } else {
-                this.ingredients.replace(name, newAmount);
+            if (existing != null) {
+                subtract(name, existing, amount);
             }
         }
     }
 
+    @Override
+    public void addObserver(IngredientStorageObserver observer) {
+        if (observers == null) {
+            observers = new ArrayList<>();
+        }
+        observers.add(observer);
+    }
+
+    @Override
+    public void removeObserver(IngredientStorageObserver observer) {
+        if (observers != null) {
+            observers.remove(observer);
+        }
+    }
+
+    private void subtract(String name, double existing, double amount) {
+        var newAmount = existing - amount;
+        if (newAmount <= 0) {
+            ingredients.remove(name);
+            fireIngredientChanged(name, existing, 0d);
+        } else {
+            ingredients.replace(name, newAmount);
+            fireIngredientChanged(name, existing, newAmount);
+        }
+    }
+
+    private void fireIngredientChanged(String name, double oldAmount, double newAmount) {
+        if (observers == null) {
+            return;
+        }
+
+        for (var o : observers) {
+            o.ingredientChanged(name, oldAmount, newAmount);
+        }
+    }
+
     /**
      * Checks if the all the ingredients in other is contained in this
      * @param other
@@ -173,15 +211,13 @@ public class IngredientContainer implements Ingredients {
     @Override
     public Ingredients missingIngredients(Ingredients other) {
         var missing = new IngredientContainer();
-        var otherNames = other.getIngredientNames();
 
+        // An ingredient other does not have has amount 0, so it needs no separate name lookup
         for (var entry : ingredients.entrySet()) {
             var name = entry.getKey();
             var amount = entry.getValue();
             var otherAmount = other.getIngredientAmount(name);
-            if (!otherNames.contains(name)) {
-                missing.addIngredient(name, amount);
-            } else if (otherAmount < amount) {
+            if (otherAmount < amount) {
                 missing.addIngredient(name, amount - otherAmount);
             }
         }
@@ -0,0 +1,100 @@
+package food;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps ingredient names to dense int IDs, so that ingredients can be stored in
+ * primitive arrays instead of String-keyed maps.
+ *
+ * IDs are assigned in the order names are first seen, starting at 0, and are never reused.
+ * The dictionary is safe to use from several threads.
+ */
+public class IngredientDictionary {
+
+    private static final IngredientDictionary DEFAULT = new IngredientDictionary();
+
+    private final ConcurrentHashMap<String, Integer> ids;
+    private volatile String[] names;
+    private int size;
+
+    /**
+     * Initializes a new, empty dictionary.
+     */
+    public IngredientDictionary() {
+        ids = new ConcurrentHashMap<>();
+        names = new String[16];
+        size = 0;
+    }
+
+    /**
+     * @return The dictionary shared by all ingredient containers that are not given one explicitly
+     */
+    public static IngredientDictionary getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Get the ID of an ingredient, assigning a new ID if the name has not been seen before.
+     *
+     * @param ingredient The name of the ingredient
+     * @return The ID of the ingredient
+     */
+    public int getId(String ingredient) {
+        var id = ids.get(ingredient);
+        if (id != null) {
+            return id;
+        }
+
+        synchronized (this) {
+            id = ids.get(ingredient);
+            if (id != null) {
+                return id;
+            }
+
+            var newId = size;
+            var current = names;
+            if (newId == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+            }
+            current[newId] = ingredient;
+            names = current;
+            size++;
+            ids.put(ingredient, newId);
+
+            return newId;
+        }
+    }
+
+    /**
+     * Get the ID of an ingredient without assigning a new one.
+     *
+     * @param ingredient The name of the ingredient
+     * @return The ID of the ingredient, or -1 if the name has not been seen before
+     */
+    public int findId(String ingredient) {
+        var id = ids.get(ingredient);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @param id The ID of an ingredient
+     * @return The name of the ingredient with the given ID
+     * @throws IllegalArgumentException if no ingredient has the given ID
+     */
+    public String getName(int id) {
+        var current = names;
+        if (id < 0 || id >= current.length || current[id] == null) {
+            throw new IllegalArgumentException("Unknown ingredient id: " + id);
+        }
+
+        return current[id];
+    }
+
+    /**
+     * @return The number of ingredients in the dictionary, which is also one more than the largest ID
+     */
+    public int size() {
+        return ids.size();
+    }
+}
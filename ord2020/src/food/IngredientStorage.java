@@ -0,0 +1,66 @@
+package food;
+
+/**
+ * Ingredients that can be changed, e.g. the storage of a {@link Kitchen}.
+ */
+public interface IngredientStorage extends Ingredients {
+
+    /**
+     * Add `amount` of `ingredient` to the storage.
+     *
+     * @param ingredient The name of the ingredient to add
+     * @param amount The amount of the ingredient to add
+     * @throws IllegalArgumentException if amount is not positive
+     */
+    public void addIngredient(String ingredient, double amount);
+
+    /**
+     * Remove `amount` of `ingredient` from the storage.
+     *
+     * If the resulting amount of the ingredient is 0, its name is removed.
+     *
+     * @param ingredient The name of the ingredient to remove
+     * @param amount The amount of the ingredient to remove
+     * @throws IllegalArgumentException if the ingredient is not in the storage
+     */
+    public void removeIngredient(String ingredient, double amount);
+
+    /**
+     * Add all ingredients from another Ingredients object into this.
+     *
+     * @param ingredients the ingredients to add
+     */
+    public void addIngredients(Ingredients ingredients);
+
+    /**
+     * Remove all ingredients in other from this.
+     *
+     * @param ingredients the ingredients to remove
+     * @throws IllegalArgumentException if this does not contain enough of any of the ingredients (without changing this)
+     */
+    public void removeIngredients(Ingredients ingredients);
+
+    /**
+     * Get the contents of the storage as ingredients that do not change when the storage does.
+     * By default this copies the storage, so the storage must not be changed during the call.
+     * Thread-safe storages override this: {@link ConcurrentIngredientContainer} copies while blocking changes,
+     * and {@link SnapshotIngredientContainer} returns its current version without copying or locking.
+     *
+     * @return The ingredients currently in the storage
+     */
+    public default Ingredients snapshot() {
+        return new IngredientContainer(this);
+    }
+
+    /**
+     * Register an observer that is told about every change to the amount of an ingredient.
+     *
+     * @param observer The observer to add
+     */
+    public void addObserver(IngredientStorageObserver observer);
+
+    /**
+     * @param observer The observer to remove
+     */
+    public void removeObserver(IngredientStorageObserver observer);
+}
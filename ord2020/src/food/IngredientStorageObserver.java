@@ -0,0 +1,14 @@
+package food;
+
+public interface IngredientStorageObserver {
+
+    /**
+     * Called after the amount of an ingredient in an {@link IngredientStorage} has changed.
+     * An ingredient that has been removed from the storage has amount 0.
+     *
+     * @param ingredient The name of the ingredient that changed
+     * @param oldAmount The amount before the change
+     * @param newAmount The amount after the change
+     */
+    void ingredientChanged(String ingredient, double oldAmount, double newAmount);
+}
@@ -18,7 +18,7 @@ public interface Ingredients {
 
     /**
      * @param ingredient The ingredient to get the amount of
-     * @return The amount of ingredient
+     * @return The amount of ingredient, or 0.0 if the ingredient does not exist
      */
     public double getIngredientAmount(String ingredient);
 
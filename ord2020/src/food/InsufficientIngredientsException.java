@@ -0,0 +1,35 @@
+package food;
+
+/**
+ * Thrown when a storage does not have enough ingredients for what is asked of it.
+ */
+public class InsufficientIngredientsException extends IllegalArgumentException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient Ingredients missingIngredients;
+
+    /**
+     * @param missingIngredients The ingredients that would have to be added to the storage
+     */
+    public InsufficientIngredientsException(Ingredients missingIngredients) {
+        super("Not enough of the ingredients: " + String.join(", ", missingIngredients.getIngredientNames()));
+        this.missingIngredients = missingIngredients;
+    }
+
+    /**
+     * @param missingIngredients The ingredients that would have to be added to the storage
+     * @param cause The exception the storage threw
+     */
+    public InsufficientIngredientsException(Ingredients missingIngredients, Throwable cause) {
+        this(missingIngredients);
+        initCause(cause);
+    }
+
+    /**
+     * @return The ingredients that would have to be added to the storage, i.e. the bottlenecks
+     */
+    public Ingredients getMissingIngredients() {
+        return missingIngredients;
+    }
+}
@@ -1,18 +1,35 @@
 package food;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 public class Kitchen {
 
+    /**
+     * The default for the smallest number of recipes the parallel queries split across threads.
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 2048;
+
     private final List<Recipe> recipes;
     private final List<Recipe> weeklyRecipes;
-    private final IngredientContainer storage;
+    private final IngredientContainer weeklyDemand;
+    private final Map<String, Integer> weeklyDemandCounts;
+    private final IngredientStorage storage;
     private final List<KitchenObserver> observers;
+    private final RecipeIndex index;
+    private int parallelThreshold;
 
     /**
      * Create a new kitchen with the given recipes
@@ -20,46 +37,98 @@ public class Kitchen {
      * @param recipes The recipes the kitchen knows
      */
     public Kitchen(Recipe... recipes) {
-        this.recipes = new ArrayList<>();
+        this(new IngredientContainer(), recipes);
+    }
+
+    /**
+     * Create a new kitchen with the given storage and recipes.
+     * Use e.g. a {@link ConcurrentIngredientContainer} if several threads cook from the same storage.
+     *
+     * @param storage The kitchen's ingredient storage
+     * @param recipes The recipes the kitchen knows
+     */
+    public Kitchen(IngredientStorage storage, Recipe... recipes) {
+        this.storage = storage;
+        index = new RecipeIndex();
+        storage.addObserver(index);
+
         for (var r : recipes) {
-            this.recipes.add(r);
+            index.add(r, storage);
         }
+        this.recipes = new CopyOnWriteArrayList<>(recipes);
 
         weeklyRecipes = new ArrayList<>();
-        storage = new IngredientContainer();
+        weeklyDemand = new IngredientContainer();
+        weeklyDemandCounts = new HashMap<>();
         observers = new ArrayList<>();
+        parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
     }
 
     /**
      * @return The kitchen's ingredient storage
      */
-    public IngredientContainer getStorage() {
+    public IngredientStorage getStorage() {
         return storage;
     }
 
+    /**
+     * Get a consistent view of the storage, e.g. for reporting while other threads cook.
+     * With a {@link ConcurrentIngredientContainer} as the storage this is safe during changes, but stops them
+     * while copying; a {@link SnapshotIngredientContainer} makes it cheap as well.
+     *
+     * @return The ingredients in the storage, which do not change when the storage does
+     * @see IngredientStorage#snapshot()
+     */
+    public Ingredients getStorageSnapshot() {
+        return storage.snapshot();
+    }
+
+    /**
+     * Add a recipe to the recipes the kitchen knows.
+     * Each call copies the recipe list, so use {@link #addRecipes(Collection)} to add many recipes.
+     *
+     * @param recipe The recipe to add
+     */
+    public void addRecipe(Recipe recipe) {
+        addRecipes(List.of(recipe));
+    }
+
+    /**
+     * Add recipes to the recipes the kitchen knows.
+     * Recipes may be added while other threads query the kitchen. A query sees either none or all of the
+     * recipes of a call in {@link #getAllRecipes()}, the filter methods and the index queries.
+     *
+     * @param recipes The recipes to add
+     */
+    public void addRecipes(Collection<Recipe> recipes) {
+        // Batches from different threads must not interleave, so the index has the recipes at the same positions
+        // as the list, see getRecipesThatCanBeCreated(pool)
+        synchronized (index) {
+            for (var r : recipes) {
+                index.add(r, storage);
+            }
+            this.recipes.addAll(recipes);
+        }
+    }
+
     /**
      * Lookup a recipe in the kitchen's known recipes by name.
      * <p>
      * If no recipe with the given name is found, `null` is returned.
+     * If several recipes have the name, the first one added is returned.
      *
      * @param name The name of the recipe
      * @return The recipe with the given name, or `null` if no such recipe exists
      */
     public Recipe getRecipe(String name) {
-        for (var r : recipes) {
-            if (r.getName().equals(name)) {
-                return r;
-            }
-        }
-
-        return null;
+        return index.getRecipe(name);
     }
 
     /**
      * @return A collection of all the recipes the kitchen knows
      */
     public Collection<Recipe> getAllRecipes() {
-        return recipes;
+        return Collections.unmodifiableList(recipes);
     }
 
     /**
@@ -68,10 +137,16 @@ public class Kitchen {
      * @param recipe The recipe to add
      */
     public void addRecipeToWeekly(Recipe recipe) {
-        weeklyRecipes.add(recipe);
+        var started = KitchenMetrics.start();
+        try {
+            weeklyRecipes.add(recipe);
+            addWeeklyDemand(recipe.getIngredients());
 
-        for (var o : observers) {
-            o.weeklyRecipeAdded(recipe);
+            for (var o : observers) {
+                o.weeklyRecipeAdded(recipe);
+            }
+        } finally {
+            KitchenMetrics.record(KitchenOperation.ADD_RECIPE_TO_WEEKLY, started);
         }
     }
 
@@ -81,7 +156,9 @@ public class Kitchen {
      * @param recipe The recipe to remove
      */
     public void removeRecipeFromWeekly(Recipe recipe) {
-        weeklyRecipes.remove(recipe);
+        if (weeklyRecipes.remove(recipe)) {
+            removeWeeklyDemand(recipe.getIngredients());
+        }
 
         for (var o : observers) {
             o.weeklyRecipeRemoved(recipe);
@@ -94,6 +171,10 @@ public class Kitchen {
      */
     public void clearWeekly() {
         weeklyRecipes.clear();
+        for (var name : new ArrayList<>(weeklyDemand.getIngredientNames())) {
+            weeklyDemand.removeIngredient(name, weeklyDemand.getIngredientAmount(name));
+        }
+        weeklyDemandCounts.clear();
     }
 
     /**
@@ -105,6 +186,68 @@ public class Kitchen {
         for (var o : observers) {
             o.weeklyRecipesRegistered(weeklyRecipes);
         }
+
+        if (!observers.isEmpty()) {
+            var shoppingList = getWeeklyShoppingList();
+            for (var o : observers) {
+                o.weeklyShoppingListRegistered(shoppingList);
+            }
+        }
+    }
+
+    /**
+     * The total demand is kept up to date as recipes are added to and removed from the week,
+     * so this does not look at the recipes themselves.
+     *
+     * @return The sum of the ingredients of the recipes of the week, which must not be changed
+     */
+    public Ingredients getWeeklyDemand() {
+        return weeklyDemand;
+    }
+
+    /**
+     * Takes time proportional to the number of distinct ingredients of the week, not to the number of recipes.
+     *
+     * @return The ingredients that must be bought for the storage to have enough for all the recipes of the week
+     */
+    public Ingredients getWeeklyShoppingList() {
+        return weeklyDemand.missingIngredients(storage);
+    }
+
+    /**
+     * Ingredients with amount 0, e.g. of a recipe scaled to 0 portions, add nothing to the demand
+     * and are not counted.
+     */
+    private void addWeeklyDemand(Ingredients ingredients) {
+        for (var name : ingredients.ingredientNames()) {
+            var amount = ingredients.getIngredientAmount(name);
+            if (amount > 0) {
+                weeklyDemand.addIngredient(name, amount);
+                weeklyDemandCounts.merge(name, 1, Integer::sum);
+            }
+        }
+    }
+
+    /**
+     * The ingredients are counted by the number of weekly recipes using them, so an ingredient is removed
+     * exactly when its last recipe is, instead of leaving a rounding error behind.
+     * Ingredients with amount 0 are skipped, as they were by {@link #addWeeklyDemand(Ingredients)}.
+     */
+    private void removeWeeklyDemand(Ingredients ingredients) {
+        for (var name : ingredients.ingredientNames()) {
+            var amount = ingredients.getIngredientAmount(name);
+            if (amount <= 0) {
+                continue;
+            }
+
+            var total = weeklyDemand.getIngredientAmount(name);
+            if (weeklyDemandCounts.merge(name, -1, Integer::sum) == 0) {
+                weeklyDemandCounts.remove(name);
+                weeklyDemand.removeIngredient(name, total);
+            } else if (amount < total) {
+                weeklyDemand.removeIngredient(name, amount);
+            }
+        }
     }
 
     /**
@@ -121,7 +264,12 @@ public class Kitchen {
      * @return true if the kitchen has enough ingredients
      */
     public boolean canCreateRecipe(Recipe recipe) {
-        return storage.containsIngredients(recipe.getIngredients());
+        var started = KitchenMetrics.start();
+        try {
+            return storage.containsIngredients(recipe.getIngredients());
+        } finally {
+            KitchenMetrics.record(KitchenOperation.CAN_CREATE_RECIPE, started);
+        }
     }
 
     /**
@@ -131,8 +279,51 @@ public class Kitchen {
      * @throws IllegalArgumentException if there's not enough ingredients to create the given recipe.
      */
     public void createRecipe(Recipe recipe) {
-        var ingredients = recipe.getIngredients();
-        storage.removeIngredients(ingredients);
+        var started = KitchenMetrics.start();
+        try {
+            storage.removeIngredients(recipe.getIngredients());
+        } finally {
+            KitchenMetrics.record(KitchenOperation.CREATE_RECIPE, started);
+        }
+    }
+
+    /**
+     * Cook several recipes at once. The ingredients of the recipes are added up first, and removed from the storage
+     * in a single {@link IngredientStorage#removeIngredients(Ingredients)}, so either all of the recipes are created
+     * or none of them.
+     *
+     * @param recipes The recipes to create, where a recipe may occur several times
+     * @throws InsufficientIngredientsException if there's not enough ingredients to create all the recipes,
+     * with the ingredients that are missing
+     * @throws IllegalArgumentException if the storage rejects the ingredients for another reason
+     */
+    public void createRecipes(Collection<Recipe> recipes) {
+        var demand = new IngredientContainer();
+        for (var recipe : recipes) {
+            demand.addIngredients(recipe.getIngredients());
+        }
+
+        try {
+            storage.removeIngredients(demand);
+        } catch (IllegalArgumentException e) {
+            // The storage may have failed for another reason, or another thread may have added the ingredients since
+            var missing = demand.missingIngredients(storage);
+            if (missing.getIngredientNames().isEmpty()) {
+                throw e;
+            }
+            throw new InsufficientIngredientsException(missing, e);
+        }
+    }
+
+    /**
+     * Propose a weekly menu from the kitchen's recipes that the storage has enough ingredients for,
+     * maximizing the total number of portions. See {@link MenuPlanner} for other scores.
+     *
+     * @param timeBudget The time to spend planning at most, roughly
+     * @return The best plan found within the time budget
+     */
+    public MenuPlan planWeeklyMenu(Duration timeBudget) {
+        return new MenuPlanner(recipes, storage).plan(timeBudget);
     }
 
     /**
@@ -146,18 +337,111 @@ public class Kitchen {
     }
 
     /**
+     * Find the recipes matching a query. The candidates are looked up in the index of the query's most selective
+     * clause, i.e. the category, a required ingredient or the name prefix, and only they are checked against the
+     * rest of the query, so a selective query does not look at every recipe. The ingredients of the kitchen's
+     * recipes must not be changed, like for {@link #getRecipesThatCanBeCreated()}.
+     *
+     * @param query The query to match
+     * @return The recipes matching the query, in the same order as {@link #filterRecipes(Predicate)}
+     */
+    public List<Recipe> findRecipes(RecipeQuery query) {
+        return index.query(query);
+    }
+
+    /**
+     * @param query A query
+     * @return A description of how {@link #findRecipes(RecipeQuery)} finds the query's recipes, e.g. to see which index is used
+     */
+    public String explain(RecipeQuery query) {
+        return index.explain(query);
+    }
+
+    /**
+     * Filter the recipes in this kitchen on several threads. The catalog is split across the pool's
+     * threads, and the result has the same order as {@link #filterRecipes(Predicate)}.
+     * Below the parallel threshold the filter runs on the calling thread.
+     *
+     * @param predicate The predicate to filter on, which must be safe to call from several threads
+     * @param pool The pool to run the filter in
+     * @return The filtered collection of recipes
+     */
+    public Collection<Recipe> filterRecipes(Predicate<Recipe> predicate, ForkJoinPool pool) {
+        return ParallelRecipeFilter.filter(recipes, predicate, pool, parallelThreshold);
+    }
+
+    /**
+     * Set the smallest number of recipes the parallel queries split across threads.
+     *
+     * @param parallelThreshold The threshold, see {@link #DEFAULT_PARALLEL_THRESHOLD}
+     * @throws IllegalArgumentException if parallelThreshold is not positive
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        if (parallelThreshold <= 0) {
+            throw new IllegalArgumentException("Threshold must be positive");
+        }
+
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * Answered from an index that is updated on every storage change, so the cost is proportional to
+     * the number of recipes returned rather than to the number of recipes the kitchen knows.
+     * The ingredients of the kitchen's recipes must therefore not be changed.
+     *
      * @return All recipes that can be created with the current ingredient store of this kitchen
      */
     public Collection<Recipe> getRecipesThatCanBeCreated() {
-        var canCreate = new ArrayList<Recipe>();
+        var started = KitchenMetrics.start();
+        try {
+            return index.getFeasibleRecipes();
+        } finally {
+            KitchenMetrics.record(KitchenOperation.GET_RECIPES_THAT_CAN_BE_CREATED, started);
+        }
+    }
 
-        for (var recipe : recipes) {
-            if (storage.containsIngredients(recipe.getIngredients())) {
-                canCreate.add(recipe);
-            }
+    /**
+     * Check every recipe against the storage on several threads, see {@link #filterRecipes(Predicate, ForkJoinPool)}.
+     * Recipes using an ingredient that is out of stock are rejected by comparing bitsets of the ingredients,
+     * and only the rest have their amounts compared with the storage's.
+     * Unlike {@link #getRecipesThatCanBeCreated()} this does not rely on the recipes' amounts being unchanged,
+     * but the recipes must keep using the same ingredients, and no amount may drop to 0.
+     * The storage must not be changed while the query runs, unless it is thread-safe.
+     *
+     * @param pool The pool to run the query in
+     * @return All recipes that can be created with the current ingredient store of this kitchen
+     */
+    public Collection<Recipe> getRecipesThatCanBeCreated(ForkJoinPool pool) {
+        var started = KitchenMetrics.start();
+        try {
+            // Checks the storage directly, so the per-recipe checks are not timed as canCreateRecipe calls
+            var presence = index.getPresenceFilter();
+            return ParallelRecipeFilter.filterIndexed(recipes,
+                    i -> presence.hasAllIngredients(i) && storage.containsIngredients(recipes.get(i).getIngredients()),
+                    pool, parallelThreshold);
+        } finally {
+            KitchenMetrics.record(KitchenOperation.GET_RECIPES_THAT_CAN_BE_CREATED, started);
         }
+    }
 
-        return canCreate;
+    /**
+     * Find the recipes that are closest to being makeable with the current storage, without computing
+     * the missing ingredients of every recipe. Recipes that can be created are missing nothing, so they come first.
+     *
+     * @param k The number of recipes to find
+     * @param measure How to measure what a recipe is missing
+     * @return The k recipes missing the least, least first, and in the order they were added when tied
+     * @throws IllegalArgumentException if k is negative
+     */
+    public List<Recipe> getClosestRecipes(int k, MissingMeasure measure) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k cannot be negative");
+        }
+
+        if (measure == MissingMeasure.INGREDIENT_COUNT) {
+            return index.getClosestByMissingCount(k);
+        }
+        return index.getClosestByMissingAmount(k, storage);
     }
 
     /**
@@ -165,21 +449,54 @@ public class Kitchen {
      * @return All recipes that contains `ingredient`
      */
     public Collection<Recipe> getRecipiesContainingIngredient(String ingredient) {
-        var containing = new ArrayList<Recipe>();
+        return index.getRecipesContaining(ingredient);
+    }
 
-        for (var recipe: recipes) {
-            if (recipe.getIngredients().getIngredientNames().contains(ingredient)) {
-                containing.add(recipe);
-            }
-        }
+    /**
+     * Check the ingredients of every recipe on several threads, see {@link #filterRecipes(Predicate, ForkJoinPool)}.
+     *
+     * @param ingredient The ingredient to search for
+     * @param pool The pool to run the query in
+     * @return All recipes that contains `ingredient`
+     */
+    public Collection<Recipe> getRecipiesContainingIngredient(String ingredient, ForkJoinPool pool) {
+        return filterRecipes(r -> r.getIngredients().getIngredientNames().contains(ingredient), pool);
+    }
 
-        return containing;
+    /**
+     * @param ingredients The ingredients to search for
+     * @return All recipes that contain every one of `ingredients`
+     */
+    public Collection<Recipe> getRecipesContainingAllIngredients(String... ingredients) {
+        return index.getRecipesContainingAll(Arrays.asList(ingredients));
+    }
+
+    /**
+     * @param ingredients The ingredients to search for
+     * @return All recipes that contain at least one of `ingredients`
+     */
+    public Collection<Recipe> getRecipesContainingAnyIngredient(String... ingredients) {
+        return index.getRecipesContainingAny(Arrays.asList(ingredients));
     }
 
     public void addObserver(KitchenObserver observer) {
         observers.add(observer);
     }
 
+    /**
+     * Add an observer that gets the kitchen's events on an executor instead of on the thread changing the kitchen,
+     * with additions and removals that happen in bursts merged, see {@link AsyncKitchenObserver}.
+     *
+     * @param observer The observer to add
+     * @param executor The executor to call the observer on, e.g. `Platform::runLater` for a JavaFX controller
+     * @return The wrapper that was added, which reports the queue depth and delivery latency
+     */
+    public AsyncKitchenObserver addObserver(KitchenObserver observer, Executor executor) {
+        var async = new AsyncKitchenObserver(observer, executor);
+        observers.add(async);
+        return async;
+    }
+
     public static void main(final String[] args) throws IOException {
 
         // Reading from file:
@@ -10,6 +10,7 @@ public class KitchenApp extends Application {
 
 	@Override
 	public void start(final Stage stage) throws Exception {
+		KitchenMetrics.registerMBean();
 		final Parent root = FXMLLoader.load(getClass().getResource("Kitchen.fxml"));
 		stage.setScene(new Scene(root));
 		stage.show();
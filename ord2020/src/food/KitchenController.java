@@ -73,7 +73,7 @@ public class KitchenController {
         var recipe = recipeSelector.getValue();
         var nPortions = Integer.parseInt(portionField.getText());
 
-        kitchen.addRecipeToWeekly(recipe.createNPortions(nPortions));
+        kitchen.addRecipeToWeekly(ScaledRecipeCache.getDefault().get(recipe, nPortions));
         updateChosen();
     }
 
@@ -0,0 +1,150 @@
+package food;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counts and times the main operations of {@link Kitchen} and {@link RecipeReader} in a {@link LatencyHistogram}
+ * per {@link KitchenOperation}. Timing is off by default, and can be switched on at runtime with
+ * {@link #setEnabled(boolean)}, over JMX once {@link #registerMBean()} has been called, or at startup with
+ * the system property `food.metrics=true`.
+ *
+ * An instrumented method calls {@link #start()} and {@link #record(KitchenOperation, long)}. While timing
+ * is off these only read a volatile flag, and while it is on they read the clock twice and update striped
+ * counters without allocating.
+ */
+public class KitchenMetrics implements KitchenMetricsMXBean {
+
+    /**
+     * The name the metrics are registered under by {@link #registerMBean()}.
+     */
+    public static final String OBJECT_NAME = "food:type=KitchenMetrics";
+
+    private static final long OFF = Long.MIN_VALUE;
+    private static final KitchenOperation[] OPERATIONS = KitchenOperation.values();
+    private static final KitchenMetrics DEFAULT = new KitchenMetrics();
+
+    private static volatile boolean enabled = Boolean.getBoolean("food.metrics");
+
+    private final LatencyHistogram[] histograms;
+
+    private KitchenMetrics() {
+        histograms = new LatencyHistogram[OPERATIONS.length];
+        for (var i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * @return The metrics of all kitchens and recipe readers
+     */
+    public static KitchenMetrics getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Register the metrics with the platform MBean server, if they are not registered already.
+     *
+     * @return The name they are registered under
+     * @throws IllegalStateException if they cannot be registered
+     */
+    public static ObjectName registerMBean() {
+        try {
+            var name = new ObjectName(OBJECT_NAME);
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(DEFAULT, name);
+            } catch (InstanceAlreadyExistsException e) {
+                // Registered before
+            }
+            return name;
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register kitchen metrics", e);
+        }
+    }
+
+    /**
+     * @return The start time of an operation to pass to {@link #record(KitchenOperation, long)}
+     */
+    static long start() {
+        return enabled ? System.nanoTime() : OFF;
+    }
+
+    /**
+     * Record an operation that started at `start`, unless timing was off when it started.
+     */
+    static void record(KitchenOperation operation, long start) {
+        if (start != OFF) {
+            DEFAULT.histograms[operation.ordinal()].record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        KitchenMetrics.enabled = enabled;
+    }
+
+    /**
+     * @param operation An operation
+     * @return The durations of the operation recorded so far
+     */
+    public LatencyHistogram getHistogram(KitchenOperation operation) {
+        return histograms[operation.ordinal()];
+    }
+
+    @Override
+    public List<OperationStatistics> getOperations() {
+        var result = new ArrayList<OperationStatistics>();
+        for (var operation : OPERATIONS) {
+            var h = getHistogram(operation);
+            result.add(new OperationStatistics(operation.name(), h.getCount(), h.getMeanNanos(),
+                    h.getQuantileNanos(0.5), h.getQuantileNanos(0.99), h.getMaxNanos()));
+        }
+        return result;
+    }
+
+    @Override
+    public void reset() {
+        for (var h : histograms) {
+            h.reset();
+        }
+    }
+
+    /**
+     * Reports the cost of timing canCreateRecipe, with timing off and on.
+     * @param args
+     */
+    public static void main(String[] args) {
+        var storage = new IngredientContainer();
+        storage.addIngredient("egg", 1e12);
+        storage.addIngredient("milk", 1e12);
+        var kitchen = new Kitchen(storage);
+        var recipe = new Recipe("Omelette", "Breakfast", 1, PersistentIngredients.empty().with("egg", 2).with("milk", 1));
+        var metrics = getDefault();
+
+        for (var run = 0; run < 5; run++) {
+            for (var on : new boolean[] { false, true }) {
+                metrics.setEnabled(on);
+                var start = System.nanoTime();
+                var n = 0;
+                for (var i = 0; i < 10_000_000; i++) {
+                    if (kitchen.canCreateRecipe(recipe)) {
+                        n++;
+                    }
+                }
+                System.out.printf("timing %s: %.1f ns per call (%d)%n", on ? "on" : "off", (System.nanoTime() - start) / 1e7, n);
+            }
+        }
+        System.out.println(metrics.getHistogram(KitchenOperation.CAN_CREATE_RECIPE).getCount() + " calls timed");
+        metrics.getOperations().forEach(System.out::println);
+    }
+}
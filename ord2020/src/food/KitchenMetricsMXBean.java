@@ -0,0 +1,29 @@
+package food;
+
+import java.util.List;
+
+/**
+ * The management interface of {@link KitchenMetrics}, e.g. for JConsole or VisualVM.
+ */
+public interface KitchenMetricsMXBean {
+
+    /**
+     * @return true if operations are being timed
+     */
+    public boolean isEnabled();
+
+    /**
+     * @param enabled true to start timing operations, false to stop
+     */
+    public void setEnabled(boolean enabled);
+
+    /**
+     * @return The statistics of every operation, in the order of {@link KitchenOperation}
+     */
+    public List<OperationStatistics> getOperations();
+
+    /**
+     * Forget the statistics recorded so far.
+     */
+    public void reset();
+}
@@ -0,0 +1,120 @@
+package food;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import javax.management.Attribute;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import org.junit.Test;
+
+public class KitchenMetricsTest {
+
+	private static Kitchen kitchen() {
+		IngredientContainer storage = new IngredientContainer();
+		storage.addIngredient("egg", 3);
+		IngredientContainer ingredients = new IngredientContainer();
+		ingredients.addIngredient("egg", 2);
+		return new Kitchen(storage, new Recipe("Omelette", "Breakfast", 1, ingredients));
+	}
+
+	@Test
+	public void testHistogram() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getQuantileNanos(0.5));
+		for (int i = 1; i <= 100; i++) {
+			histogram.record(i * 10);
+		}
+		histogram.record(1_000_000);
+		assertEquals(101, histogram.getCount());
+		assertEquals(1_000_000, histogram.getMaxNanos());
+		assertEquals((50500 + 1_000_000) / 101.0, histogram.getMeanNanos(), 0.001);
+		// 500 is in the bucket of 256..511
+		assertEquals(511, histogram.getQuantileNanos(0.5));
+		assertEquals(1023, histogram.getQuantileNanos(0.99));
+		assertEquals(1_000_000, histogram.getQuantileNanos(1));
+		try {
+			histogram.getQuantileNanos(1.5);
+			fail();
+		} catch (IllegalArgumentException e) {}
+
+		histogram.reset();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMaxNanos());
+	}
+
+	@Test
+	public void testOperationsAreCounted() throws IOException {
+		KitchenMetrics metrics = KitchenMetrics.getDefault();
+		boolean wasEnabled = metrics.isEnabled();
+		try {
+			Kitchen kitchen = kitchen();
+			Recipe omelette = kitchen.getRecipe("Omelette");
+			metrics.setEnabled(false);
+			metrics.reset();
+			kitchen.canCreateRecipe(omelette);
+			assertEquals(0, metrics.getHistogram(KitchenOperation.CAN_CREATE_RECIPE).getCount());
+
+			metrics.setEnabled(true);
+			assertTrue(kitchen.canCreateRecipe(omelette));
+			kitchen.createRecipe(omelette);
+			try {
+				kitchen.createRecipe(omelette);
+				fail();
+			} catch (IllegalArgumentException e) {}
+			kitchen.addRecipeToWeekly(omelette);
+			kitchen.getRecipesThatCanBeCreated();
+			new RecipeReader().readRecipes(new ByteArrayInputStream("header\n".getBytes()));
+
+			assertEquals(1, metrics.getHistogram(KitchenOperation.CAN_CREATE_RECIPE).getCount());
+			assertEquals(2, metrics.getHistogram(KitchenOperation.CREATE_RECIPE).getCount());
+			assertEquals(1, metrics.getHistogram(KitchenOperation.ADD_RECIPE_TO_WEEKLY).getCount());
+			assertEquals(1, metrics.getHistogram(KitchenOperation.GET_RECIPES_THAT_CAN_BE_CREATED).getCount());
+			assertEquals(1, metrics.getHistogram(KitchenOperation.READ_RECIPES).getCount());
+
+			List<OperationStatistics> operations = metrics.getOperations();
+			assertEquals(KitchenOperation.values().length, operations.size());
+			assertEquals("CREATE_RECIPE", operations.get(0).getOperation());
+			assertEquals(2, operations.get(0).getCount());
+			assertTrue(operations.get(0).getP50Nanos() <= operations.get(0).getMaxNanos());
+		} finally {
+			metrics.setEnabled(wasEnabled);
+			metrics.reset();
+		}
+	}
+
+	@Test
+	public void testMBean() throws JMException {
+		KitchenMetrics metrics = KitchenMetrics.getDefault();
+		boolean wasEnabled = metrics.isEnabled();
+		try {
+			ObjectName name = KitchenMetrics.registerMBean();
+			assertEquals(name, KitchenMetrics.registerMBean());
+			metrics.reset();
+
+			ManagementFactory.getPlatformMBeanServer().setAttribute(name, new Attribute("Enabled", true));
+			assertTrue(metrics.isEnabled());
+			Kitchen kitchen = kitchen();
+			kitchen.canCreateRecipe(kitchen.getRecipe("Omelette"));
+
+			CompositeData[] operations = (CompositeData[]) ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Operations");
+			assertEquals("CAN_CREATE_RECIPE", operations[1].get("operation"));
+			assertEquals(1L, operations[1].get("count"));
+
+			ManagementFactory.getPlatformMBeanServer().setAttribute(name, new Attribute("Enabled", false));
+			assertFalse(metrics.isEnabled());
+		} finally {
+			metrics.setEnabled(wasEnabled);
+			metrics.reset();
+		}
+	}
+}
@@ -7,4 +7,31 @@ public interface KitchenObserver {
     void weeklyRecipeRemoved(Recipe recipe);
 
     void weeklyRecipesRegistered(List<Recipe> recipes);
+
+    /**
+     * Called with the net effect of several additions and removals of weekly recipes, e.g. by
+     * {@link AsyncKitchenObserver}. A recipe added and then removed again is in neither list, while a recipe
+     * removed and then added again is in both.
+     * By default the removed recipes are passed to {@link #weeklyRecipeRemoved(Recipe)} and then the added
+     * ones to {@link #weeklyRecipeAdded(Recipe)}.
+     *
+     * @param added The recipes added, in the order they were added
+     * @param removed The recipes removed, in the order they were removed
+     */
+    default void weeklyRecipesChanged(List<Recipe> added, List<Recipe> removed) {
+        for (var recipe : removed) {
+            weeklyRecipeRemoved(recipe);
+        }
+        for (var recipe : added) {
+            weeklyRecipeAdded(recipe);
+        }
+    }
+
+    /**
+     * Called by {@link Kitchen#registerWeekly()} after {@link #weeklyRecipesRegistered(List)}.
+     *
+     * @param shoppingList The ingredients missing from the storage for the registered recipes
+     */
+    default void weeklyShoppingListRegistered(Ingredients shoppingList) {
+    }
 }
@@ -0,0 +1,31 @@
+package food;
+
+/**
+ * The operations timed by {@link KitchenMetrics}.
+ */
+public enum KitchenOperation {
+    /**
+     * {@link Kitchen#createRecipe(Recipe)}
+     */
+    CREATE_RECIPE,
+
+    /**
+     * {@link Kitchen#canCreateRecipe(Recipe)}
+     */
+    CAN_CREATE_RECIPE,
+
+    /**
+     * {@link Kitchen#getRecipesThatCanBeCreated()} and its parallel variant
+     */
+    GET_RECIPES_THAT_CAN_BE_CREATED,
+
+    /**
+     * {@link Kitchen#addRecipeToWeekly(Recipe)}
+     */
+    ADD_RECIPE_TO_WEEKLY,
+
+    /**
+     * The methods of {@link RecipeReader} reading all recipes of a stream or file
+     */
+    READ_RECIPES
+}
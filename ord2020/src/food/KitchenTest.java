@@ -5,10 +5,13 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -115,4 +118,228 @@ public class KitchenTest {
 		Collection<Recipe> actualFiltered = kitchen.getRecipiesContainingIngredient("food4");
 		IngredientContainerTest.assertCollectionsContainTheSame(expectedFiltered, actualFiltered);
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testRecipesThatCanBeCreatedFollowStorage() {
+		assertTrue(kitchen.getRecipesThatCanBeCreated().isEmpty());
+
+		fillKitchen();
+		IngredientContainerTest.assertCollectionsContainTheSame(Set.of(recipes.get(0)), kitchen.getRecipesThatCanBeCreated());
+
+		kitchen.getStorage().addIngredient("food4", 4.9);
+		IngredientContainerTest.assertCollectionsContainTheSame(Set.of(recipes.get(0), recipes.get(1)), kitchen.getRecipesThatCanBeCreated());
+
+		// Recipe0 uses all of food2, which Recipe1 also needs
+		kitchen.createRecipe(recipes.get(0));
+		assertTrue(kitchen.getRecipesThatCanBeCreated().isEmpty());
+
+		kitchen.getStorage().addIngredient("food2", 5.0);
+		IngredientContainerTest.assertCollectionsContainTheSame(Set.of(recipes.get(1)), kitchen.getRecipesThatCanBeCreated());
+
+		kitchen.getStorage().removeIngredient("food5", 3.5);
+		assertTrue(kitchen.getRecipesThatCanBeCreated().isEmpty());
+	}
+
+	@Test
+	public void testGetRecipesContainingAllAndAny() {
+		IngredientContainerTest.assertCollectionsContainTheSame(List.of(recipes.get(1)), kitchen.getRecipesContainingAllIngredients("food2", "food4"));
+		IngredientContainerTest.assertCollectionsContainTheSame(recipes, kitchen.getRecipesContainingAllIngredients("food2"));
+		assertTrue(kitchen.getRecipesContainingAllIngredients("food1", "food4").isEmpty());
+		assertTrue(kitchen.getRecipesContainingAllIngredients("food1", "food6").isEmpty());
+
+		IngredientContainerTest.assertCollectionsContainTheSame(recipes, kitchen.getRecipesContainingAnyIngredient("food1", "food4", "food6"));
+		assertEquals(2, kitchen.getRecipesContainingAnyIngredient("food1", "food2", "food4").size());
+		assertTrue(kitchen.getRecipesContainingAnyIngredient("food6").isEmpty());
+	}
+
+	@Test
+	public void testAddRecipe() {
+		Recipe recipe = new Recipe("Recipe2", "Dinner", 2, createIG(Map.of("food1", 1.0, "food6", 1.0)));
+		kitchen.addRecipe(recipe);
+
+		assertEquals(recipe, kitchen.getRecipe("Recipe2"));
+		assertEquals(3, kitchen.getAllRecipes().size());
+		IngredientContainerTest.assertCollectionsContainTheSame(List.of(recipe), kitchen.getRecipiesContainingIngredient("food6"));
+
+		kitchen.getStorage().addIngredient("food1", 1.0);
+		kitchen.getStorage().addIngredient("food6", 1.0);
+		IngredientContainerTest.assertCollectionsContainTheSame(List.of(recipe), kitchen.getRecipesThatCanBeCreated());
+	}
+
+	@Test
+	public void testParallelQueries() {
+		fillKitchen();
+		kitchen.setParallelThreshold(1);
+		ForkJoinPool pool = new ForkJoinPool(2);
+
+		assertEquals(List.of(recipes.get(0)), kitchen.filterRecipes(r -> r.getName().equals("Recipe0"), pool));
+		assertEquals(List.of(recipes.get(0)), kitchen.getRecipesThatCanBeCreated(pool));
+		assertEquals(List.of(recipes.get(1)), kitchen.getRecipiesContainingIngredient("food4", pool));
+		assertEquals(recipes, kitchen.getRecipiesContainingIngredient("food2", pool));
+		pool.shutdown();
+	}
+
+	@Test
+	public void testParallelFeasibilityPrefilter() {
+		// Enough ingredients for the bitsets to span several words
+		Random random = new Random(7);
+		IngredientContainer storage = new IngredientContainer();
+		storage.addIngredient("ingredient3", 5);
+		kitchen = new Kitchen(storage);
+		kitchen.setParallelThreshold(8);
+		List<Recipe> catalog = new ArrayList<>();
+		for (int r = 0; r < 300; r++) {
+			IngredientContainer ingredients = new IngredientContainer();
+			for (int i = 0; i < 3; i++) {
+				ingredients.addIngredient("ingredient" + random.nextInt(200), 1 + random.nextInt(3));
+			}
+			catalog.add(new Recipe("Recipe" + r, "Dinner", 2, ingredients));
+		}
+		kitchen.addRecipes(catalog);
+
+		ForkJoinPool pool = new ForkJoinPool(2);
+		for (int step = 0; step < 400; step++) {
+			String ingredient = "ingredient" + random.nextInt(200);
+			if (random.nextInt(3) == 0 && storage.getIngredientAmount(ingredient) > 0) {
+				storage.removeIngredient(ingredient, storage.getIngredientAmount(ingredient));
+			} else {
+				storage.addIngredient(ingredient, 1 + random.nextInt(3));
+			}
+			if (step % 20 == 0) {
+				assertEquals(kitchen.filterRecipes(kitchen::canCreateRecipe), kitchen.getRecipesThatCanBeCreated(pool));
+			}
+		}
+
+		// Amounts are compared with the recipes' current ones
+		Recipe recipe = kitchen.getRecipesThatCanBeCreated(pool).iterator().next();
+		String ingredient = recipe.getIngredients().getIngredientNames().iterator().next();
+		((IngredientContainer) recipe.getIngredients()).addIngredient(ingredient, 1000);
+		assertFalse(kitchen.getRecipesThatCanBeCreated(pool).contains(recipe));
+		pool.shutdown();
+	}
+
+	@Test
+	public void testFeasibilityPrefilterIgnoresZeroAmounts() {
+		kitchen.setParallelThreshold(1);
+		kitchen.addRecipe(recipes.get(0).createNPortions(0));
+		kitchen.getStorage().addIngredient("food1", 1.0);
+
+		ForkJoinPool pool = new ForkJoinPool(2);
+		try {
+			assertEquals(1, kitchen.filterRecipes(kitchen::canCreateRecipe).size());
+			assertEquals(1, kitchen.getRecipesThatCanBeCreated().size());
+			assertEquals(kitchen.filterRecipes(kitchen::canCreateRecipe), kitchen.getRecipesThatCanBeCreated(pool));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testWeeklyShoppingList() {
+		fillKitchen();
+		kitchen.addRecipeToWeekly(recipes.get(0));
+		kitchen.addRecipeToWeekly(recipes.get(1));
+		kitchen.addRecipeToWeekly(recipes.get(1));
+
+		assertEquals(41.0, kitchen.getWeeklyDemand().getIngredientAmount("food2"), EPSILON);
+		Ingredients shoppingList = kitchen.getWeeklyShoppingList();
+		assertEquals(10.0, shoppingList.getIngredientAmount("food2"), EPSILON);
+		assertEquals(44.9, shoppingList.getIngredientAmount("food4"), EPSILON);
+		assertEquals(0.0, shoppingList.getIngredientAmount("food1"), EPSILON);
+
+		kitchen.removeRecipeFromWeekly(recipes.get(1));
+		kitchen.removeRecipeFromWeekly(recipes.get(1));
+		assertEquals(Set.of("food1", "food2", "food3"), Set.copyOf(kitchen.getWeeklyDemand().getIngredientNames()));
+		assertTrue(kitchen.getWeeklyShoppingList().getIngredientNames().isEmpty());
+
+		kitchen.clearWeekly();
+		assertTrue(kitchen.getWeeklyDemand().getIngredientNames().isEmpty());
+	}
+
+	@Test
+	public void testWeeklyRecipeWithoutPortions() {
+		Recipe none = recipes.get(0).createNPortions(0);
+		kitchen.addRecipeToWeekly(recipes.get(0));
+		kitchen.addRecipeToWeekly(none);
+		assertEquals(2, kitchen.getWeeklyRecipes().size());
+		assertEquals(10.0, kitchen.getWeeklyDemand().getIngredientAmount("food1"), EPSILON);
+
+		kitchen.removeRecipeFromWeekly(none);
+		assertEquals(Set.of("food1", "food2", "food3"), Set.copyOf(kitchen.getWeeklyDemand().getIngredientNames()));
+		assertEquals(10.0, kitchen.getWeeklyDemand().getIngredientAmount("food1"), EPSILON);
+
+		kitchen.removeRecipeFromWeekly(recipes.get(0));
+		assertTrue(kitchen.getWeeklyDemand().getIngredientNames().isEmpty());
+	}
+
+	@Test
+	public void testCreateRecipes() {
+		fillKitchen();
+		kitchen.getStorage().addIngredient("food2", 10.0);
+
+		try {
+			kitchen.createRecipes(List.of(recipes.get(0), recipes.get(1)));
+			fail("Expected InsufficientIngredientsException");
+		} catch (InsufficientIngredientsException e) {
+			assertEquals(Set.of("food4"), Set.copyOf(e.getMissingIngredients().getIngredientNames()));
+			assertEquals(4.9, e.getMissingIngredients().getIngredientAmount("food4"), EPSILON);
+		}
+		// Nothing was removed
+		assertEquals(41.0, kitchen.getStorage().getIngredientAmount("food2"), EPSILON);
+
+		kitchen.getStorage().addIngredient("food4", 4.9);
+		kitchen.createRecipes(List.of(recipes.get(0), recipes.get(1)));
+		assertEquals(5.0, kitchen.getStorage().getIngredientAmount("food1"), EPSILON);
+		assertEquals(5.0, kitchen.getStorage().getIngredientAmount("food2"), EPSILON);
+		assertEquals(0.0, kitchen.getStorage().getIngredientAmount("food4"), EPSILON);
+	}
+
+	@Test
+	public void testCreateRecipesKeepsOtherFailures() {
+		IllegalArgumentException failure = new IllegalArgumentException("Storage is closed");
+		IngredientContainer storage = new IngredientContainer() {
+			@Override
+			public void removeIngredients(Ingredients ingredients) {
+				throw failure;
+			}
+		};
+		storage.addIngredient("food1", 10.0);
+		storage.addIngredient("food2", 31.0);
+		storage.addIngredient("food3", 1.0);
+		kitchen = new Kitchen(storage, recipes.toArray(new Recipe[recipes.size()]));
+
+		try {
+			kitchen.createRecipes(List.of(recipes.get(0)));
+			fail("Expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			assertFalse(e instanceof InsufficientIngredientsException);
+			assertTrue(e == failure);
+		}
+		try {
+			kitchen.createRecipes(List.of(recipes.get(1)));
+			fail("Expected InsufficientIngredientsException");
+		} catch (InsufficientIngredientsException e) {
+			assertTrue(e.getCause() == failure);
+			assertEquals(Set.of("food4", "food5"), Set.copyOf(e.getMissingIngredients().getIngredientNames()));
+		}
+	}
+
+	@Test
+	public void testGetClosestRecipes() {
+		Recipe recipe2 = new Recipe("Recipe2", "Dinner", 2, createIG(Map.of("food1", 100.0)));
+		Recipe recipe3 = new Recipe("Recipe3", "Dinner", 2, createIG(Map.of("food6", 1.0, "food7", 1.0)));
+		kitchen.addRecipe(recipe2);
+		kitchen.addRecipe(recipe3);
+		fillKitchen();
+
+		// Missing: Recipe0 nothing, Recipe1 food4 (4.9), Recipe2 food1 (85), Recipe3 food6 and food7 (2)
+		assertEquals(List.of(recipes.get(0), recipes.get(1)), kitchen.getClosestRecipes(2, MissingMeasure.INGREDIENT_COUNT));
+		assertEquals(List.of(recipes.get(0), recipes.get(1), recipe2, recipe3), kitchen.getClosestRecipes(10, MissingMeasure.INGREDIENT_COUNT));
+		assertEquals(List.of(recipes.get(0), recipe3, recipes.get(1)), kitchen.getClosestRecipes(3, MissingMeasure.TOTAL_AMOUNT));
+		assertEquals(List.of(recipes.get(0), recipe3, recipes.get(1), recipe2), kitchen.getClosestRecipes(4, MissingMeasure.TOTAL_AMOUNT));
+		assertTrue(kitchen.getClosestRecipes(0, MissingMeasure.TOTAL_AMOUNT).isEmpty());
+		assertEquals(4, kitchen.getClosestRecipes(Integer.MAX_VALUE, MissingMeasure.TOTAL_AMOUNT).size());
+		assertEquals(4, kitchen.getClosestRecipes(Integer.MAX_VALUE, MissingMeasure.INGREDIENT_COUNT).size());
+		assertTrue(new Kitchen().getClosestRecipes(Integer.MAX_VALUE, MissingMeasure.TOTAL_AMOUNT).isEmpty());
+	}
+}
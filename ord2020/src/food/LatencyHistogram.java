@@ -0,0 +1,117 @@
+package food;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe histogram of durations, with a bucket per power of two nanoseconds. Recording increments
+ * striped counters, so it does not allocate and threads recording at once rarely contend.
+ * Quantiles are therefore only known to within a factor of two, and are reported as the bucket's upper bound.
+ */
+public class LatencyHistogram {
+
+    private static final int BUCKETS = Long.SIZE;
+
+    private final LongAdder[] buckets;
+    private final LongAdder count;
+    private final LongAdder totalNanos;
+    private final LongAccumulator maxNanos;
+
+    /**
+     * Initializes an empty histogram.
+     */
+    public LatencyHistogram() {
+        buckets = new LongAdder[BUCKETS];
+        for (var i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+        count = new LongAdder();
+        totalNanos = new LongAdder();
+        maxNanos = new LongAccumulator(Math::max, 0);
+    }
+
+    /**
+     * @param nanos The duration to record, where a negative duration counts as 0
+     */
+    public void record(long nanos) {
+        nanos = Math.max(0, nanos);
+        buckets[Long.SIZE - Long.numberOfLeadingZeros(nanos)].increment();
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    /**
+     * @return The number of durations recorded
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return The sum of the durations recorded, in nanoseconds
+     */
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    /**
+     * @return The longest duration recorded, in nanoseconds
+     */
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * @return The average duration, in nanoseconds, or 0 if none were recorded
+     */
+    public double getMeanNanos() {
+        var n = getCount();
+        return n == 0 ? 0 : (double) getTotalNanos() / n;
+    }
+
+    /**
+     * @param quantile The quantile to estimate, between 0 and 1
+     * @return A duration that at least that fraction of the durations are shorter than or equal to,
+     * within a factor of two, or 0 if none were recorded
+     * @throws IllegalArgumentException if quantile is not between 0 and 1
+     */
+    public long getQuantileNanos(double quantile) {
+        if (!(quantile >= 0 && quantile <= 1)) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1");
+        }
+
+        var counts = new long[BUCKETS];
+        var n = 0L;
+        for (var i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            n += counts[i];
+        }
+        if (n == 0) {
+            return 0;
+        }
+
+        var rank = Math.max(1, (long) Math.ceil(quantile * n));
+        var seen = 0L;
+        for (var i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                // Bucket i holds the durations below 2^i, and the max is a tighter bound for the last one
+                return Math.min((1L << i) - 1, getMaxNanos());
+            }
+        }
+        return getMaxNanos();
+    }
+
+    /**
+     * Forget all recorded durations. Durations recorded during the reset may be partly forgotten.
+     */
+    public void reset() {
+        for (var bucket : buckets) {
+            bucket.reset();
+        }
+        count.reset();
+        totalNanos.reset();
+        maxNanos.reset();
+    }
+}
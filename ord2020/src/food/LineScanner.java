@@ -0,0 +1,127 @@
+package food;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Reads lines from a Reader into a reusable char buffer, without creating a String per line.
+ * Lines end with `\n`, `\r` or `\r\n`, like in {@link java.io.BufferedReader#readLine()}.
+ *
+ * After {@link #next()} returns true, the current line is `buffer()[start() .. end())`.
+ * The buffer only grows to fit the longest line.
+ */
+class LineScanner {
+
+    private static final int INITIAL_BUFFER_SIZE = 1 << 16;
+
+    private final Reader in;
+    private char[] buffer;
+    private int position;
+    private int limit;
+    private int start;
+    private int end;
+    private boolean skipLineFeed;
+    private boolean eof;
+
+    LineScanner(Reader in) {
+        this.in = in;
+        buffer = new char[INITIAL_BUFFER_SIZE];
+    }
+
+    /**
+     * Scans the lines of text that is already in memory, without copying it.
+     *
+     * @param chars The text
+     * @param length The number of chars of text
+     */
+    LineScanner(char[] chars, int length) {
+        in = null;
+        buffer = chars;
+        limit = length;
+        eof = true;
+    }
+
+    /**
+     * Advance to the next line.
+     *
+     * @return true if there is another line, false at the end of the input
+     * @throws IOException if the Reader throws IOException
+     */
+    boolean next() throws IOException {
+        var scan = position;
+        while (true) {
+            if (skipLineFeed) {
+                if (scan == limit && !eof) {
+                    fill();
+                    scan = position;
+                    continue;
+                }
+                if (scan < limit && buffer[scan] == '\n') {
+                    scan++;
+                    position = scan;
+                }
+                skipLineFeed = false;
+            }
+
+            while (scan < limit) {
+                var c = buffer[scan];
+                if (c == '\n' || c == '\r') {
+                    start = position;
+                    end = scan;
+                    position = scan + 1;
+                    skipLineFeed = c == '\r';
+                    return true;
+                }
+                scan++;
+            }
+
+            if (eof) {
+                if (position == limit) {
+                    return false;
+                }
+                start = position;
+                end = limit;
+                position = limit;
+                return true;
+            }
+
+            var scanned = scan - position;
+            fill();
+            scan = position + scanned;
+        }
+    }
+
+    char[] buffer() {
+        return buffer;
+    }
+
+    int start() {
+        return start;
+    }
+
+    int end() {
+        return end;
+    }
+
+    /**
+     * Moves the unread part of the buffer to the front, growing the buffer if it is full, and reads more input.
+     */
+    private void fill() throws IOException {
+        var remaining = limit - position;
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, remaining);
+        } else if (remaining == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        position = 0;
+        limit = remaining;
+
+        var n = in.read(buffer, limit, buffer.length - limit);
+        if (n < 0) {
+            eof = true;
+        } else {
+            limit += n;
+        }
+    }
+}
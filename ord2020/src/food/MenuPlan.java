@@ -0,0 +1,74 @@
+package food;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A weekly menu proposed by a {@link MenuPlanner}.
+ */
+public class MenuPlan {
+
+    private final List<Recipe> recipes;
+    private final long totalPortions;
+    private final double score;
+    private final double upperBound;
+    private final int rounds;
+    private final boolean deadlineReached;
+
+    MenuPlan(List<Recipe> recipes, long totalPortions, double score, double upperBound, int rounds, boolean deadlineReached) {
+        this.recipes = Collections.unmodifiableList(recipes);
+        this.totalPortions = totalPortions;
+        this.score = score;
+        this.upperBound = upperBound;
+        this.rounds = rounds;
+        this.deadlineReached = deadlineReached;
+    }
+
+    /**
+     * @return The recipes to cook, each scaled to the number of portions to cook of it
+     */
+    public List<Recipe> getRecipes() {
+        return recipes;
+    }
+
+    /**
+     * @return The number of portions of all the recipes
+     */
+    public long getTotalPortions() {
+        return totalPortions;
+    }
+
+    /**
+     * @return The score of the plan, which is the total portions unless a portion score was set
+     */
+    public double getScore() {
+        return score;
+    }
+
+    /**
+     * @return A score that no plan can exceed, so the plan is at most `upperBound - score` from the best one
+     */
+    public double getUpperBound() {
+        return upperBound;
+    }
+
+    /**
+     * @return The number of greedy rounds the planner ran
+     */
+    public int getRounds() {
+        return rounds;
+    }
+
+    /**
+     * @return true if the planner stopped because the time budget ran out
+     */
+    public boolean isDeadlineReached() {
+        return deadlineReached;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MenuPlan [recipes=%d, portions=%d, score=%.1f, upperBound=%.1f, rounds=%d, deadlineReached=%b]",
+                recipes.size(), totalPortions, score, upperBound, rounds, deadlineReached);
+    }
+}
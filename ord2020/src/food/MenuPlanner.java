@@ -0,0 +1,394 @@
+package food;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Proposes a weekly menu: how many portions to cook of which recipes, maximizing the total portions,
+ * or a score per portion, without using more ingredients than the storage has.
+ *
+ * Choosing portions is an integer program, so the planner runs a greedy heuristic guided by ingredient prices.
+ * It repeatedly adds portions of the recipe with the best score per priced ingredient use, and every addition
+ * makes the ingredients it uses more expensive, so scarce ingredients go to the recipes that need little of them.
+ * Each round raises prices at a different rate, and the best plan of all rounds is kept, so
+ * when the time budget runs out the planner returns the best plan so far.
+ *
+ * Every price vector also gives an upper bound on the score of any plan, by LP duality: when the prices are
+ * scaled so that no recipe's ingredients cost less than its score per portion, the storage's total cost
+ * bounds the score. The planner stops early when its best plan reaches the bound.
+ */
+public class MenuPlanner {
+
+    /**
+     * Relative slack for rounding errors, e.g. so that 10 portions of 1.0 fit in 10.0 after a division.
+     */
+    private static final double TOLERANCE = 1e-9;
+    private static final double CHUNK = 0.1;
+    private static final int DEADLINE_CHECK_INTERVAL = 256;
+    private static final int PRICE_STEPS = 7;
+
+    private final List<Recipe> recipes;
+    private final Ingredients storage;
+    private ToDoubleFunction<Recipe> portionScore;
+    private int maxRounds;
+
+    /**
+     * @param recipes The recipes to choose from
+     * @param storage The ingredients available
+     */
+    public MenuPlanner(Collection<Recipe> recipes, Ingredients storage) {
+        this.recipes = new ArrayList<>(recipes);
+        this.storage = storage;
+        portionScore = r -> 1;
+        maxRounds = 100;
+    }
+
+    /**
+     * Set the score of one portion of a recipe. By default every portion scores 1, so the total portions are maximized.
+     *
+     * @param portionScore The score of one portion of a recipe, where recipes scoring 0 or less are never chosen
+     */
+    public void setPortionScore(ToDoubleFunction<Recipe> portionScore) {
+        this.portionScore = portionScore;
+    }
+
+    /**
+     * @param maxRounds The largest number of rounds to run, if the time budget does not run out first
+     * @throws IllegalArgumentException if maxRounds is not positive
+     */
+    public void setMaxRounds(int maxRounds) {
+        if (maxRounds <= 0) {
+            throw new IllegalArgumentException("Rounds must be positive");
+        }
+        this.maxRounds = maxRounds;
+    }
+
+    /**
+     * Plan a menu within a time budget.
+     *
+     * @param timeBudget The time to spend at most, roughly
+     * @return The best plan found
+     */
+    public MenuPlan plan(Duration timeBudget) {
+        var deadline = System.nanoTime() + timeBudget.toNanos();
+        var problem = new Problem();
+        var n = problem.recipes.size();
+
+        var portions = new int[n];
+        var bestPortions = new int[n];
+        var bestScore = 0.0;
+        var rounds = 0;
+        var deadlineReached = false;
+
+        while (rounds < maxRounds && !deadlineReached && bestScore < problem.upperBound * (1 - TOLERANCE)) {
+            // Rounds raise prices at rates from 0.5 to 32, which spread the ingredients over more and more recipes,
+            // and later rounds also start from perturbed prices
+            var priceStep = 0.5 * (1 << (rounds % PRICE_STEPS));
+            var prices = problem.initialPrices(rounds < PRICE_STEPS ? null : new Random(rounds));
+
+            var score = problem.greedy(prices, priceStep, portions, deadline);
+            rounds++;
+
+            if (score > bestScore) {
+                bestScore = score;
+                System.arraycopy(portions, 0, bestPortions, 0, n);
+            }
+            deadlineReached = System.nanoTime() > deadline;
+        }
+
+        List<Recipe> plan;
+        while (true) {
+            plan = new ArrayList<>();
+            var demand = new IngredientContainer();
+            for (var r = 0; r < n; r++) {
+                if (bestPortions[r] > 0) {
+                    var recipe = problem.recipes.get(r).createNPortions(bestPortions[r]);
+                    plan.add(recipe);
+                    demand.addIngredients(recipe.getIngredients());
+                }
+            }
+
+            // The tolerance can let the scaled recipes add up to slightly more than the storage has
+            var overused = demand.missingIngredients(storage).getIngredientNames();
+            if (overused.isEmpty()) {
+                break;
+            }
+            var r = problem.largestUsing(overused.iterator().next(), bestPortions);
+            bestPortions[r]--;
+            bestScore -= problem.scores[r];
+        }
+
+        var totalPortions = 0L;
+        for (var p : bestPortions) {
+            totalPortions += p;
+        }
+        return new MenuPlan(plan, totalPortions, bestScore, Math.max(bestScore, problem.upperBound), rounds, deadlineReached);
+    }
+
+    /**
+     * The recipes and storage as arrays, with the ingredients numbered.
+     * Recipes that can never be cooked, or that score nothing, are left out.
+     */
+    private class Problem {
+        final List<Recipe> recipes = new ArrayList<>();
+        final double[] scores;
+        final int[][] ingredients;
+        final double[][] amountsPerPortion;
+        final double[] capacities;
+        final boolean[] referenced;
+        double upperBound = Double.POSITIVE_INFINITY;
+
+        Problem() {
+            var ids = new HashMap<String, Integer>();
+            var capacityList = new ArrayList<Double>();
+            var ingredientList = new ArrayList<int[]>();
+            var amountList = new ArrayList<double[]>();
+            var scoreList = new ArrayList<Double>();
+
+            candidates:
+            for (var recipe : MenuPlanner.this.recipes) {
+                var score = portionScore.applyAsDouble(recipe);
+                var ingredients = recipe.getIngredients();
+                var names = ingredients.getIngredientNames();
+                // A recipe without ingredients could be cooked without limit
+                if (score <= 0 || recipe.getNPortions() <= 0 || names.isEmpty()) {
+                    continue;
+                }
+
+                var recipeIngredients = new int[names.size()];
+                var perPortion = new double[names.size()];
+                var j = 0;
+                for (var name : names) {
+                    var amount = ingredients.getIngredientAmount(name);
+                    var capacity = storage.getIngredientAmount(name);
+                    if (capacity * (1 + TOLERANCE) < amount / recipe.getNPortions()) {
+                        continue candidates;
+                    }
+                    var id = ids.get(name);
+                    if (id == null) {
+                        id = capacityList.size();
+                        ids.put(name, id);
+                        capacityList.add(capacity);
+                    }
+                    recipeIngredients[j] = id;
+                    perPortion[j] = amount;
+                    j++;
+                }
+
+                recipes.add(recipe);
+                scoreList.add(score);
+                ingredientList.add(recipeIngredients);
+                amountList.add(perPortion);
+            }
+
+            scores = scoreList.stream().mapToDouble(Double::doubleValue).toArray();
+            ingredients = ingredientList.toArray(new int[0][]);
+            amountsPerPortion = amountList.toArray(new double[0][]);
+            capacities = capacityList.stream().mapToDouble(Double::doubleValue).toArray();
+            referenced = new boolean[capacities.length];
+            for (var r = 0; r < recipes.size(); r++) {
+                var nPortions = recipes.get(r).getNPortions();
+                for (var j = 0; j < amountsPerPortion[r].length; j++) {
+                    amountsPerPortion[r][j] /= nPortions;
+                    referenced[ingredients[r][j]] = true;
+                }
+            }
+        }
+
+        /**
+         * @return The score per portion of recipe r, divided by what a portion's ingredients cost
+         */
+        double value(int r, double[] prices) {
+            var cost = 0.0;
+            for (var j = 0; j < ingredients[r].length; j++) {
+                cost += amountsPerPortion[r][j] * prices[ingredients[r][j]];
+            }
+            return scores[r] / cost;
+        }
+
+        /**
+         * @return The recipe using the ingredient with the most portions
+         */
+        int largestUsing(String ingredient, int[] portions) {
+            var largest = -1;
+            for (var r = 0; r < recipes.size(); r++) {
+                if (portions[r] > 0 && (largest < 0 || portions[r] > portions[largest])
+                        && recipes.get(r).getIngredients().getIngredientNames().contains(ingredient)) {
+                    largest = r;
+                }
+            }
+            return largest;
+        }
+
+        /**
+         * @param random Perturbs the prices if not null
+         * @return Prices making the whole capacity of every ingredient cost about the same
+         */
+        double[] initialPrices(Random random) {
+            var prices = new double[capacities.length];
+            for (var i = 0; i < prices.length; i++) {
+                prices[i] = 1 / capacities[i];
+                if (random != null) {
+                    prices[i] *= Math.exp(random.nextDouble() - 0.5);
+                }
+            }
+            return prices;
+        }
+
+        /**
+         * Repeatedly adds portions of the recipe with the best value at the current prices, raising the prices
+         * of the ingredients each addition uses, until no recipe fits in what is left of the storage.
+         * Prices only go up, so a recipe's value only goes down, and the recipes are kept in a heap on a
+         * value that is recomputed only when the recipe gets to the top.
+         *
+         * @param prices The ingredient prices, which are updated
+         * @param priceStep How much the price of an ingredient grows when its whole capacity is used
+         * @param portions Gets the portions of each recipe
+         * @param deadline When to stop with the portions added so far
+         * @return The score of the portions
+         */
+        double greedy(double[] prices, double priceStep, int[] portions, long deadline) {
+            Arrays.fill(portions, 0);
+            var used = new double[capacities.length];
+            var heap = new PriorityQueue<Long>(Comparator.reverseOrder());
+            for (var r = 0; r < recipes.size(); r++) {
+                heap.add(key(value(r, prices), r));
+            }
+
+            var score = 0.0;
+            var steps = 0;
+            var boundInterval = Math.max(DEADLINE_CHECK_INTERVAL, recipes.size());
+            updateUpperBound(prices);
+            while (!heap.isEmpty()) {
+                steps++;
+                if (steps % boundInterval == 0) {
+                    updateUpperBound(prices);
+                }
+                if (steps % DEADLINE_CHECK_INTERVAL == 0 && System.nanoTime() > deadline) {
+                    return score + fillRemaining(heap, portions, used);
+                }
+
+                var r = (int) heap.poll().longValue();
+                var value = value(r, prices);
+                if (!heap.isEmpty() && key(value, r) < heap.peek()) {
+                    heap.add(key(value, r));
+                    continue;
+                }
+
+                var fits = fits(r, used);
+                if (fits < 1) {
+                    continue;
+                }
+
+                // Add a part of what fits, so the prices can react before the recipe takes everything
+                var add = (int) Math.min(Math.ceil(fits * CHUNK), Integer.MAX_VALUE - portions[r]);
+                portions[r] += add;
+                score += add * scores[r];
+                for (var j = 0; j < ingredients[r].length; j++) {
+                    var i = ingredients[r][j];
+                    var amount = add * amountsPerPortion[r][j];
+                    used[i] += amount;
+                    prices[i] *= Math.exp(priceStep * amount / capacities[i]);
+                }
+                heap.add(key(value(r, prices), r));
+            }
+            updateUpperBound(prices);
+            return score;
+        }
+
+        /**
+         * Gives the recipes left in the heap, in heap order, as many portions as still fit without updating prices.
+         *
+         * @return The score of the added portions
+         */
+        private double fillRemaining(PriorityQueue<Long> heap, int[] portions, double[] used) {
+            var score = 0.0;
+            while (!heap.isEmpty()) {
+                var r = (int) heap.poll().longValue();
+                var fits = fits(r, used);
+                if (fits >= 1) {
+                    var add = (int) Math.min(fits, Integer.MAX_VALUE - portions[r]);
+                    portions[r] += add;
+                    score += add * scores[r];
+                    for (var j = 0; j < ingredients[r].length; j++) {
+                        used[ingredients[r][j]] += add * amountsPerPortion[r][j];
+                    }
+                }
+            }
+            return score;
+        }
+
+        /**
+         * @return The number of whole portions of recipe r that fit in what is left of the storage
+         */
+        private double fits(int r, double[] used) {
+            var fits = Double.POSITIVE_INFINITY;
+            for (var j = 0; j < ingredients[r].length; j++) {
+                var i = ingredients[r][j];
+                fits = Math.min(fits, Math.floor((capacities[i] - used[i]) / amountsPerPortion[r][j] + TOLERANCE));
+            }
+            return fits;
+        }
+
+        /**
+         * @return A heap key ordering positive values by their float bits, with ties broken by recipe
+         */
+        private long key(double value, int r) {
+            return ((long) Float.floatToIntBits((float) value) << 32) | r;
+        }
+
+        /**
+         * Scales the prices so every recipe's ingredients cost at least its score, which makes them a feasible
+         * solution of the dual of the LP relaxation. The cost of the whole storage then bounds the score of any plan.
+         */
+        void updateUpperBound(double[] prices) {
+            var scale = 0.0;
+            for (var r = 0; r < recipes.size(); r++) {
+                scale = Math.max(scale, value(r, prices));
+            }
+
+            var storageCost = 0.0;
+            for (var i = 0; i < capacities.length; i++) {
+                // Ingredients only used by recipes that were left out are free in the dual
+                if (referenced[i]) {
+                    storageCost += capacities[i] * prices[i];
+                }
+            }
+            upperBound = Math.min(upperBound, scale * storageCost * (1 + TOLERANCE));
+        }
+    }
+
+    /**
+     * Plans a menu for a synthetic catalog, reporting the score against the upper bound for a few time budgets.
+     * @param args
+     */
+    public static void main(String[] args) {
+        var random = new Random(42);
+        var recipes = new ArrayList<Recipe>();
+        for (var r = 0; r < 5000; r++) {
+            var ig = new IngredientContainer();
+            for (var i = 0; i < 8; i++) {
+                ig.addIngredient("ingredient" + random.nextInt(2000), 1 + random.nextInt(100));
+            }
+            recipes.add(new Recipe("recipe" + r, "Dinner", 1 + random.nextInt(8), ig));
+        }
+        var storage = new IngredientContainer();
+        for (var i = 0; i < 2000; i++) {
+            storage.addIngredient("ingredient" + i, 100 + random.nextInt(2000));
+        }
+
+        var planner = new MenuPlanner(recipes, storage);
+        planner.setMaxRounds(Integer.MAX_VALUE);
+        for (var ms : new int[] { 1, 10, 100, 1000 }) {
+            System.out.println(ms + " ms: " + planner.plan(Duration.ofMillis(ms)));
+        }
+    }
+}
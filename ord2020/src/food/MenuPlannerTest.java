@@ -0,0 +1,80 @@
+package food;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class MenuPlannerTest {
+
+	private IngredientContainer createIG(Map<String, Double> ingredients) {
+		IngredientContainer ig = new IngredientContainer();
+		for (String i : ingredients.keySet()) {
+			ig.addIngredient(i, ingredients.get(i));
+		}
+		return ig;
+	}
+
+	@Test
+	public void testPrefersRecipesUsingLessOfScarceIngredients() {
+		// 2 eggs per portion, or 1 egg and 1 milk per portion
+		Recipe omelette = new Recipe("Omelette", "Breakfast", 1, createIG(Map.of("egg", 2.0)));
+		Recipe pancakes = new Recipe("Pancakes", "Dessert", 2, createIG(Map.of("egg", 2.0, "milk", 2.0)));
+		Recipe cake = new Recipe("Cake", "Dessert", 1, createIG(Map.of("flour", 1.0)));
+		Kitchen kitchen = new Kitchen(omelette, pancakes, cake);
+		kitchen.getStorage().addIngredient("egg", 10);
+		kitchen.getStorage().addIngredient("milk", 10);
+
+		MenuPlan plan = kitchen.planWeeklyMenu(Duration.ofSeconds(1));
+		assertEquals(10, plan.getTotalPortions());
+		assertEquals(1, plan.getRecipes().size());
+		assertEquals("Pancakes", plan.getRecipes().get(0).getName());
+		assertEquals(10, plan.getRecipes().get(0).getNPortions());
+		assertTrue(plan.getUpperBound() >= plan.getScore());
+
+		kitchen.createRecipes(plan.getRecipes());
+		assertEquals(0.0, kitchen.getStorage().getIngredientAmount("egg"), 0.0001);
+	}
+
+	@Test
+	public void testPortionScore() {
+		Recipe omelette = new Recipe("Omelette", "Breakfast", 1, createIG(Map.of("egg", 2.0)));
+		Recipe pancakes = new Recipe("Pancakes", "Dessert", 1, createIG(Map.of("egg", 1.0, "milk", 1.0)));
+		IngredientContainer storage = createIG(Map.of("egg", 10.0, "milk", 10.0));
+
+		MenuPlanner planner = new MenuPlanner(List.of(omelette, pancakes), storage);
+		planner.setPortionScore(r -> r == omelette ? 3 : 1);
+		MenuPlan plan = planner.plan(Duration.ofSeconds(1));
+		assertEquals(15.0, plan.getScore(), 0.0001);
+		assertEquals("Omelette", plan.getRecipes().get(0).getName());
+	}
+
+	@Test
+	public void testPlanFitsStorageWhenDeadlineIsReached() {
+		Random random = new Random(1);
+		List<Recipe> recipes = new ArrayList<>();
+		for (int r = 0; r < 2000; r++) {
+			IngredientContainer ig = new IngredientContainer();
+			for (int i = 0; i < 5; i++) {
+				ig.addIngredient("ingredient" + random.nextInt(300), 0.1 + random.nextInt(50));
+			}
+			recipes.add(new Recipe("recipe" + r, "Dinner", 1 + random.nextInt(6), ig));
+		}
+		Kitchen kitchen = new Kitchen(recipes.toArray(new Recipe[0]));
+		for (int i = 0; i < 300; i++) {
+			kitchen.getStorage().addIngredient("ingredient" + i, 50 + random.nextInt(500));
+		}
+
+		MenuPlan plan = kitchen.planWeeklyMenu(Duration.ZERO);
+		assertTrue(plan.isDeadlineReached());
+		assertTrue(plan.getTotalPortions() > 0);
+		assertTrue(plan.getUpperBound() >= plan.getScore());
+		kitchen.createRecipes(plan.getRecipes());
+	}
+}
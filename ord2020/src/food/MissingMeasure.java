@@ -0,0 +1,16 @@
+package food;
+
+/**
+ * How far a recipe is from being makeable with the ingredients in a storage.
+ */
+public enum MissingMeasure {
+    /**
+     * The number of ingredients the storage does not have enough of.
+     */
+    INGREDIENT_COUNT,
+
+    /**
+     * The sum of the amounts missing of each ingredient.
+     */
+    TOTAL_AMOUNT
+}
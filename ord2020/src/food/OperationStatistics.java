@@ -0,0 +1,74 @@
+package food;
+
+import javax.management.ConstructorParameters;
+
+/**
+ * The statistics of one {@link KitchenOperation} at one point in time.
+ */
+public class OperationStatistics {
+
+    private final String operation;
+    private final long count;
+    private final double meanNanos;
+    private final long p50Nanos;
+    private final long p99Nanos;
+    private final long maxNanos;
+
+    @ConstructorParameters({ "operation", "count", "meanNanos", "p50Nanos", "p99Nanos", "maxNanos" })
+    public OperationStatistics(String operation, long count, double meanNanos, long p50Nanos, long p99Nanos, long maxNanos) {
+        this.operation = operation;
+        this.count = count;
+        this.meanNanos = meanNanos;
+        this.p50Nanos = p50Nanos;
+        this.p99Nanos = p99Nanos;
+        this.maxNanos = maxNanos;
+    }
+
+    /**
+     * @return The name of the operation
+     */
+    public String getOperation() {
+        return operation;
+    }
+
+    /**
+     * @return The number of times the operation ran while timing was enabled
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return The average duration, in nanoseconds
+     */
+    public double getMeanNanos() {
+        return meanNanos;
+    }
+
+    /**
+     * @return The median duration, in nanoseconds, within a factor of two
+     */
+    public long getP50Nanos() {
+        return p50Nanos;
+    }
+
+    /**
+     * @return The 99th percentile duration, in nanoseconds, within a factor of two
+     */
+    public long getP99Nanos() {
+        return p99Nanos;
+    }
+
+    /**
+     * @return The longest duration, in nanoseconds
+     */
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d calls, mean %.0f ns, p50 %d ns, p99 %d ns, max %d ns",
+                operation, count, meanNanos, p50Nanos, p99Nanos, maxNanos);
+    }
+}
@@ -0,0 +1,125 @@
+package food;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * Fork-join task filtering a range of a recipe list. The range is split in halves until it is
+ * below a threshold, and the halves' results are concatenated in list order, so the result is the
+ * same as a sequential filter regardless of the number of threads.
+ */
+class ParallelRecipeFilter extends RecursiveTask<List<Recipe>> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<Recipe> recipes;
+    private final IntPredicate predicate;
+    private final int from;
+    private final int to;
+    private final int threshold;
+
+    ParallelRecipeFilter(List<Recipe> recipes, IntPredicate predicate, int from, int to, int threshold) {
+        this.recipes = recipes;
+        this.predicate = predicate;
+        this.from = from;
+        this.to = to;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Filters the recipes in the given pool, or on the calling thread if there are fewer than `threshold` recipes.
+     *
+     * @param recipes The recipes to filter, which must support fast random access
+     * @param predicate The predicate to filter on, which must be safe to call from several threads
+     * @param pool The pool to run in
+     * @param threshold The smallest number of recipes that is split further
+     * @return The recipes matching the predicate, in list order
+     */
+    static List<Recipe> filter(List<Recipe> recipes, Predicate<Recipe> predicate, ForkJoinPool pool, int threshold) {
+        return filterIndexed(recipes, i -> predicate.test(recipes.get(i)), pool, threshold);
+    }
+
+    /**
+     * Like {@link #filter(List, Predicate, ForkJoinPool, int)}, with a predicate on the recipes' positions in the list.
+     */
+    static List<Recipe> filterIndexed(List<Recipe> recipes, IntPredicate predicate, ForkJoinPool pool, int threshold) {
+        var task = new ParallelRecipeFilter(recipes, predicate, 0, recipes.size(), Math.max(1, threshold));
+        if (recipes.size() < threshold) {
+            return task.compute();
+        }
+        return pool.invoke(task);
+    }
+
+    @Override
+    protected List<Recipe> compute() {
+        if (to - from <= threshold) {
+            var result = new ArrayList<Recipe>();
+            for (var i = from; i < to; i++) {
+                if (predicate.test(i)) {
+                    result.add(recipes.get(i));
+                }
+            }
+            return result;
+        }
+
+        var middle = (from + to) >>> 1;
+        var left = new ParallelRecipeFilter(recipes, predicate, from, middle, threshold);
+        var right = new ParallelRecipeFilter(recipes, predicate, middle, to, threshold);
+        left.fork();
+        var rightResult = right.compute();
+        var result = left.join();
+        result.addAll(rightResult);
+        return result;
+    }
+
+    /**
+     * Reports the speedup of the parallel kitchen queries, which also prefilter on ingredient bitsets,
+     * over the sequential scan comparing all amounts, at each core count.
+     * @param args
+     */
+    public static void main(String[] args) {
+        var random = new Random(42);
+        var recipes = new Recipe[200_000];
+        for (var r = 0; r < recipes.length; r++) {
+            var ig = new IngredientContainer();
+            for (var i = 0; i < 10; i++) {
+                ig.addIngredient("ingredient" + random.nextInt(5000), 1 + random.nextInt(10));
+            }
+            recipes[r] = new Recipe("recipe" + r, "category" + r % 20, 4, ig);
+        }
+
+        var kitchen = new Kitchen(recipes);
+        for (var i = 0; i < 5000; i += 2) {
+            kitchen.getStorage().addIngredient("ingredient" + i, 100);
+        }
+        var recipeList = List.of(recipes);
+
+        var sequential = time(() -> ParallelRecipeFilter.filter(recipeList, kitchen::canCreateRecipe, null, Integer.MAX_VALUE));
+        System.out.printf("sequential: %.1f ms%n", sequential / 1e6);
+        System.out.println("cores\tms\tspeedup");
+        for (var cores = 1; cores <= Runtime.getRuntime().availableProcessors(); cores *= 2) {
+            var pool = new ForkJoinPool(cores);
+            var parallel = time(() -> kitchen.getRecipesThatCanBeCreated(pool));
+            System.out.printf("%d\t%.1f\t%.2f%n", cores, parallel / 1e6, (double) sequential / parallel);
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * @return The best of a few runs, in nanoseconds
+     */
+    private static long time(Runnable query) {
+        var best = Long.MAX_VALUE;
+        for (var run = 0; run < 7; run++) {
+            var start = System.nanoTime();
+            query.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+}
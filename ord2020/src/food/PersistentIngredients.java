@@ -0,0 +1,472 @@
+package food;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable ingredients stored in a hash array mapped trie. Every change gives a new instance that shares
+ * all of the trie with the old one except the path to the changed ingredient, so a change costs O(log n)
+ * and old versions stay valid. That makes the instances safe to read from any thread without locking,
+ * e.g. as the snapshots published by a {@link SnapshotIngredientContainer}.
+ *
+ * The trie branches on 5 bits of the names' hash codes per level. A trie node has a bitmap of the branches
+ * in use and an array of just those, each either an ingredient or a node one level down. Names with the
+ * same hash code end up in a collision node with a plain array.
+ */
+public class PersistentIngredients implements Ingredients {
+
+    private static final int BITS = 5;
+    private static final PersistentIngredients EMPTY = new PersistentIngredients(BitmapNode.EMPTY, 0);
+
+    private final BitmapNode root;
+    private final int size;
+
+    private PersistentIngredients(BitmapNode root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * @return The ingredients without any ingredients
+     */
+    public static PersistentIngredients empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @param ingredients The ingredients to copy
+     * @return Persistent ingredients with the same amounts as `ingredients`
+     */
+    public static PersistentIngredients of(Ingredients ingredients) {
+        if (ingredients instanceof PersistentIngredients) {
+            return (PersistentIngredients) ingredients;
+        }
+
+        var result = EMPTY;
+        for (var name : ingredients.ingredientNames()) {
+            result = result.with(name, ingredients.getIngredientAmount(name));
+        }
+        return result;
+    }
+
+    /**
+     * @param ingredient The ingredient to set the amount of
+     * @param amount The new amount, where an amount that is not positive removes the ingredient
+     * @return These ingredients with the given amount of `ingredient`, or this if nothing changed
+     */
+    public PersistentIngredients with(String ingredient, double amount) {
+        if (amount <= 0) {
+            return without(ingredient);
+        }
+
+        var entry = new Entry(ingredient, amount);
+        var added = new boolean[1];
+        var newRoot = (BitmapNode) root.put(entry, 0, added);
+        return newRoot == root ? this : new PersistentIngredients(newRoot, added[0] ? size + 1 : size);
+    }
+
+    /**
+     * @param ingredient The ingredient to remove
+     * @return These ingredients without `ingredient`, or this if it is not in them
+     */
+    public PersistentIngredients without(String ingredient) {
+        var newRoot = root.remove(ingredient, hash(ingredient), 0);
+        if (newRoot == root) {
+            return this;
+        }
+        return newRoot == null ? EMPTY : new PersistentIngredients((BitmapNode) newRoot, size - 1);
+    }
+
+    /**
+     * @return The number of ingredients
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return An Iterable giving the names of all the ingredients
+     */
+    @Override
+    public Iterable<String> ingredientNames() {
+        return getIngredientNames();
+    }
+
+    /**
+     * @return An unmodifiable collection containing the names of all the ingredients
+     */
+    @Override
+    public Collection<String> getIngredientNames() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<String> iterator() {
+                return new NameIterator(root);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof String && find((String) o) != null;
+            }
+        };
+    }
+
+    /**
+     * @param ingredient The ingredient to get the amount of
+     * @return The amount of ingredient, or 0.0 if the ingredient does not exist
+     */
+    @Override
+    public double getIngredientAmount(String ingredient) {
+        var entry = find(ingredient);
+        return entry == null ? 0 : entry.amount;
+    }
+
+    /**
+     * Checks if the all the ingredients in other is contained in this
+     * @param other
+     * @return true of there is at least the same or larger amount of ingredients in this than in other, false otherwise
+     */
+    @Override
+    public boolean containsIngredients(Ingredients other) {
+        for (var name : other.ingredientNames()) {
+            if (getIngredientAmount(name) < other.getIngredientAmount(name)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the ingredients that must be added to other for this to be contained in it
+     * @param other
+     * @return a new Ingredients that if added to other would make it contain this
+     */
+    @Override
+    public Ingredients missingIngredients(Ingredients other) {
+        var missing = new IngredientContainer();
+        for (var name : ingredientNames()) {
+            var amount = getIngredientAmount(name);
+            var otherAmount = other.getIngredientAmount(name);
+            if (otherAmount < amount) {
+                missing.addIngredient(name, amount - otherAmount);
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Returns the ingredients that you get if you scale this by factor 'scale'.
+     * @param scale
+     * @return a new scaled Ingredients
+     */
+    @Override
+    public Ingredients scaleIngredients(double scale) {
+        var scaled = EMPTY;
+        for (var name : ingredientNames()) {
+            scaled = scaled.with(name, getIngredientAmount(name) * scale);
+        }
+        return scaled;
+    }
+
+    /**
+     * Get a string containing the ingredients with amounts in the same format as {@link IngredientContainer#toString()}.
+     *
+     * @return A string with one `name: amount` line per ingredient
+     */
+    @Override
+    public String toString() {
+        var strings = new ArrayList<String>();
+        for (var name : ingredientNames()) {
+            strings.add(name + ": " + getIngredientAmount(name));
+        }
+        return String.join("\n", strings);
+    }
+
+    private Entry find(String ingredient) {
+        var hash = hash(ingredient);
+        Node node = root;
+        for (var shift = 0; ; shift += BITS) {
+            if (node instanceof CollisionNode) {
+                return ((CollisionNode) node).find(ingredient);
+            }
+            var slot = ((BitmapNode) node).slot(hash, shift);
+            if (slot == null) {
+                return null;
+            }
+            if (slot instanceof Entry) {
+                var entry = (Entry) slot;
+                return entry.name.equals(ingredient) ? entry : null;
+            }
+            node = (Node) slot;
+        }
+    }
+
+    private static int hash(String name) {
+        var h = name.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int bit(int hash, int shift) {
+        return 1 << ((hash >>> shift) & 31);
+    }
+
+    private static final class Entry {
+        final String name;
+        final int hash;
+        final double amount;
+
+        Entry(String name, double amount) {
+            this.name = name;
+            this.hash = hash(name);
+            this.amount = amount;
+        }
+    }
+
+    private abstract static class Node {
+        /**
+         * @param added Set to true if the entry's name was not in the node
+         * @return The node with the entry, or this if it already had the entry's amount
+         */
+        abstract Node put(Entry entry, int shift, boolean[] added);
+
+        /**
+         * @return The node without the ingredient, this if it did not have it, or `null` if it is left empty
+         */
+        abstract Node remove(String name, int hash, int shift);
+
+        /**
+         * @return The node's only entry, or `null` if it has more or a child node, so the parent can hold it directly
+         */
+        abstract Entry single();
+    }
+
+    private static final class BitmapNode extends Node {
+        static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        final int bitmap;
+        final Object[] slots;
+
+        BitmapNode(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        Object slot(int hash, int shift) {
+            var bit = bit(hash, shift);
+            return (bitmap & bit) == 0 ? null : slots[Integer.bitCount(bitmap & (bit - 1))];
+        }
+
+        @Override
+        Node put(Entry entry, int shift, boolean[] added) {
+            var bit = bit(entry.hash, shift);
+            var i = Integer.bitCount(bitmap & (bit - 1));
+            if ((bitmap & bit) == 0) {
+                var newSlots = new Object[slots.length + 1];
+                System.arraycopy(slots, 0, newSlots, 0, i);
+                newSlots[i] = entry;
+                System.arraycopy(slots, i, newSlots, i + 1, slots.length - i);
+                added[0] = true;
+                return new BitmapNode(bitmap | bit, newSlots);
+            }
+
+            var slot = slots[i];
+            Object newSlot;
+            if (slot instanceof Entry) {
+                var old = (Entry) slot;
+                if (old.name.equals(entry.name)) {
+                    if (old.amount == entry.amount) {
+                        return this;
+                    }
+                    newSlot = entry;
+                } else {
+                    added[0] = true;
+                    newSlot = merge(old, entry, shift + BITS);
+                }
+            } else {
+                newSlot = ((Node) slot).put(entry, shift + BITS, added);
+                if (newSlot == slot) {
+                    return this;
+                }
+            }
+            return new BitmapNode(bitmap, replace(i, newSlot));
+        }
+
+        @Override
+        Node remove(String name, int hash, int shift) {
+            var bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+
+            var i = Integer.bitCount(bitmap & (bit - 1));
+            var slot = slots[i];
+            if (slot instanceof Entry) {
+                if (!((Entry) slot).name.equals(name)) {
+                    return this;
+                }
+                return without(i, bit);
+            }
+
+            var child = ((Node) slot).remove(name, hash, shift + BITS);
+            if (child == slot) {
+                return this;
+            }
+            if (child == null) {
+                return without(i, bit);
+            }
+            var single = child.single();
+            return new BitmapNode(bitmap, replace(i, single != null ? single : child));
+        }
+
+        @Override
+        Entry single() {
+            return slots.length == 1 && slots[0] instanceof Entry ? (Entry) slots[0] : null;
+        }
+
+        private Object[] replace(int i, Object slot) {
+            var newSlots = slots.clone();
+            newSlots[i] = slot;
+            return newSlots;
+        }
+
+        private BitmapNode without(int i, int bit) {
+            if (slots.length == 1) {
+                return null;
+            }
+            var newSlots = new Object[slots.length - 1];
+            System.arraycopy(slots, 0, newSlots, 0, i);
+            System.arraycopy(slots, i + 1, newSlots, i, slots.length - i - 1);
+            return new BitmapNode(bitmap & ~bit, newSlots);
+        }
+
+        /**
+         * @return A node at the given level holding both entries, which have different names
+         */
+        private static Node merge(Entry a, Entry b, int shift) {
+            if (shift >= Integer.SIZE) {
+                return new CollisionNode(new Entry[] { a, b });
+            }
+
+            var bitA = bit(a.hash, shift);
+            var bitB = bit(b.hash, shift);
+            if (bitA == bitB) {
+                return new BitmapNode(bitA, new Object[] { merge(a, b, shift + BITS) });
+            }
+            var slots = Integer.compareUnsigned(bitA, bitB) < 0 ? new Object[] { a, b } : new Object[] { b, a };
+            return new BitmapNode(bitA | bitB, slots);
+        }
+    }
+
+    /**
+     * The entries of names with equal hash codes.
+     */
+    private static final class CollisionNode extends Node {
+        final Entry[] entries;
+
+        CollisionNode(Entry[] entries) {
+            this.entries = entries;
+        }
+
+        Entry find(String name) {
+            for (var entry : entries) {
+                if (entry.name.equals(name)) {
+                    return entry;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        Node put(Entry entry, int shift, boolean[] added) {
+            for (var i = 0; i < entries.length; i++) {
+                if (entries[i].name.equals(entry.name)) {
+                    if (entries[i].amount == entry.amount) {
+                        return this;
+                    }
+                    var newEntries = entries.clone();
+                    newEntries[i] = entry;
+                    return new CollisionNode(newEntries);
+                }
+            }
+            added[0] = true;
+            var newEntries = Arrays.copyOf(entries, entries.length + 1);
+            newEntries[entries.length] = entry;
+            return new CollisionNode(newEntries);
+        }
+
+        @Override
+        Node remove(String name, int hash, int shift) {
+            for (var i = 0; i < entries.length; i++) {
+                if (entries[i].name.equals(name)) {
+                    var newEntries = new Entry[entries.length - 1];
+                    System.arraycopy(entries, 0, newEntries, 0, i);
+                    System.arraycopy(entries, i + 1, newEntries, i, entries.length - i - 1);
+                    return new CollisionNode(newEntries);
+                }
+            }
+            return this;
+        }
+
+        @Override
+        Entry single() {
+            return entries.length == 1 ? entries[0] : null;
+        }
+    }
+
+    /**
+     * Walks the trie depth first, with a stack of the nodes above the current one.
+     */
+    private static final class NameIterator implements Iterator<String> {
+        private final Object[][] nodes = new Object[Integer.SIZE / BITS + 2][];
+        private final int[] positions = new int[nodes.length];
+        private int depth;
+        private Entry next;
+
+        NameIterator(BitmapNode root) {
+            nodes[0] = root.slots;
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (depth >= 0) {
+                if (positions[depth] == nodes[depth].length) {
+                    depth--;
+                    continue;
+                }
+
+                var slot = nodes[depth][positions[depth]++];
+                if (slot instanceof Entry) {
+                    next = (Entry) slot;
+                    return;
+                }
+                depth++;
+                nodes[depth] = slot instanceof BitmapNode ? ((BitmapNode) slot).slots : ((CollisionNode) slot).entries;
+                positions[depth] = 0;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public String next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            var name = next.name;
+            advance();
+            return name;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package food;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class PersistentIngredientsTest {
+
+	private static void assertSameContents(Map<String, Double> expected, PersistentIngredients actual) {
+		assertEquals(expected.size(), actual.size());
+		IngredientContainerTest.assertCollectionsContainTheSame(expected.keySet(), actual.getIngredientNames());
+		for (Map.Entry<String, Double> entry : expected.entrySet()) {
+			assertEquals(entry.getValue(), actual.getIngredientAmount(entry.getKey()), 0);
+		}
+	}
+
+	@Test
+	public void testSameAsHashMap() {
+		Random random = new Random(3);
+		Map<String, Double> expected = new HashMap<>();
+		PersistentIngredients ingredients = PersistentIngredients.empty();
+		for (int step = 0; step < 20000; step++) {
+			String name = "ingredient" + random.nextInt(3000);
+			if (random.nextInt(3) == 0) {
+				expected.remove(name);
+				ingredients = ingredients.without(name);
+			} else {
+				double amount = 1 + random.nextInt(10);
+				expected.put(name, amount);
+				ingredients = ingredients.with(name, amount);
+			}
+			assertEquals(expected.getOrDefault(name, 0d), ingredients.getIngredientAmount(name), 0);
+		}
+		assertSameContents(expected, ingredients);
+	}
+
+	@Test
+	public void testOldVersionsAreUnchanged() {
+		PersistentIngredients first = PersistentIngredients.empty().with("egg", 2).with("milk", 1);
+		PersistentIngredients second = first.with("egg", 5).without("milk").with("flour", 3);
+
+		assertEquals(2, first.getIngredientAmount("egg"), 0);
+		assertEquals(1, first.getIngredientAmount("milk"), 0);
+		assertEquals(0, first.getIngredientAmount("flour"), 0);
+		assertEquals(5, second.getIngredientAmount("egg"), 0);
+		assertEquals(2, second.size());
+		assertSame(second, second.without("milk"));
+		assertSame(second, second.with("egg", 5));
+		assertTrue(second.with("egg", 0).without("flour").getIngredientNames().isEmpty());
+	}
+
+	@Test
+	public void testEqualHashCodes() {
+		// "Aa" and "BB" have the same hash code, and so do all strings made of them
+		Map<String, Double> expected = new HashMap<>();
+		PersistentIngredients ingredients = PersistentIngredients.empty();
+		String[] names = { "AaAa", "AaBB", "BBAa", "BBBB" };
+		for (int i = 0; i < names.length; i++) {
+			expected.put(names[i], i + 1.0);
+			ingredients = ingredients.with(names[i], i + 1);
+		}
+		assertSameContents(expected, ingredients);
+
+		for (String name : names) {
+			expected.remove(name);
+			ingredients = ingredients.without(name);
+			assertSameContents(expected, ingredients);
+		}
+	}
+
+	@Test
+	public void testIngredientsOperations() {
+		PersistentIngredients ingredients = PersistentIngredients.of(PersistentIngredients.empty().with("egg", 2).with("milk", 1));
+		IngredientContainer other = new IngredientContainer();
+		other.addIngredient("egg", 1);
+
+		assertTrue(ingredients.containsIngredients(other));
+		assertEquals(1, ingredients.missingIngredients(other).getIngredientAmount("egg"), 0);
+		assertEquals(2, ingredients.scaleIngredients(2).getIngredientAmount("milk"), 0);
+	}
+}
@@ -68,6 +68,8 @@ public class Recipe {
      * Create a copy of this recipe, but change the ingredients such that the new
      * recipe creates `n` portions instead of the amount this recipe makes.
      *
+     * Callers scaling the same recipes over and over can share scaled recipes through a {@link ScaledRecipeCache}.
+     *
      * @param n The number of portions the new recipe should make
      * @return The new recipe
      */
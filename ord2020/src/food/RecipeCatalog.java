@@ -0,0 +1,348 @@
+package food;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Binary recipe catalog, which loads much faster than the text format read by {@link RecipeReader}.
+ *
+ * A catalog stores every distinct name, category and ingredient name once in a string table, and the
+ * recipes as columns of indices into the table, portions and amounts:
+ *
+ * magic, version
+ * string count, string offsets (count + 1 ints), UTF-8 bytes of all strings
+ * recipe count, ingredient count
+ * name indices, category indices, portions, ingredient offsets (recipe count + 1 ints)
+ * ingredient name indices, amounts (ingredient count doubles)
+ *
+ * All numbers are big-endian. A null name or category is stored as the index -1.
+ */
+public class RecipeCatalog {
+
+    private static final int MAGIC = 0x52434154; // "RCAT"
+    private static final int VERSION = 1;
+
+    private RecipeCatalog() {
+    }
+
+    /**
+     * Write recipes to a catalog file.
+     *
+     * @param recipes The recipes to write
+     * @param path The file to write to, which is replaced if it exists
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Collection<Recipe> recipes, Path path) throws IOException {
+        var strings = new ArrayList<String>();
+        var stringIndices = new HashMap<String, Integer>();
+        var ingredientNames = new ArrayList<String>();
+        var ingredientOffsets = new int[recipes.size() + 1];
+        var r = 0;
+        for (var recipe : recipes) {
+            indexOf(recipe.getName(), strings, stringIndices);
+            indexOf(recipe.getCategory(), strings, stringIndices);
+            for (var name : recipe.getIngredients().ingredientNames()) {
+                indexOf(name, strings, stringIndices);
+                ingredientNames.add(name);
+            }
+            ingredientOffsets[++r] = ingredientNames.size();
+        }
+
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            var bytes = new byte[strings.size()][];
+            var offset = 0;
+            out.writeInt(strings.size());
+            out.writeInt(0);
+            for (var i = 0; i < bytes.length; i++) {
+                bytes[i] = strings.get(i).getBytes(StandardCharsets.UTF_8);
+                offset += bytes[i].length;
+                out.writeInt(offset);
+            }
+            for (var b : bytes) {
+                out.write(b);
+            }
+
+            out.writeInt(recipes.size());
+            out.writeInt(ingredientNames.size());
+            for (var recipe : recipes) {
+                out.writeInt(indexOf(recipe.getName(), strings, stringIndices));
+            }
+            for (var recipe : recipes) {
+                out.writeInt(indexOf(recipe.getCategory(), strings, stringIndices));
+            }
+            for (var recipe : recipes) {
+                out.writeInt(recipe.getNPortions());
+            }
+            for (var ingredientOffset : ingredientOffsets) {
+                out.writeInt(ingredientOffset);
+            }
+            for (var name : ingredientNames) {
+                out.writeInt(stringIndices.get(name));
+            }
+
+            r = 0;
+            for (var recipe : recipes) {
+                var ingredients = recipe.getIngredients();
+                for (var i = ingredientOffsets[r]; i < ingredientOffsets[r + 1]; i++) {
+                    out.writeDouble(ingredients.getIngredientAmount(ingredientNames.get(i)));
+                }
+                r++;
+            }
+        }
+    }
+
+    /**
+     * Read all recipes from a catalog file. The recipes are the same as when the catalog's recipes were
+     * read by {@link RecipeReader}, with their ingredients in an {@link IngredientContainer}.
+     *
+     * @param path The catalog file
+     * @return The recipes, in the order they were written
+     * @throws IOException if the file cannot be read or is not a valid catalog
+     */
+    public static List<Recipe> read(Path path) throws IOException {
+        var catalog = load(path);
+        var recipes = new ArrayList<Recipe>(catalog.size());
+        var columns = catalog.columns;
+        for (var i = 0; i < catalog.size(); i++) {
+            var ingredients = new IngredientContainer();
+            for (var j = columns.ingredientOffsets[i]; j < columns.ingredientOffsets[i + 1]; j++) {
+                ingredients.addIngredient(columns.string(columns.ingredients[j]), columns.amounts[j]);
+            }
+            recipes.add(new Recipe(columns.string(columns.names[i]), columns.string(columns.categories[i]),
+                    columns.portions[i], ingredients));
+        }
+        return recipes;
+    }
+
+    /**
+     * Load a catalog file with the default dictionary.
+     *
+     * @see #load(Path, IngredientDictionary)
+     */
+    public static LazyRecipeList load(Path path) throws IOException {
+        return load(path, IngredientDictionary.getDefault());
+    }
+
+    /**
+     * Load a catalog file without decoding its recipes. Only the columns are read up front. A recipe is decoded
+     * the first time it is asked for, with its ingredients as {@link SparseIngredients}.
+     *
+     * @param path The catalog file
+     * @param dictionary The dictionary to give the ingredients IDs in
+     * @return An unmodifiable list of the recipes, in the order they were written
+     * @throws IOException if the file cannot be read or is not a valid catalog
+     */
+    public static LazyRecipeList load(Path path, IngredientDictionary dictionary) throws IOException {
+        ByteBuffer buffer;
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Recipe catalog is too large: " + path);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        try {
+            return new LazyRecipeList(new Columns(buffer), dictionary);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException | NegativeArraySizeException e) {
+            throw new IOException("Truncated or corrupt recipe catalog: " + path, e);
+        }
+    }
+
+    /**
+     * Convert a recipe file in the text format read by {@link RecipeReader} to a catalog file.
+     *
+     * @param text The text file to read
+     * @param catalog The catalog file to write
+     * @return The number of recipes converted
+     * @throws IOException if a file cannot be read or written
+     */
+    public static int convert(Path text, Path catalog) throws IOException {
+        var recipes = new RecipeReader().readRecipes(text);
+        write(recipes, catalog);
+        return recipes.size();
+    }
+
+    /**
+     * Converts the text file given as the first argument to a catalog file given as the second argument,
+     * and compares the load times of the two.
+     * @param args
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        var text = Path.of(args[0]);
+        var catalog = Path.of(args[1]);
+        System.out.println(convert(text, catalog) + " recipes converted");
+
+        for (var run = 0; run < 5; run++) {
+            var start = System.nanoTime();
+            var parsed = new RecipeReader().readRecipes(text).size();
+            var parseEnd = System.nanoTime();
+            var read = read(catalog).size();
+            var readEnd = System.nanoTime();
+            var loaded = load(catalog).size();
+            var loadEnd = System.nanoTime();
+            System.out.printf("text: %d in %.1f ms, read: %d in %.1f ms, load: %d in %.1f ms%n",
+                    parsed, (parseEnd - start) / 1e6, read, (readEnd - parseEnd) / 1e6, loaded, (loadEnd - readEnd) / 1e6);
+        }
+    }
+
+    private static int indexOf(String s, List<String> strings, Map<String, Integer> stringIndices) {
+        if (s == null) {
+            return -1;
+        }
+        var index = stringIndices.get(s);
+        if (index == null) {
+            index = strings.size();
+            strings.add(s);
+            stringIndices.put(s, index);
+        }
+        return index;
+    }
+
+    /**
+     * The columns of a catalog, with the strings decoded on first use.
+     */
+    private static class Columns {
+        final int[] names;
+        final int[] categories;
+        final int[] portions;
+        final int[] ingredientOffsets;
+        final int[] ingredients;
+        final double[] amounts;
+
+        private final int[] stringOffsets;
+        private final byte[] stringBytes;
+        private final String[] strings;
+
+        Columns(ByteBuffer buffer) throws IOException {
+            if (buffer.remaining() < 8 || buffer.getInt() != MAGIC) {
+                throw new IOException("Not a recipe catalog");
+            }
+            var version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported recipe catalog version " + version);
+            }
+
+            var stringCount = buffer.getInt();
+            stringOffsets = readInts(buffer, stringCount + 1);
+            stringBytes = new byte[stringOffsets[stringCount]];
+            buffer.get(stringBytes);
+            strings = new String[stringCount];
+
+            var recipeCount = buffer.getInt();
+            var ingredientCount = buffer.getInt();
+            names = readInts(buffer, recipeCount);
+            categories = readInts(buffer, recipeCount);
+            portions = readInts(buffer, recipeCount);
+            ingredientOffsets = readInts(buffer, recipeCount + 1);
+            ingredients = readInts(buffer, ingredientCount);
+            amounts = new double[ingredientCount];
+            buffer.asDoubleBuffer().get(amounts);
+        }
+
+        private static int[] readInts(ByteBuffer buffer, int n) {
+            var ints = new int[n];
+            buffer.asIntBuffer().get(ints);
+            buffer.position(buffer.position() + n * Integer.BYTES);
+            return ints;
+        }
+
+        String string(int index) {
+            if (index < 0) {
+                return null;
+            }
+            var s = strings[index];
+            if (s == null) {
+                var offset = stringOffsets[index];
+                s = new String(stringBytes, offset, stringOffsets[index + 1] - offset, StandardCharsets.UTF_8);
+                strings[index] = s;
+            }
+            return s;
+        }
+    }
+
+    /**
+     * The recipes of a loaded catalog, decoded on first access.
+     * Decoding races between threads are harmless, since they decode equal recipes.
+     */
+    public static class LazyRecipeList extends AbstractList<Recipe> implements RandomAccess {
+        private final Columns columns;
+        private final IngredientDictionary dictionary;
+        private final int[] ingredientIds;
+        private final Recipe[] recipes;
+
+        private LazyRecipeList(Columns columns, IngredientDictionary dictionary) {
+            this.columns = columns;
+            this.dictionary = dictionary;
+            ingredientIds = new int[columns.strings.length];
+            Arrays.fill(ingredientIds, -1);
+            recipes = new Recipe[columns.names.length];
+        }
+
+        @Override
+        public Recipe get(int index) {
+            var recipe = recipes[index];
+            if (recipe == null) {
+                recipe = decode(index);
+                recipes[index] = recipe;
+            }
+            return recipe;
+        }
+
+        @Override
+        public int size() {
+            return recipes.length;
+        }
+
+        /**
+         * @return The number of recipes decoded so far
+         */
+        public int decodedCount() {
+            var n = 0;
+            for (var recipe : recipes) {
+                if (recipe != null) {
+                    n++;
+                }
+            }
+            return n;
+        }
+
+        private Recipe decode(int index) {
+            var from = columns.ingredientOffsets[index];
+            var n = columns.ingredientOffsets[index + 1] - from;
+            var ids = new int[n];
+            for (var i = 0; i < n; i++) {
+                var string = columns.ingredients[from + i];
+                var id = ingredientIds[string];
+                if (id < 0) {
+                    id = dictionary.getId(columns.string(string));
+                    ingredientIds[string] = id;
+                }
+                ids[i] = id;
+            }
+            var amounts = Arrays.copyOfRange(columns.amounts, from, from + n);
+
+            return new Recipe(columns.string(columns.names[index]), columns.string(columns.categories[index]),
+                    columns.portions[index], SparseIngredients.of(dictionary, ids, amounts, n));
+        }
+    }
+}
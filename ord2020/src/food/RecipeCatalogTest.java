@@ -0,0 +1,88 @@
+package food;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class RecipeCatalogTest {
+
+	private void assertSameRecipes(List<Recipe> expected, List<Recipe> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			Recipe e = expected.get(i);
+			Recipe a = actual.get(i);
+			assertEquals(e.getName(), a.getName());
+			assertEquals(e.getCategory(), a.getCategory());
+			assertEquals(e.getNPortions(), a.getNPortions());
+			IngredientContainerTest.assertCollectionsContainTheSame(e.getIngredients().getIngredientNames(), a.getIngredients().getIngredientNames());
+			for (String name : e.getIngredients().ingredientNames()) {
+				assertEquals(e.getIngredients().getIngredientAmount(name), a.getIngredients().getIngredientAmount(name), 0);
+			}
+		}
+	}
+
+	@Test
+	public void testConvertAndRead() throws IOException {
+		Path text = Files.createTempFile("recipes", ".txt");
+		Path catalog = Files.createTempFile("recipes", ".catalog");
+		try {
+			Files.copy(RecipeCatalogTest.class.getResourceAsStream("sample-recipes.txt"), text, StandardCopyOption.REPLACE_EXISTING);
+			List<Recipe> expected = new RecipeReader().readRecipes(text);
+
+			assertEquals(expected.size(), RecipeCatalog.convert(text, catalog));
+			assertSameRecipes(expected, RecipeCatalog.read(catalog));
+
+			RecipeCatalog.LazyRecipeList lazy = RecipeCatalog.load(catalog, new IngredientDictionary());
+			assertEquals(0, lazy.decodedCount());
+			assertSame(lazy.get(1), lazy.get(1));
+			assertEquals(1, lazy.decodedCount());
+			assertTrue(lazy.get(1).getIngredients() instanceof SparseIngredients);
+			assertSameRecipes(expected, lazy);
+		} finally {
+			Files.delete(text);
+			Files.delete(catalog);
+		}
+	}
+
+	@Test
+	public void testNullsAndInvalidFiles() throws IOException {
+		Path catalog = Files.createTempFile("recipes", ".catalog");
+		try {
+			IngredientContainer ingredients = new IngredientContainer();
+			ingredients.addIngredient("Grüße", 1.5);
+			RecipeCatalog.write(List.of(new Recipe("a", null, 2, ingredients), new Recipe("b", "c", 1, new IngredientContainer())), catalog);
+			List<Recipe> recipes = RecipeCatalog.read(catalog);
+			assertNull(recipes.get(0).getCategory());
+			assertEquals(1.5, recipes.get(0).getIngredients().getIngredientAmount("Grüße"), 0);
+			assertEquals(0, recipes.get(1).getIngredients().getIngredientNames().size());
+
+			byte[] bytes = Files.readAllBytes(catalog);
+			Files.write(catalog, Arrays.copyOf(bytes, bytes.length - 5));
+			try {
+				RecipeCatalog.load(catalog);
+				fail("Expected IOException for a truncated catalog");
+			} catch (IOException e) {
+			}
+
+			Files.write(catalog, "name$category$nPortions$ingredients$amounts\n".getBytes());
+			try {
+				RecipeCatalog.read(catalog);
+				fail("Expected IOException for a text file");
+			} catch (IOException e) {
+			}
+		} finally {
+			Files.delete(catalog);
+		}
+	}
+}
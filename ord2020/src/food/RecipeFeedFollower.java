@@ -0,0 +1,275 @@
+package food;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Follows an append-only recipe file in the format read by {@link RecipeReader}, and adds the recipes
+ * appended to it to a running {@link Kitchen}.
+ *
+ * Each {@link #poll()} reads the bytes appended since the previous one. Complete lines are parsed and
+ * added to the kitchen in one batch, while a line that has not been completed with `\n` yet is kept
+ * until the rest of it is appended. The first line of the file is the header and is skipped, as are
+ * malformed lines. The file is decoded with the default charset, like {@link RecipeReader} does.
+ *
+ * A follower is meant to be used from one thread, while other threads query the kitchen.
+ */
+public class RecipeFeedFollower implements Closeable {
+
+    private static final int READ_SIZE = 1 << 20;
+
+    private final Path file;
+    private final Kitchen kitchen;
+    private final RecipeLineParser parser;
+    private final ByteBuffer readBuffer;
+
+    private long offset;
+    private byte[] pending;
+    private int pendingLength;
+    private boolean headerSkipped;
+    private volatile boolean closed;
+
+    private long totalRecipes;
+    private long totalBytes;
+    private long totalNanos;
+
+    /**
+     * Follow a recipe file from its start.
+     *
+     * @param file The file to follow, which does not have to exist yet
+     * @param kitchen The kitchen to add the recipes to
+     */
+    public RecipeFeedFollower(Path file, Kitchen kitchen) {
+        this.file = file;
+        this.kitchen = kitchen;
+        parser = new RecipeLineParser();
+        readBuffer = ByteBuffer.allocate(READ_SIZE);
+        pending = new byte[1024];
+    }
+
+    /**
+     * Read what has been appended to the file since the last poll, and add its recipes to the kitchen.
+     *
+     * @return The batch that was read, which is empty if nothing complete was appended
+     * @throws IOException if the file cannot be read, or has become shorter than what has been read
+     */
+    public Batch poll() throws IOException {
+        var start = System.nanoTime();
+        var bytesRead = 0L;
+        var recipes = new ArrayList<Recipe>();
+
+        if (Files.exists(file)) {
+            try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                var size = channel.size();
+                if (size < offset) {
+                    throw new IOException("Recipe feed was truncated: " + file);
+                }
+
+                while (offset < size) {
+                    readBuffer.clear();
+                    var n = channel.read(readBuffer, offset);
+                    if (n <= 0) {
+                        break;
+                    }
+                    offset += n;
+                    bytesRead += n;
+                    append(readBuffer.array(), n);
+                    parseCompleteLines(recipes);
+                }
+            }
+        }
+
+        if (!recipes.isEmpty()) {
+            kitchen.addRecipes(recipes);
+        }
+
+        var batch = new Batch(recipes.size(), bytesRead, System.nanoTime() - start);
+        totalRecipes += batch.recipeCount;
+        totalBytes += batch.bytes;
+        totalNanos += batch.latencyNanos;
+        return batch;
+    }
+
+    /**
+     * Poll the file until the follower is closed or the thread is interrupted. The file's directory is watched,
+     * so appends are usually picked up right away, and the file is polled at least every `interval` in case
+     * the file system does not report changes.
+     *
+     * @param interval The longest time between polls
+     * @param listener Gets every non-empty batch, e.g. to report latency and throughput
+     * @throws IOException if the file cannot be read
+     */
+    public void follow(Duration interval, Consumer<Batch> listener) throws IOException {
+        var directory = file.toAbsolutePath().getParent();
+        try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+            directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+            while (!closed) {
+                var batch = poll();
+                if (batch.recipeCount > 0) {
+                    listener.accept(batch);
+                }
+
+                var key = watcher.poll(interval.toMillis(), TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    key.pollEvents();
+                    key.reset();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Makes {@link #follow(Duration, Consumer)} return after its current poll.
+     */
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    /**
+     * @return The number of bytes of the file that have been read
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return The number of recipes added to the kitchen so far
+     */
+    public long getTotalRecipes() {
+        return totalRecipes;
+    }
+
+    /**
+     * @return The average number of recipes added per second spent polling
+     */
+    public double getRecipesPerSecond() {
+        return totalNanos == 0 ? 0 : totalRecipes * 1e9 / totalNanos;
+    }
+
+    /**
+     * @return The average number of bytes read per second spent polling
+     */
+    public double getBytesPerSecond() {
+        return totalNanos == 0 ? 0 : totalBytes * 1e9 / totalNanos;
+    }
+
+    private void append(byte[] bytes, int n) {
+        if (pendingLength + n > pending.length) {
+            pending = Arrays.copyOf(pending, Math.max(pending.length * 2, pendingLength + n));
+        }
+        System.arraycopy(bytes, 0, pending, pendingLength, n);
+        pendingLength += n;
+    }
+
+    /**
+     * Parses the lines of the pending bytes that end with `\n`, and keeps the rest pending.
+     */
+    private void parseCompleteLines(ArrayList<Recipe> recipes) throws IOException {
+        var complete = pendingLength;
+        while (complete > 0 && pending[complete - 1] != '\n') {
+            complete--;
+        }
+        if (complete == 0) {
+            return;
+        }
+
+        var chars = Charset.defaultCharset().newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                .decode(ByteBuffer.wrap(pending, 0, complete));
+        System.arraycopy(pending, complete, pending, 0, pendingLength - complete);
+        pendingLength -= complete;
+
+        var lines = new LineScanner(chars.array(), chars.limit());
+        if (!headerSkipped) {
+            headerSkipped = lines.next();
+        }
+        while (lines.next()) {
+            var recipe = parser.parse(lines.buffer(), lines.start(), lines.end());
+            if (recipe != null) {
+                recipes.add(recipe);
+            }
+        }
+    }
+
+    /**
+     * The recipes read by one poll.
+     */
+    public static class Batch {
+        private final int recipeCount;
+        private final long bytes;
+        private final long latencyNanos;
+
+        Batch(int recipeCount, long bytes, long latencyNanos) {
+            this.recipeCount = recipeCount;
+            this.bytes = bytes;
+            this.latencyNanos = latencyNanos;
+        }
+
+        /**
+         * @return The number of recipes added to the kitchen
+         */
+        public int getRecipeCount() {
+            return recipeCount;
+        }
+
+        /**
+         * @return The number of bytes read from the file
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * @return The time from the start of the poll until the recipes were added to the kitchen, in nanoseconds
+         */
+        public long getLatencyNanos() {
+            return latencyNanos;
+        }
+
+        /**
+         * @return The number of recipes added per second of the poll
+         */
+        public double getRecipesPerSecond() {
+            return latencyNanos == 0 ? 0 : recipeCount * 1e9 / latencyNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d recipes, %d bytes in %.2f ms (%.0f recipes/s)",
+                    recipeCount, bytes, latencyNanos / 1e6, getRecipesPerSecond());
+        }
+    }
+
+    /**
+     * Follows the recipe file given as the first argument, printing every batch.
+     * @param args
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        var kitchen = new Kitchen();
+        try (var follower = new RecipeFeedFollower(Path.of(args[0]), kitchen)) {
+            follower.follow(Duration.ofMillis(500), batch -> System.out.println(batch + ", "
+                    + kitchen.getAllRecipes().size() + " recipes in the kitchen"));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package food;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.Test;
+
+public class RecipeFeedFollowerTest {
+
+	private void append(Path file, String text) throws IOException {
+		Files.writeString(file, text, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+	}
+
+	@Test
+	public void testPollReadsAppendedLines() throws IOException {
+		Path directory = Files.createTempDirectory("feed");
+		Path file = directory.resolve("recipes.txt");
+		try {
+			Kitchen kitchen = new Kitchen();
+			kitchen.getStorage().addIngredient("egg", 2);
+			RecipeFeedFollower follower = new RecipeFeedFollower(file, kitchen);
+			assertEquals(0, follower.poll().getRecipeCount());
+
+			append(file, "name$category$nPortions$ingredients$amounts\nOmelette$Breakfast$1$egg$2\nbad line\nPancakes$Dess");
+			assertEquals(1, follower.poll().getRecipeCount());
+			assertEquals(1, kitchen.getAllRecipes().size());
+			IngredientContainerTest.assertCollectionsContainTheSame(List.of(kitchen.getRecipe("Omelette")), kitchen.getRecipesThatCanBeCreated());
+
+			append(file, "ert$4$egg;milk$3;5\r\nToast$Breakfast$1$bread$2\n");
+			RecipeFeedFollower.Batch batch = follower.poll();
+			assertEquals(2, batch.getRecipeCount());
+			assertEquals(Files.size(file), follower.getOffset());
+			assertEquals(3, follower.getTotalRecipes());
+			assertEquals(4, kitchen.getRecipe("Pancakes").getNPortions());
+			assertEquals(2, kitchen.getRecipiesContainingIngredient("egg").size());
+			assertEquals(0, follower.poll().getRecipeCount());
+		} finally {
+			Files.deleteIfExists(file);
+			Files.delete(directory);
+		}
+	}
+
+	@Test
+	public void testFollow() throws Exception {
+		Path directory = Files.createTempDirectory("feed");
+		Path file = directory.resolve("recipes.txt");
+		try {
+			Kitchen kitchen = new Kitchen();
+			RecipeFeedFollower follower = new RecipeFeedFollower(file, kitchen);
+			Thread thread = new Thread(() -> {
+				try {
+					follower.follow(Duration.ofMillis(20), batch -> {
+					});
+				} catch (IOException e) {
+					throw new RuntimeException(e);
+				}
+			});
+			thread.start();
+
+			append(file, "header\nOmelette$Breakfast$1$egg$2\n");
+			long deadline = System.currentTimeMillis() + 5000;
+			while (kitchen.getAllRecipes().isEmpty() && System.currentTimeMillis() < deadline) {
+				Thread.sleep(5);
+			}
+			follower.close();
+			thread.join(5000);
+
+			assertEquals(1, kitchen.getAllRecipes().size());
+			assertFalse(thread.isAlive());
+		} finally {
+			Files.deleteIfExists(file);
+			Files.delete(directory);
+		}
+	}
+}
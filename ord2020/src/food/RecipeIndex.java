@@ -0,0 +1,747 @@
+package food;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Indexes maintained by a {@link Kitchen} over its recipes.
+ *
+ * Recipes are numbered in the order they are added. Recipes are looked up by name in a hash index,
+ * by name prefix in a sorted index and by category in a hash index of recipe lists, and for every ingredient the index keeps a posting list of the recipes using it, together with
+ * the amount each recipe needs. Posting lists are sorted by recipe number, so queries over several
+ * ingredients intersect or merge them instead of looking at every recipe.
+ * As an observer of the kitchen's storage it also tracks, per recipe, how many of its ingredients
+ * the storage is short of, so the recipes that can be created are known without scanning the catalog.
+ * Storage changes are only recorded when they happen, without taking the index's lock, and applied
+ * to the recipes the next time these counts are read.
+ *
+ * Ingredients are also numbered, so each recipe has a bitset of the ingredients it needs more than 0 of,
+ * and the index keeps a bitset of the ingredients the storage has any of. Scans checking recipes against the storage use
+ * these to reject recipes with an ingredient that is out of stock before comparing any amounts,
+ * see {@link #getPresenceFilter()}.
+ *
+ * The index assumes that the ingredients of a recipe do not change after the recipe is added.
+ */
+class RecipeIndex implements IngredientStorageObserver {
+
+    private final List<Recipe> recipes;
+    private final Map<String, Recipe> recipesByName;
+    private final TreeMap<String, RecipeList> recipesBySortedName;
+    private final Map<String, RecipeList> recipesByCategory;
+    private final Map<String, Postings> postings;
+    private final ConcurrentHashMap<String, Double> changedAmounts;
+
+    private int[] shortCounts;
+    private int[][] maskWords;
+    private long[][] masks;
+    private long[] inStock;
+    private int[] feasible;
+    private int[] feasiblePositions;
+    private int feasibleCount;
+
+    RecipeIndex() {
+        recipes = new ArrayList<>();
+        recipesByName = new HashMap<>();
+        recipesBySortedName = new TreeMap<>();
+        recipesByCategory = new HashMap<>();
+        postings = new HashMap<>();
+        changedAmounts = new ConcurrentHashMap<>();
+        shortCounts = new int[16];
+        maskWords = new int[16][];
+        masks = new long[16][];
+        inStock = new long[1];
+        feasible = new int[16];
+        feasiblePositions = new int[16];
+        feasibleCount = 0;
+    }
+
+    /**
+     * Add a recipe to the index.
+     *
+     * @param recipe The recipe to add
+     * @param storage The storage to check the recipe's ingredients against
+     * @return The number given to the recipe
+     */
+    synchronized int add(Recipe recipe, Ingredients storage) {
+        var index = recipes.size();
+        recipes.add(recipe);
+        recipesByName.putIfAbsent(recipe.getName(), recipe);
+        if (recipe.getName() != null) {
+            recipesBySortedName.computeIfAbsent(recipe.getName(), n -> new RecipeList()).add(index);
+        }
+        recipesByCategory.computeIfAbsent(recipe.getCategory(), c -> new RecipeList()).add(index);
+        if (index == shortCounts.length) {
+            var capacity = index * 2;
+            shortCounts = Arrays.copyOf(shortCounts, capacity);
+            maskWords = Arrays.copyOf(maskWords, capacity);
+            masks = Arrays.copyOf(masks, capacity);
+            feasible = Arrays.copyOf(feasible, capacity);
+            feasiblePositions = Arrays.copyOf(feasiblePositions, capacity);
+        }
+
+        var ingredients = recipe.getIngredients();
+        var shortCount = 0;
+        var ids = new int[8];
+        var nIds = 0;
+        for (var name : ingredients.ingredientNames()) {
+            var amount = ingredients.getIngredientAmount(name);
+            var isShort = storage.getIngredientAmount(name) < amount;
+            var p = postings.computeIfAbsent(name, n -> newPostings(n, storage));
+            p.add(index, amount, isShort);
+            if (isShort) {
+                shortCount++;
+            }
+            // An amount of 0 is never short, so the ingredient must not be required to be in stock either
+            if (amount <= 0) {
+                continue;
+            }
+            if (nIds == ids.length) {
+                ids = Arrays.copyOf(ids, nIds * 2);
+            }
+            ids[nIds++] = p.id;
+        }
+        setMask(index, ids, nIds);
+
+        shortCounts[index] = shortCount;
+        feasiblePositions[index] = -1;
+        if (shortCount == 0) {
+            addFeasible(index);
+        }
+
+        return index;
+    }
+
+    /**
+     * Records the ingredient's latest amount. Storages call this while holding their own locks, e.g. the
+     * stripe locks of a {@link ConcurrentIngredientContainer}, so it must not wait for the index's lock:
+     * cooking threads changing different ingredients would otherwise queue up behind each other here.
+     * The recipes using the ingredient are updated by {@link #applyChanges()}.
+     */
+    @Override
+    public void ingredientChanged(String ingredient, double oldAmount, double newAmount) {
+        changedAmounts.put(ingredient, newAmount);
+    }
+
+    /**
+     * Updates the recipes using the ingredients changed since the last call. Only the latest amount of an
+     * ingredient matters: a recipe's short count changes only if the amount has crossed the recipe's required
+     * amount since it was last compared, so applying an amount twice changes nothing.
+     * Must be called with the index's lock held, before reading the short counts or the in-stock bitset.
+     */
+    private void applyChanges() {
+        if (changedAmounts.isEmpty()) {
+            return;
+        }
+
+        for (var ingredient : changedAmounts.keySet()) {
+            // An amount recorded after the removal stays in the map for the next call
+            var newAmount = changedAmounts.remove(ingredient);
+            if (newAmount != null) {
+                applyChange(ingredient, newAmount);
+            }
+        }
+    }
+
+    private void applyChange(String ingredient, double newAmount) {
+        var p = postings.get(ingredient);
+        if (p == null) {
+            return;
+        }
+
+        setInStock(p.id, newAmount > 0);
+        for (var i = 0; i < p.size; i++) {
+            var isShort = newAmount < p.amounts[i];
+            if (isShort == p.isShort[i]) {
+                continue;
+            }
+
+            p.isShort[i] = isShort;
+            var recipe = p.recipes[i];
+            if (isShort) {
+                if (shortCounts[recipe]++ == 0) {
+                    removeFeasible(recipe);
+                }
+            } else {
+                if (--shortCounts[recipe] == 0) {
+                    addFeasible(recipe);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return A snapshot of the ingredient bitsets, which may be used from any thread
+     */
+    synchronized PresenceFilter getPresenceFilter() {
+        applyChanges();
+        return new PresenceFilter(maskWords, masks, inStock.clone(), recipes.size());
+    }
+
+    /**
+     * @return The recipes that the storage has enough ingredients for, in the order they were added
+     */
+    synchronized List<Recipe> getFeasibleRecipes() {
+        applyChanges();
+        var indices = Arrays.copyOf(feasible, feasibleCount);
+        Arrays.sort(indices);
+
+        return toRecipes(indices, indices.length);
+    }
+
+    /**
+     * @param name The name of a recipe
+     * @return The first recipe added with the given name, or `null` if there is none
+     */
+    synchronized Recipe getRecipe(String name) {
+        return recipesByName.get(name);
+    }
+
+    /**
+     * @param ingredient The ingredient to search for
+     * @return The recipes using the ingredient, in the order they were added
+     */
+    synchronized List<Recipe> getRecipesContaining(String ingredient) {
+        var p = postings.get(ingredient);
+        return p == null ? new ArrayList<>() : toRecipes(p.recipes, p.size);
+    }
+
+    /**
+     * Intersects the posting lists of the ingredients, starting with the shortest.
+     *
+     * @param ingredients The ingredients to search for
+     * @return The recipes using all the ingredients, in the order they were added
+     */
+    synchronized List<Recipe> getRecipesContainingAll(Collection<String> ingredients) {
+        if (ingredients.isEmpty()) {
+            return new ArrayList<>(recipes);
+        }
+
+        var lists = new ArrayList<Postings>();
+        for (var ingredient : ingredients) {
+            var p = postings.get(ingredient);
+            if (p == null) {
+                return new ArrayList<>();
+            }
+            lists.add(p);
+        }
+        lists.sort(Comparator.comparingInt(p -> p.size));
+
+        var candidates = Arrays.copyOf(lists.get(0).recipes, lists.get(0).size);
+        var n = candidates.length;
+        for (var l = 1; l < lists.size() && n > 0; l++) {
+            n = intersect(candidates, n, lists.get(l));
+        }
+
+        return toRecipes(candidates, n);
+    }
+
+    /**
+     * Merges the posting lists of the ingredients.
+     *
+     * @param ingredients The ingredients to search for
+     * @return The recipes using any of the ingredients, in the order they were added
+     */
+    synchronized List<Recipe> getRecipesContainingAny(Collection<String> ingredients) {
+        var total = 0;
+        var lists = new ArrayList<Postings>();
+        for (var ingredient : ingredients) {
+            var p = postings.get(ingredient);
+            if (p != null) {
+                lists.add(p);
+                total += p.size;
+            }
+        }
+
+        var all = new int[total];
+        var n = 0;
+        for (var p : lists) {
+            System.arraycopy(p.recipes, 0, all, n, p.size);
+            n += p.size;
+        }
+        Arrays.sort(all);
+
+        var distinct = 0;
+        for (var i = 0; i < n; i++) {
+            if (distinct == 0 || all[distinct - 1] != all[i]) {
+                all[distinct++] = all[i];
+            }
+        }
+
+        return toRecipes(all, distinct);
+    }
+
+    /**
+     * Finds the recipes matching a query. The clause with the fewest matching recipes in an index is used to
+     * find the candidates, and the whole query is checked against those. The candidates are copied out under
+     * the index's lock, and checked after releasing it, so the query's own predicates do not hold up changes.
+     *
+     * @param query The query
+     * @return The recipes matching the query, in the order they were added
+     */
+    List<Recipe> query(RecipeQuery query) {
+        List<Recipe> candidateRecipes;
+        synchronized (this) {
+            var candidates = plan(query).candidates();
+            candidateRecipes = candidates == null ? new ArrayList<>(recipes) : toRecipes(candidates, candidates.length);
+        }
+
+        var result = new ArrayList<Recipe>();
+        for (var recipe : candidateRecipes) {
+            if (query.test(recipe)) {
+                result.add(recipe);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param query The query
+     * @return A description of how {@link #query(RecipeQuery)} finds the query's recipes
+     */
+    synchronized String explain(RecipeQuery query) {
+        var plan = plan(query);
+        return plan.access + ": " + plan.estimate + " candidates, then check " + query;
+    }
+
+    /**
+     * Picks the most selective index for a query, from the exact number of recipes each indexed clause matches.
+     * Counting stops as soon as a clause is known to match more recipes than the best one so far.
+     */
+    private Plan plan(RecipeQuery query) {
+        var plan = new Plan("scan", recipes.size(), () -> null);
+
+        if (query.hasCategory()) {
+            var list = recipesByCategory.get(query.getCategory());
+            var size = list == null ? 0 : list.size;
+            if (size < plan.estimate) {
+                plan = new Plan("category index", size, () -> list == null ? new int[0] : Arrays.copyOf(list.recipes, list.size));
+            }
+        }
+
+        var required = new ArrayList<Postings>();
+        for (var ingredient : query.getRequiredIngredients()) {
+            var p = postings.get(ingredient);
+            if (p == null) {
+                return new Plan("ingredient index", 0, () -> new int[0]);
+            }
+            required.add(p);
+        }
+        if (!required.isEmpty()) {
+            required.sort(Comparator.comparingInt(p -> p.size));
+            var shortest = required.get(0);
+            if (shortest.size < plan.estimate) {
+                // The other required ingredients are intersected too, which is cheap starting from the shortest
+                plan = new Plan("ingredient index", shortest.size, () -> {
+                    var candidates = Arrays.copyOf(shortest.recipes, shortest.size);
+                    var n = candidates.length;
+                    for (var l = 1; l < required.size() && n > 0; l++) {
+                        n = intersect(candidates, n, required.get(l));
+                    }
+                    return Arrays.copyOf(candidates, n);
+                });
+            }
+        }
+
+        var prefix = query.getNamePrefix();
+        if (prefix != null) {
+            var names = recipesBySortedName.tailMap(prefix).entrySet();
+            var size = 0;
+            for (var entry : names) {
+                if (!entry.getKey().startsWith(prefix) || size >= plan.estimate) {
+                    break;
+                }
+                size += entry.getValue().size;
+            }
+            if (size < plan.estimate) {
+                var count = size;
+                plan = new Plan("name index", count, () -> {
+                    var candidates = new int[count];
+                    var n = 0;
+                    for (var entry : names) {
+                        if (!entry.getKey().startsWith(prefix)) {
+                            break;
+                        }
+                        var list = entry.getValue();
+                        System.arraycopy(list.recipes, 0, candidates, n, list.size);
+                        n += list.size;
+                    }
+                    Arrays.sort(candidates);
+                    return candidates;
+                });
+            }
+        }
+
+        return plan;
+    }
+
+    /**
+     * Keeps the first `n` candidates that are also in `p`, in place.
+     * Probes `p` by binary search when it is much longer than the candidates, and merges otherwise.
+     *
+     * @return The number of candidates kept
+     */
+    private static int intersect(int[] candidates, int n, Postings p) {
+        var kept = 0;
+        var j = 0;
+
+        if (p.size > n * 8) {
+            for (var i = 0; i < n; i++) {
+                var found = Arrays.binarySearch(p.recipes, j, p.size, candidates[i]);
+                if (found >= 0) {
+                    candidates[kept++] = candidates[i];
+                    j = found + 1;
+                } else {
+                    j = -found - 1;
+                }
+            }
+            return kept;
+        }
+
+        for (var i = 0; i < n; i++) {
+            while (j < p.size && p.recipes[j] < candidates[i]) {
+                j++;
+            }
+            if (j < p.size && p.recipes[j] == candidates[i]) {
+                candidates[kept++] = candidates[i];
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Finds the recipes missing the fewest ingredients from the storage, with a counting pass over the
+     * short counts instead of sorting the recipes.
+     *
+     * @param k The number of recipes to find
+     * @return The k recipes missing the fewest ingredients, fewest first, and in the order they were added when tied
+     */
+    synchronized List<Recipe> getClosestByMissingCount(int k) {
+        applyChanges();
+        var n = recipes.size();
+        var maxCount = 0;
+        for (var r = 0; r < n; r++) {
+            maxCount = Math.max(maxCount, shortCounts[r]);
+        }
+
+        // The recipes with counts below `limit` all fit, and the rest of the k have count `limit`
+        var histogram = new int[maxCount + 1];
+        for (var r = 0; r < n; r++) {
+            histogram[shortCounts[r]]++;
+        }
+        var limit = 0;
+        var below = 0;
+        while (limit < maxCount && below + histogram[limit] < k) {
+            below += histogram[limit++];
+        }
+
+        var starts = new int[limit + 2];
+        for (var c = 0; c <= limit; c++) {
+            starts[c + 1] = starts[c] + (c < limit ? histogram[c] : Math.min(histogram[c], k - below));
+        }
+        var result = new int[starts[limit + 1]];
+        for (var r = 0; r < n; r++) {
+            var c = shortCounts[r];
+            if (c <= limit && starts[c] < starts[c + 1]) {
+                result[starts[c]++] = r;
+            }
+        }
+
+        return toRecipes(result, result.length);
+    }
+
+    /**
+     * Finds the recipes missing the least total amount of ingredients from the storage. The best k so far are kept
+     * in a heap, and a recipe is dropped as soon as its missing amount exceeds the worst of them.
+     * Recipes the storage has enough for are known from the short counts and need no lookups.
+     *
+     * @param k The number of recipes to find
+     * @param storage The storage to compare with
+     * @return The k recipes missing the least, least first, and in the order they were added when tied
+     */
+    synchronized List<Recipe> getClosestByMissingAmount(int k, Ingredients storage) {
+        applyChanges();
+        // k may be far larger than the catalog, e.g. to rank all the recipes
+        var heap = new BoundedHeap(Math.min(k, recipes.size()));
+        for (var r = 0; r < recipes.size() && k > 0; r++) {
+            if (shortCounts[r] == 0) {
+                heap.offer(0, r);
+                continue;
+            }
+
+            var bound = heap.isFull() ? heap.worst() : Double.POSITIVE_INFINITY;
+            var ingredients = recipes.get(r).getIngredients();
+            var missing = 0.0;
+            for (var name : ingredients.ingredientNames()) {
+                var shortBy = ingredients.getIngredientAmount(name) - storage.getIngredientAmount(name);
+                if (shortBy > 0) {
+                    missing += shortBy;
+                    if (missing > bound) {
+                        break;
+                    }
+                }
+            }
+            if (missing <= bound) {
+                heap.offer(missing, r);
+            }
+        }
+
+        var indices = heap.toSortedIndices();
+        return toRecipes(indices, indices.length);
+    }
+
+    private List<Recipe> toRecipes(int[] indices, int n) {
+        var result = new ArrayList<Recipe>(n);
+        for (var i = 0; i < n; i++) {
+            result.add(recipes.get(indices[i]));
+        }
+        return result;
+    }
+
+    private Postings newPostings(String ingredient, Ingredients storage) {
+        var p = new Postings(postings.size());
+        setInStock(p.id, storage.getIngredientAmount(ingredient) > 0);
+        return p;
+    }
+
+    private void setInStock(int id, boolean isInStock) {
+        var word = id >>> 6;
+        if (word >= inStock.length) {
+            inStock = Arrays.copyOf(inStock, Math.max(word + 1, inStock.length * 2));
+        }
+        if (isInStock) {
+            inStock[word] |= 1L << id;
+        } else {
+            inStock[word] &= ~(1L << id);
+        }
+    }
+
+    /**
+     * Stores the recipe's bitset sparsely, as the indices and values of its non-zero words,
+     * since a recipe uses a few of many ingredients.
+     */
+    private void setMask(int recipe, int[] ids, int n) {
+        Arrays.sort(ids, 0, n);
+        var words = new int[n];
+        var bits = new long[n];
+        var nWords = 0;
+        for (var i = 0; i < n; i++) {
+            var word = ids[i] >>> 6;
+            if (nWords == 0 || words[nWords - 1] != word) {
+                words[nWords++] = word;
+            }
+            bits[nWords - 1] |= 1L << ids[i];
+        }
+        maskWords[recipe] = Arrays.copyOf(words, nWords);
+        masks[recipe] = Arrays.copyOf(bits, nWords);
+    }
+
+    private void addFeasible(int recipe) {
+        feasiblePositions[recipe] = feasibleCount;
+        feasible[feasibleCount++] = recipe;
+    }
+
+    private void removeFeasible(int recipe) {
+        // Move the last feasible recipe into the removed one's position
+        var position = feasiblePositions[recipe];
+        var last = feasible[--feasibleCount];
+        feasible[position] = last;
+        feasiblePositions[last] = position;
+        feasiblePositions[recipe] = -1;
+    }
+
+    /**
+     * The recipes using one ingredient, in the order the recipes were added.
+     */
+    static class Postings {
+        final int id;
+        int[] recipes = new int[4];
+        double[] amounts = new double[4];
+        boolean[] isShort = new boolean[4];
+        int size;
+
+        Postings(int id) {
+            this.id = id;
+        }
+
+        void add(int recipe, double amount, boolean isShort) {
+            if (size == recipes.length) {
+                recipes = Arrays.copyOf(recipes, size * 2);
+                amounts = Arrays.copyOf(amounts, size * 2);
+                this.isShort = Arrays.copyOf(this.isShort, size * 2);
+            }
+            recipes[size] = recipe;
+            amounts[size] = amount;
+            this.isShort[size] = isShort;
+            size++;
+        }
+    }
+
+    /**
+     * The numbers of the recipes with a name or category, in the order they were added.
+     */
+    static class RecipeList {
+        int[] recipes = new int[4];
+        int size;
+
+        void add(int recipe) {
+            if (size == recipes.length) {
+                recipes = Arrays.copyOf(recipes, size * 2);
+            }
+            recipes[size++] = recipe;
+        }
+    }
+
+    /**
+     * How a query finds its candidates: the index used, and the number of candidates it gives at most.
+     * The candidates are the numbers of the recipes in order, or `null` to check all recipes.
+     */
+    private static class Plan {
+        final String access;
+        final int estimate;
+        private final Supplier<int[]> candidates;
+
+        Plan(String access, int estimate, Supplier<int[]> candidates) {
+            this.access = access;
+            this.estimate = estimate;
+            this.candidates = candidates;
+        }
+
+        int[] candidates() {
+            return candidates.get();
+        }
+    }
+
+    /**
+     * The recipes' ingredient bitsets and the storage's in-stock bitset at one point in time.
+     */
+    static class PresenceFilter {
+        private final int[][] maskWords;
+        private final long[][] masks;
+        private final long[] inStock;
+        private final int size;
+
+        PresenceFilter(int[][] maskWords, long[][] masks, long[] inStock, int size) {
+            this.maskWords = maskWords;
+            this.masks = masks;
+            this.inStock = inStock;
+            this.size = size;
+        }
+
+        /**
+         * @param recipe The number of a recipe
+         * @return false if the storage had none of one of the ingredients the recipe needs more than 0 of,
+         * true if it had some of each, or if the recipe was added after the snapshot
+         */
+        boolean hasAllIngredients(int recipe) {
+            if (recipe >= size) {
+                return true;
+            }
+
+            var words = maskWords[recipe];
+            var bits = masks[recipe];
+            for (var j = 0; j < words.length; j++) {
+                var word = words[j];
+                var stock = word < inStock.length ? inStock[word] : 0;
+                if ((bits[j] & ~stock) != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * The k smallest (key, recipe) pairs offered so far, as a max-heap ordered by key and then by recipe.
+     */
+    static class BoundedHeap {
+        private final double[] keys;
+        private final int[] recipes;
+        private int size;
+
+        BoundedHeap(int capacity) {
+            keys = new double[capacity];
+            recipes = new int[capacity];
+        }
+
+        boolean isFull() {
+            return size == keys.length;
+        }
+
+        double worst() {
+            return keys[0];
+        }
+
+        /**
+         * Adds the pair if the heap is not full, or if it is smaller than the largest pair, which is then removed.
+         */
+        void offer(double key, int recipe) {
+            if (size < keys.length) {
+                var i = size++;
+                while (i > 0) {
+                    var parent = (i - 1) / 2;
+                    if (!isLess(keys[parent], recipes[parent], key, recipe)) {
+                        break;
+                    }
+                    keys[i] = keys[parent];
+                    recipes[i] = recipes[parent];
+                    i = parent;
+                }
+                keys[i] = key;
+                recipes[i] = recipe;
+            } else if (size > 0 && isLess(key, recipe, keys[0], recipes[0])) {
+                siftDown(key, recipe, size);
+            }
+        }
+
+        /**
+         * Empties the heap.
+         *
+         * @return The recipes, smallest pair first
+         */
+        int[] toSortedIndices() {
+            var sorted = new int[size];
+            for (var n = size; n > 0; n--) {
+                sorted[n - 1] = recipes[0];
+                siftDown(keys[n - 1], recipes[n - 1], n - 1);
+            }
+            size = 0;
+            return sorted;
+        }
+
+        /**
+         * Replaces the root with the pair and moves it down within the first n entries.
+         */
+        private void siftDown(double key, int recipe, int n) {
+            var i = 0;
+            while (true) {
+                var child = 2 * i + 1;
+                if (child >= n) {
+                    break;
+                }
+                if (child + 1 < n && isLess(keys[child], recipes[child], keys[child + 1], recipes[child + 1])) {
+                    child++;
+                }
+                if (!isLess(key, recipe, keys[child], recipes[child])) {
+                    break;
+                }
+                keys[i] = keys[child];
+                recipes[i] = recipes[child];
+                i = child;
+            }
+            keys[i] = key;
+            recipes[i] = recipe;
+        }
+
+        private static boolean isLess(double key1, int recipe1, double key2, int recipe2) {
+            return key1 < key2 || (key1 == key2 && recipe1 < recipe2);
+        }
+    }
+}
@@ -0,0 +1,451 @@
+package food;
+
+import java.util.Arrays;
+
+/**
+ * Single-pass parser for one line of the recipe format read by {@link RecipeReader}:
+ *
+ * name$category$nPortions$ingredient1;ingredient2;...$amount1;amount2;...
+ *
+ * The parser scans the characters for the `$` and `;` separators and parses numbers in place,
+ * so the only objects it creates are the recipe itself and its Strings. Names that have been
+ * seen before by the same parser are reused instead of copied again.
+ *
+ * A line is accepted exactly when the original `String.split`-based reader accepted it, with
+ * the same number syntax as {@link Integer#parseInt(String)} and {@link Double#parseDouble(String)}.
+ * Malformed lines give `null` instead of an exception.
+ * A parser is not thread-safe, since it reuses its buffers between lines.
+ */
+class RecipeLineParser {
+
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final NameTable names;
+    private int[] nameStarts;
+    private int[] nameEnds;
+    private double[] amounts;
+
+    RecipeLineParser() {
+        names = new NameTable();
+        nameStarts = new int[16];
+        nameEnds = new int[16];
+        amounts = new double[16];
+    }
+
+    /**
+     * Parse one line.
+     *
+     * @param line The characters holding the line
+     * @param start The index of the first character of the line
+     * @param end The index after the last character of the line, excluding the line terminator
+     * @return The recipe on the line, or null if the line is malformed
+     */
+    Recipe parse(char[] line, int start, int end) {
+        // The four column separators
+        var d0 = indexOf(line, start, end, '$');
+        var d1 = indexOf(line, d0 + 1, end, '$');
+        var d2 = indexOf(line, d1 + 1, end, '$');
+        var d3 = indexOf(line, d2 + 1, end, '$');
+        if (d0 == end || d1 == end || d2 == end || d3 == end) {
+            return null;
+        }
+
+        // The amount column must be non-empty, and may only be followed by empty columns
+        var amountsEnd = indexOf(line, d3 + 1, end, '$');
+        if (amountsEnd == d3 + 1) {
+            return null;
+        }
+        for (var i = amountsEnd; i < end; i++) {
+            if (line[i] != '$') {
+                return null;
+            }
+        }
+
+        var nPortions = parseInt(line, d1 + 1, d2);
+        if (nPortions == null) {
+            return null;
+        }
+
+        var nNames = splitNames(line, d2 + 1, d3);
+        if (!parseAmounts(line, d3 + 1, amountsEnd, nNames)) {
+            return null;
+        }
+
+        var ingredients = new IngredientContainer();
+        for (var i = 0; i < nNames; i++) {
+            ingredients.addIngredient(names.get(line, nameStarts[i], nameEnds[i]), amounts[i]);
+        }
+
+        return new Recipe(new String(line, start, d0 - start), names.get(line, d0 + 1, d1), nPortions, ingredients);
+    }
+
+    private static int indexOf(char[] line, int from, int end, char c) {
+        for (var i = from; i < end; i++) {
+            if (line[i] == c) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Finds the `;`-separated elements of `line[from .. to)` into nameStarts and nameEnds.
+     * Like `String.split`, trailing empty elements are dropped, and a range without separators is one element.
+     *
+     * @return The number of elements
+     */
+    private int splitNames(char[] line, int from, int to) {
+        var n = 0;
+        var elementStart = from;
+        for (var i = from; i <= to; i++) {
+            if (i == to || line[i] == ';') {
+                if (n == nameStarts.length) {
+                    nameStarts = Arrays.copyOf(nameStarts, n * 2);
+                    nameEnds = Arrays.copyOf(nameEnds, n * 2);
+                }
+                nameStarts[n] = elementStart;
+                nameEnds[n] = i;
+                n++;
+                elementStart = i + 1;
+            }
+        }
+
+        if (n == 1) {
+            return 1;
+        }
+        while (n > 0 && nameStarts[n - 1] == nameEnds[n - 1]) {
+            n--;
+        }
+        return n;
+    }
+
+    /**
+     * Parses the `;`-separated amounts of `line[from .. to)` into amounts. Every element must be a valid double,
+     * there must be at least one amount per ingredient, and the amounts of the ingredients must be positive.
+     *
+     * @return true if the amounts are valid
+     */
+    private boolean parseAmounts(char[] line, int from, int to, int nNames) {
+        // Trailing empty elements are dropped, like with String.split. The range is never empty.
+        var last = to;
+        while (last > from && line[last - 1] == ';') {
+            last--;
+        }
+
+        var n = 0;
+        var elementStart = from;
+        for (var i = from; i <= last && last > from; i++) {
+            if (i == last || line[i] == ';') {
+                if (n == amounts.length) {
+                    amounts = Arrays.copyOf(amounts, n * 2);
+                }
+                var amount = parseDouble(line, elementStart, i);
+                if (Double.isNaN(amount) && !isNaNLiteral(line, elementStart, i)) {
+                    return false;
+                }
+                amounts[n++] = amount;
+                elementStart = i + 1;
+            }
+        }
+
+        if (n < nNames) {
+            return false;
+        }
+        for (var i = 0; i < nNames; i++) {
+            if (amounts[i] <= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses an int with the syntax of {@link Integer#parseInt(String)}.
+     *
+     * @return The int, or null if the syntax is invalid or the value overflows
+     */
+    static Integer parseInt(char[] chars, int from, int to) {
+        if (from == to) {
+            return null;
+        }
+
+        var negative = false;
+        var i = from;
+        if (chars[i] == '-' || chars[i] == '+') {
+            negative = chars[i] == '-';
+            i++;
+            if (i == to) {
+                return null;
+            }
+        }
+
+        long value = 0;
+        for (; i < to; i++) {
+            var digit = Character.digit(chars[i], 10);
+            if (digit < 0) {
+                return null;
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                return null;
+            }
+        }
+
+        if (negative) {
+            value = -value;
+        }
+        if (value > Integer.MAX_VALUE) {
+            return null;
+        }
+        return (int) value;
+    }
+
+    /**
+     * Parses a double with the syntax of {@link Double#parseDouble(String)}, including surrounding whitespace,
+     * `NaN`, `Infinity`, exponents, hexadecimal notation and `f`/`d` suffixes.
+     * Plain decimals with at most 15 significant digits are converted exactly in place, anything else is
+     * converted by Double.parseDouble after the syntax has been checked.
+     *
+     * @return The double, or NaN if the syntax is invalid
+     */
+    static double parseDouble(char[] chars, int from, int to) {
+        // Trim like String.trim()
+        while (from < to && chars[from] <= ' ') {
+            from++;
+        }
+        while (to > from && chars[to - 1] <= ' ') {
+            to--;
+        }
+        if (from == to) {
+            return Double.NaN;
+        }
+
+        var i = from;
+        var negative = false;
+        if (chars[i] == '-' || chars[i] == '+') {
+            negative = chars[i] == '-';
+            i++;
+        }
+        if (i == to) {
+            return Double.NaN;
+        }
+
+        if (chars[i] == 'N') {
+            // Callers tell a NaN literal from invalid syntax with isNaNLiteral
+            return Double.NaN;
+        }
+        if (chars[i] == 'I') {
+            if (!matches(chars, i, to, "Infinity")) {
+                return Double.NaN;
+            }
+            return negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        }
+        if (chars[i] == '0' && i + 1 < to && (chars[i + 1] == 'x' || chars[i + 1] == 'X')) {
+            return isHexDouble(chars, i + 2, to) ? Double.parseDouble(new String(chars, from, to - from)) : Double.NaN;
+        }
+
+        long mantissa = 0;
+        var significantDigits = 0;
+        var digits = 0;
+        var fractionDigits = 0;
+        var seenPoint = false;
+        for (; i < to; i++) {
+            var c = chars[i];
+            if (c >= '0' && c <= '9') {
+                digits++;
+                if (seenPoint) {
+                    fractionDigits++;
+                }
+                if (significantDigits > 0 || c != '0') {
+                    significantDigits++;
+                    if (significantDigits <= 18) {
+                        mantissa = mantissa * 10 + (c - '0');
+                    }
+                }
+            } else if (c == '.' && !seenPoint) {
+                seenPoint = true;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0) {
+            return Double.NaN;
+        }
+
+        var exponent = 0;
+        var exponentOverflow = false;
+        if (i < to && (chars[i] == 'e' || chars[i] == 'E')) {
+            i++;
+            var negativeExponent = false;
+            if (i < to && (chars[i] == '-' || chars[i] == '+')) {
+                negativeExponent = chars[i] == '-';
+                i++;
+            }
+            var exponentStart = i;
+            for (; i < to && chars[i] >= '0' && chars[i] <= '9'; i++) {
+                if (exponent < 100_000) {
+                    exponent = exponent * 10 + (chars[i] - '0');
+                } else {
+                    exponentOverflow = true;
+                }
+            }
+            if (i == exponentStart) {
+                return Double.NaN;
+            }
+            if (negativeExponent) {
+                exponent = -exponent;
+            }
+        }
+
+        if (i < to) {
+            var c = chars[i];
+            if (i != to - 1 || (c != 'f' && c != 'F' && c != 'd' && c != 'D')) {
+                return Double.NaN;
+            }
+        }
+
+        var exponent10 = exponent - fractionDigits;
+        if (significantDigits <= 15 && !exponentOverflow && exponent10 >= -22 && exponent10 <= 22) {
+            // Both operands are exact, so a single multiplication or division is correctly rounded
+            double value = mantissa;
+            value = exponent10 >= 0 ? value * POWERS_OF_TEN[exponent10] : value / POWERS_OF_TEN[-exponent10];
+            return negative ? -value : value;
+        }
+
+        return Double.parseDouble(new String(chars, from, to - from));
+    }
+
+    private static boolean isNaNLiteral(char[] chars, int from, int to) {
+        while (from < to && chars[from] <= ' ') {
+            from++;
+        }
+        while (to > from && chars[to - 1] <= ' ') {
+            to--;
+        }
+        if (from < to && (chars[from] == '-' || chars[from] == '+')) {
+            from++;
+        }
+        return matches(chars, from, to, "NaN");
+    }
+
+    private static boolean matches(char[] chars, int from, int to, String literal) {
+        if (to - from != literal.length()) {
+            return false;
+        }
+        for (var i = 0; i < literal.length(); i++) {
+            if (chars[from + i] != literal.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks the part of a hexadecimal double after `0x`: hex digits with an optional point, at least one digit,
+     * then a mandatory binary exponent and an optional `f`/`d` suffix.
+     */
+    private static boolean isHexDouble(char[] chars, int i, int to) {
+        var digits = 0;
+        var seenPoint = false;
+        for (; i < to; i++) {
+            var c = chars[i];
+            if ((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F')) {
+                digits++;
+            } else if (c == '.' && !seenPoint) {
+                seenPoint = true;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0 || i == to || (chars[i] != 'p' && chars[i] != 'P')) {
+            return false;
+        }
+
+        i++;
+        if (i < to && (chars[i] == '-' || chars[i] == '+')) {
+            i++;
+        }
+        var exponentStart = i;
+        while (i < to && chars[i] >= '0' && chars[i] <= '9') {
+            i++;
+        }
+        if (i == exponentStart) {
+            return false;
+        }
+
+        if (i == to) {
+            return true;
+        }
+        var c = chars[i];
+        return i == to - 1 && (c == 'f' || c == 'F' || c == 'd' || c == 'D');
+    }
+
+    /**
+     * Open addressing table of Strings that can be looked up by a range of chars, so a name that has been
+     * seen before is found without creating a new String.
+     */
+    private static class NameTable {
+        private static final int MAX_SIZE = 1 << 16;
+
+        private String[] table = new String[1024];
+        private int size;
+
+        String get(char[] chars, int from, int to) {
+            var hash = 0;
+            for (var i = from; i < to; i++) {
+                hash = 31 * hash + chars[i];
+            }
+
+            var mask = table.length - 1;
+            var slot = (hash ^ (hash >>> 16)) & mask;
+            while (table[slot] != null) {
+                var candidate = table[slot];
+                if (candidate.hashCode() == hash && equals(candidate, chars, from, to)) {
+                    return candidate;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            var name = new String(chars, from, to - from);
+            if (size < MAX_SIZE) {
+                table[slot] = name;
+                size++;
+                if (size * 2 > table.length) {
+                    grow();
+                }
+            }
+            return name;
+        }
+
+        private static boolean equals(String candidate, char[] chars, int from, int to) {
+            if (candidate.length() != to - from) {
+                return false;
+            }
+            for (var i = 0; i < candidate.length(); i++) {
+                if (candidate.charAt(i) != chars[from + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void grow() {
+            var old = table;
+            table = new String[old.length * 2];
+            var mask = table.length - 1;
+            for (var name : old) {
+                if (name != null) {
+                    var hash = name.hashCode();
+                    var slot = (hash ^ (hash >>> 16)) & mask;
+                    while (table[slot] != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    table[slot] = name;
+                }
+            }
+        }
+    }
+}
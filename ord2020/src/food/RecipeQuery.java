@@ -0,0 +1,200 @@
+package food;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * A query on a kitchen's recipes, made of clauses that must all hold, e.g.
+ *
+ * new RecipeQuery().category("Dinner").namePrefix("Pasta").portions(2, 4).with("garlic").without("cream")
+ *
+ * Unlike an opaque {@link Predicate}, a query lets {@link Kitchen#findRecipes(RecipeQuery)} look up the
+ * candidates in an index and check the other clauses against those only. A query is also a predicate,
+ * so {@link Kitchen#filterRecipes(Predicate)} gives the same recipes by scanning.
+ */
+public class RecipeQuery implements Predicate<Recipe> {
+
+    private boolean hasCategory;
+    private String category;
+    private String namePrefix;
+    private int minPortions;
+    private int maxPortions;
+    private final List<String> required;
+    private final List<String> excluded;
+    private final List<Predicate<Recipe>> predicates;
+
+    /**
+     * Create a query matching every recipe.
+     */
+    public RecipeQuery() {
+        minPortions = Integer.MIN_VALUE;
+        maxPortions = Integer.MAX_VALUE;
+        required = new ArrayList<>();
+        excluded = new ArrayList<>();
+        predicates = new ArrayList<>();
+    }
+
+    /**
+     * @param category The category the recipes must have, which may be `null`
+     * @return This query
+     */
+    public RecipeQuery category(String category) {
+        hasCategory = true;
+        this.category = category;
+        return this;
+    }
+
+    /**
+     * @param prefix The prefix the recipes' names must start with
+     * @return This query
+     */
+    public RecipeQuery namePrefix(String prefix) {
+        namePrefix = Objects.requireNonNull(prefix);
+        return this;
+    }
+
+    /**
+     * @param min The fewest portions the recipes may make
+     * @param max The most portions the recipes may make
+     * @return This query
+     * @throws IllegalArgumentException if min is larger than max
+     */
+    public RecipeQuery portions(int min, int max) {
+        if (min > max) {
+            throw new IllegalArgumentException("Empty portion range " + min + ".." + max);
+        }
+
+        minPortions = min;
+        maxPortions = max;
+        return this;
+    }
+
+    /**
+     * @param ingredients Ingredients the recipes must use
+     * @return This query
+     */
+    public RecipeQuery with(String... ingredients) {
+        Collections.addAll(required, ingredients);
+        return this;
+    }
+
+    /**
+     * @param ingredients Ingredients the recipes must not use
+     * @return This query
+     */
+    public RecipeQuery without(String... ingredients) {
+        Collections.addAll(excluded, ingredients);
+        return this;
+    }
+
+    /**
+     * @param predicate Any other condition the recipes must fulfill, which is checked after the indexed clauses
+     * @return This query
+     */
+    public RecipeQuery where(Predicate<Recipe> predicate) {
+        predicates.add(Objects.requireNonNull(predicate));
+        return this;
+    }
+
+    /**
+     * @return true if the query has a category clause
+     */
+    public boolean hasCategory() {
+        return hasCategory;
+    }
+
+    /**
+     * @return The category the recipes must have, if {@link #hasCategory()}
+     */
+    public String getCategory() {
+        return category;
+    }
+
+    /**
+     * @return The prefix the recipes' names must start with, or `null` if any name matches
+     */
+    public String getNamePrefix() {
+        return namePrefix;
+    }
+
+    /**
+     * @return The ingredients the recipes must use
+     */
+    public List<String> getRequiredIngredients() {
+        return Collections.unmodifiableList(required);
+    }
+
+    /**
+     * @return The ingredients the recipes must not use
+     */
+    public List<String> getExcludedIngredients() {
+        return Collections.unmodifiableList(excluded);
+    }
+
+    /**
+     * Check all the clauses of the query.
+     *
+     * @param recipe The recipe to check
+     * @return true if the recipe matches the query
+     */
+    @Override
+    public boolean test(Recipe recipe) {
+        if (hasCategory && !Objects.equals(category, recipe.getCategory())) {
+            return false;
+        }
+        if (namePrefix != null && (recipe.getName() == null || !recipe.getName().startsWith(namePrefix))) {
+            return false;
+        }
+        if (recipe.getNPortions() < minPortions || recipe.getNPortions() > maxPortions) {
+            return false;
+        }
+
+        var names = recipe.getIngredients().getIngredientNames();
+        for (var ingredient : required) {
+            if (!names.contains(ingredient)) {
+                return false;
+            }
+        }
+        for (var ingredient : excluded) {
+            if (names.contains(ingredient)) {
+                return false;
+            }
+        }
+        for (var predicate : predicates) {
+            if (!predicate.test(recipe)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The clauses of the query
+     */
+    @Override
+    public String toString() {
+        var clauses = new ArrayList<String>();
+        if (hasCategory) {
+            clauses.add("category = " + category);
+        }
+        if (namePrefix != null) {
+            clauses.add("name starts with " + namePrefix);
+        }
+        if (minPortions != Integer.MIN_VALUE || maxPortions != Integer.MAX_VALUE) {
+            clauses.add("portions in " + minPortions + ".." + maxPortions);
+        }
+        for (var ingredient : required) {
+            clauses.add("with " + ingredient);
+        }
+        for (var ingredient : excluded) {
+            clauses.add("without " + ingredient);
+        }
+        if (!predicates.isEmpty()) {
+            clauses.add(predicates.size() + " predicate(s)");
+        }
+        return clauses.isEmpty() ? "all recipes" : String.join(", ", clauses);
+    }
+}
@@ -0,0 +1,106 @@
+package food;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class RecipeQueryTest {
+
+	private static final String[] CATEGORIES = { "Dinner", "Dessert", "Breakfast", null };
+
+	private Kitchen kitchen;
+
+	@Before
+	public void setup() {
+		Random random = new Random(11);
+		Recipe[] recipes = new Recipe[2000];
+		for (int r = 0; r < recipes.length; r++) {
+			IngredientContainer ingredients = new IngredientContainer();
+			for (int i = 0; i < 4; i++) {
+				ingredients.addIngredient("ingredient" + random.nextInt(100), 1);
+			}
+			ingredients.addIngredient(r % 500 == 0 ? "saffron" : "salt", 1);
+			recipes[r] = new Recipe((r % 3 == 0 ? "Pasta " : "Pancakes ") + r, CATEGORIES[r % 4], 1 + r % 6, ingredients);
+		}
+		kitchen = new Kitchen(recipes);
+	}
+
+	private void assertSameAsScan(RecipeQuery query) {
+		assertEquals(query.toString(), kitchen.filterRecipes(query), kitchen.findRecipes(query));
+	}
+
+	@Test
+	public void testSameAsScan() {
+		Random random = new Random(5);
+		for (int q = 0; q < 200; q++) {
+			RecipeQuery query = new RecipeQuery();
+			if (random.nextBoolean()) {
+				query.category(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+			}
+			if (random.nextBoolean()) {
+				query.namePrefix(List.of("Pa", "Pasta 1", "Pancakes 19", "X", "").get(random.nextInt(5)));
+			}
+			if (random.nextBoolean()) {
+				int min = random.nextInt(6);
+				query.portions(min, min + random.nextInt(3));
+			}
+			for (int i = random.nextInt(3); i > 0; i--) {
+				query.with("ingredient" + random.nextInt(110));
+			}
+			if (random.nextBoolean()) {
+				query.without("ingredient" + random.nextInt(100));
+			}
+			assertSameAsScan(query);
+		}
+	}
+
+	@Test
+	public void testPicksMostSelectiveIndex() {
+		assertTrue(kitchen.explain(new RecipeQuery().portions(1, 2)).startsWith("scan: 2000 candidates"));
+		assertTrue(kitchen.explain(new RecipeQuery().category("Dinner").with("saffron")).startsWith("ingredient index: 4 candidates"));
+		assertTrue(kitchen.explain(new RecipeQuery().category("Dinner").with("salt")).startsWith("category index: 500 candidates"));
+		assertTrue(kitchen.explain(new RecipeQuery().with("salt").namePrefix("Pancakes 19")).startsWith("name index: 75 candidates"));
+		assertTrue(kitchen.explain(new RecipeQuery().with("truffle")).startsWith("ingredient index: 0 candidates"));
+	}
+
+	@Test
+	public void testResidualPredicate() {
+		RecipeQuery query = new RecipeQuery().with("saffron").where(r -> r.getNPortions() > 1);
+		assertEquals(2, kitchen.findRecipes(query).size());
+		assertSameAsScan(query);
+	}
+
+	@Test
+	public void testUnknownCategory() {
+		RecipeQuery query = new RecipeQuery().category("Lunch");
+		assertTrue(kitchen.findRecipes(query).isEmpty());
+		assertTrue(kitchen.explain(query).startsWith("category index: 0 candidates"));
+		assertSameAsScan(query.namePrefix("Pa"));
+	}
+
+	@Test
+	public void testResidualPredicateDoesNotBlockChanges() {
+		// The predicate waits for another thread to add a recipe, which needs the index's lock
+		Recipe added = new Recipe("Pasta added", "Dinner", 2, new IngredientContainer());
+		RecipeQuery query = new RecipeQuery().with("saffron").where(r -> {
+			Thread thread = new Thread(() -> kitchen.addRecipe(added));
+			thread.start();
+			try {
+				thread.join(10_000);
+			} catch (InterruptedException e) {}
+			return !thread.isAlive();
+		});
+		assertEquals(4, kitchen.findRecipes(query).size());
+		assertEquals(added, kitchen.getRecipe("Pasta added"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testEmptyPortionRange() {
+		new RecipeQuery().portions(3, 2);
+	}
+}
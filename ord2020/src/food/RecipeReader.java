@@ -1,16 +1,30 @@
 package food;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class RecipeReader {
 
-    // regex for column separator
-    private final String columnSeparatorRegex = "\\$";
-    private final String elementSeparatorRegex = ";";
+    private static final long MIN_CHUNK_SIZE = 1 << 20;
+    private static final long MAX_CHUNK_SIZE = 64 << 20;
 
     /**
      * Read recipes from an InputStream with the given format:
@@ -26,57 +40,270 @@ public class RecipeReader {
      * Note that the first line of the stream is the header, and so should not be used.
      * If a line (i.e. a single recipe) fails to be parsed correctly, that recipe is to be skipped.
      *
+     * Lines are parsed in a single pass over a reused buffer, see {@link RecipeLineParser}.
+     *
      * @param input The source to read from
      * @throws IOException if input (InputStream) throws IOException
      */
     public List<Recipe> readRecipes(InputStream input) throws IOException {
         var recipes = new ArrayList<Recipe>();
-        var in = new BufferedReader(new InputStreamReader(input));
+        readRecipes(input, recipes::add);
+        return recipes;
+    }
 
-        try {
-            var iter = in.lines().iterator();
-            iter.next();
+    /**
+     * Read recipes from an InputStream in the format of {@link #readRecipes(InputStream)}, passing each recipe
+     * to a callback as soon as its line is parsed instead of collecting them.
+     *
+     * @param input The source to read from, which is closed afterwards
+     * @param consumer The callback to pass the recipes to, in the order they are read
+     * @throws IOException if input (InputStream) throws IOException
+     */
+    public void readRecipes(InputStream input, Consumer<Recipe> consumer) throws IOException {
+        var started = KitchenMetrics.start();
+        try (var recipes = new RecipeIterator(new InputStreamReader(input))) {
+            while (recipes.hasNextRecipe()) {
+                consumer.accept(recipes.next());
+            }
+        } finally {
+            KitchenMetrics.record(KitchenOperation.READ_RECIPES, started);
+        }
+    }
 
-            while (iter.hasNext()) {
-                var line = iter.next();
-                var segments = line.split(columnSeparatorRegex);
-                if (segments.length != 5) {
-                    continue;
-                }
+    /**
+     * Read recipes lazily from an InputStream in the format of {@link #readRecipes(InputStream)}.
+     * A line is read and parsed only when the stream asks for the next recipe, so memory use is bounded by
+     * the longest line rather than by the size of the input.
+     *
+     * The stream should be closed, e.g. with try-with-resources, which closes input. An IOException
+     * while reading is thrown from the stream's terminal operation as an {@link UncheckedIOException}.
+     *
+     * @param input The source to read from
+     * @return A sequential stream of the recipes, in the order they are read
+     */
+    public Stream<Recipe> streamRecipes(InputStream input) {
+        var recipes = new RecipeIterator(new InputStreamReader(input));
+        var spliterator = Spliterators.spliteratorUnknownSize(recipes, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(recipes::closeUnchecked);
+    }
 
-                var name = segments[0];
-                var category = segments[1];
-                Integer nPortions;
-                try {
-                    nPortions = Integer.parseInt(segments[2]);
-                } catch (NumberFormatException e) {
-                    continue;
-                }
+    /**
+     * Read recipes from a file in the common pool.
+     *
+     * @see #readRecipes(Path, ForkJoinPool)
+     */
+    public List<Recipe> readRecipes(Path path) throws IOException {
+        return readRecipes(path, ForkJoinPool.commonPool());
+    }
 
-                var ingredientNames = segments[3].split(elementSeparatorRegex);
-                List<Double> amounts;
+    /**
+     * Read recipes from a file, in the same format as {@link #readRecipes(InputStream)}, skipping the header
+     * and malformed lines the same way.
+     *
+     * The file is split into chunks at line boundaries, and the chunks are memory-mapped, decoded and parsed
+     * in parallel. The recipes are returned in file order. The file is decoded with the default charset,
+     * which like UTF-8 must encode `\n` as a single byte that is not part of any other character.
+     *
+     * @param path The file to read from
+     * @param pool The pool to parse the chunks in
+     * @throws IOException if the file cannot be read
+     */
+    public List<Recipe> readRecipes(Path path, ForkJoinPool pool) throws IOException {
+        var started = KitchenMetrics.start();
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            var bounds = chunkBounds(channel, pool.getParallelism());
+
+            var tasks = new ArrayList<ForkJoinTask<List<Recipe>>>();
+            for (var i = 0; i + 1 < bounds.length; i++) {
+                var start = bounds[i];
+                var end = bounds[i + 1];
+                var hasHeader = i == 0;
+                tasks.add(pool.submit(() -> {
+                    try {
+                        return readChunk(channel, start, end, hasHeader);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+            }
+
+            var recipes = new ArrayList<Recipe>();
+            for (var task : tasks) {
                 try {
-                    amounts = Arrays.stream(segments[4].split(elementSeparatorRegex)).map(Double::parseDouble).collect(Collectors.toList());
-                } catch (NumberFormatException | NullPointerException e) {
-                    continue;
+                    recipes.addAll(task.join());
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
                 }
+            }
+            return recipes;
+        } finally {
+            KitchenMetrics.record(KitchenOperation.READ_RECIPES, started);
+        }
+    }
+
+    /**
+     * Splits the file into chunks of roughly equal size, each starting at the start of a line.
+     * There are a few chunks per thread, so a slow chunk does not hold up the others for long.
+     *
+     * @return The start of each chunk, followed by the size of the file
+     */
+    private static long[] chunkBounds(FileChannel channel, int parallelism) throws IOException {
+        var size = channel.size();
+        var chunkSize = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, size / (parallelism * 4L) + 1));
+
+        var bounds = new long[16];
+        var n = 1;
+        var probe = ByteBuffer.allocate(8192);
+        var lineStart = nextLineStart(channel, chunkSize - 1, size, probe);
+        while (lineStart < size) {
+            if (n + 1 == bounds.length) {
+                bounds = Arrays.copyOf(bounds, n * 2);
+            }
+            bounds[n++] = lineStart;
+            lineStart = nextLineStart(channel, lineStart + chunkSize - 1, size, probe);
+        }
+        bounds[n++] = size;
 
-                var ingredients = new IngredientContainer();
-                for (var i = 0; i < ingredientNames.length; i++) {
-                    ingredients.addIngredient(ingredientNames[i], amounts.get(i));
+        return Arrays.copyOf(bounds, n);
+    }
+
+    /**
+     * @return The position after the first `\n` at or after `position`, or `size` if there is none
+     */
+    private static long nextLineStart(FileChannel channel, long position, long size, ByteBuffer probe) throws IOException {
+        while (position < size) {
+            probe.clear();
+            var n = channel.read(probe, position);
+            if (n <= 0) {
+                break;
+            }
+            for (var i = 0; i < n; i++) {
+                if (probe.get(i) == '\n') {
+                    return position + i + 1;
                 }
-                recipes.add(new Recipe(name, category, nPortions, ingredients));
             }
-        } finally {
-            in.close();
+            position += n;
         }
+        return size;
+    }
+
+    private static List<Recipe> readChunk(FileChannel channel, long start, long end, boolean hasHeader) throws IOException {
+        var bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        var chars = Charset.defaultCharset().newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                .decode(bytes);
 
+        var recipes = new ArrayList<Recipe>();
+        var lines = new LineScanner(chars.array(), chars.limit());
+        var parser = new RecipeLineParser();
+        if (hasHeader && !lines.next()) {
+            return recipes;
+        }
+
+        while (lines.next()) {
+            var recipe = parser.parse(lines.buffer(), lines.start(), lines.end());
+            if (recipe != null) {
+                recipes.add(recipe);
+            }
+        }
         return recipes;
     }
 
+    /**
+     * Reads the sample recipes, or times reading the file given as the first argument
+     * from a stream and from a memory-mapped file.
+     * @param args
+     * @throws IOException
+     */
     public static void main(String[] args) throws IOException {
+        if (args.length > 0) {
+            var path = Path.of(args[0]);
+            var reader = new RecipeReader();
+            for (var run = 0; run < 5; run++) {
+                var start = System.nanoTime();
+                var streamed = reader.readRecipes(Files.newInputStream(path)).size();
+                var middle = System.nanoTime();
+                var mapped = reader.readRecipes(path).size();
+                var end = System.nanoTime();
+                System.out.printf("stream: %d recipes in %.1f ms, mapped: %d recipes in %.1f ms%n",
+                        streamed, (middle - start) / 1e6, mapped, (end - middle) / 1e6);
+            }
+            return;
+        }
+
         // read from sample file
         List<Recipe> recipes = new RecipeReader().readRecipes(RecipeReader.class.getResourceAsStream("sample-recipes.txt"));
         System.out.println(recipes);
     }
+
+    /**
+     * Iterates over the recipes of a Reader, skipping the header and malformed lines.
+     */
+    private static class RecipeIterator implements Iterator<Recipe>, Closeable {
+        private final Reader in;
+        private final LineScanner lines;
+        private final RecipeLineParser parser;
+        private Recipe next;
+        private boolean started;
+        private boolean done;
+
+        RecipeIterator(Reader in) {
+            this.in = in;
+            lines = new LineScanner(in);
+            parser = new RecipeLineParser();
+        }
+
+        /**
+         * @return true if there is another recipe
+         * @throws IOException if the Reader throws IOException
+         */
+        boolean hasNextRecipe() throws IOException {
+            if (!started) {
+                started = true;
+                done = !lines.next();
+            }
+            while (next == null && !done) {
+                if (lines.next()) {
+                    next = parser.parse(lines.buffer(), lines.start(), lines.end());
+                } else {
+                    done = true;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                return hasNextRecipe();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public Recipe next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            var recipe = next;
+            next = null;
+            return recipe;
+        }
+
+        @Override
+        public void close() throws IOException {
+            done = true;
+            in.close();
+        }
+
+        void closeUnchecked() {
+            try {
+                close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
 }
@@ -0,0 +1,204 @@
+package food;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+public class RecipeReaderTest {
+	private static final double EPSILON = 0.0001;
+
+	private List<Recipe> read(String text) throws IOException {
+		return new RecipeReader().readRecipes(new ByteArrayInputStream(text.getBytes(Charset.defaultCharset())));
+	}
+
+	private Recipe parse(String line) {
+		return new RecipeLineParser().parse(line.toCharArray(), 0, line.length());
+	}
+
+	@Test
+	public void testReadRecipes() throws IOException {
+		List<Recipe> recipes = read("name$category$nPortions$ingredients$amounts\n"
+				+ "Pancakes$Dessert$4$egg;milk;flour$2.0;500;2.5e2\r\n"
+				+ "Toast$Breakfast$1$bread$2\r"
+				+ "Soup$Dinner$2$water;salt;$1000;5;\n");
+
+		assertEquals(3, recipes.size());
+		assertEquals("Pancakes", recipes.get(0).getName());
+		assertEquals("Dessert", recipes.get(0).getCategory());
+		assertEquals(4, recipes.get(0).getNPortions());
+		assertEquals(250.0, recipes.get(0).getIngredients().getIngredientAmount("flour"), EPSILON);
+		assertEquals(2.0, recipes.get(1).getIngredients().getIngredientAmount("bread"), EPSILON);
+		assertEquals(5.0, recipes.get(2).getIngredients().getIngredientAmount("salt"), EPSILON);
+		IngredientContainerTest.assertCollectionsContainTheSame(List.of("water", "salt"), recipes.get(2).getIngredients().getIngredientNames());
+	}
+
+	@Test
+	public void testSkipsMalformedLines() throws IOException {
+		List<Recipe> recipes = read("header\n"
+				+ "Too$few$1$columns\n"
+				+ "Too$many$1$a$1$b\n"
+				+ "Bad$portions$four$a$1\n"
+				+ "Bad$amount$1$a;b$1;x\n"
+				+ "Missing$amount$1$a;b$1\n"
+				+ "Negative$amount$1$a$-1\n"
+				+ "Good$one$1$a$1\n");
+
+		assertEquals(1, recipes.size());
+		assertEquals("Good", recipes.get(0).getName());
+		assertEquals(0, read("").size());
+	}
+
+	@Test
+	public void testSameAsSplitting() {
+		// Trailing empty columns are ignored, like with String.split
+		assertEquals(1, parse("a$b$1$x$2$$").getNPortions());
+		assertNull(parse("a$b$1$x$"));
+		assertNull(parse("a$b$1$x$$2"));
+		// An empty ingredient list is one ingredient with an empty name
+		assertEquals(2.0, parse("a$b$1$$2").getIngredients().getIngredientAmount(""), EPSILON);
+		assertEquals(-3, parse("a$b$-3$x$2").getNPortions());
+		assertNull(parse("a$b$2147483648$x$2"));
+		assertEquals(2.0, parse("a$b$1$x;x$1;1;3").getIngredients().getIngredientAmount("x"), EPSILON);
+	}
+
+	@Test
+	public void testParseDouble() {
+		String[] valid = { "1", "-0.5", " 2.5 ", "1e3", "1E-3", ".5", "5.", "2f", "3D", "0x1p3", "0x1.8P-1", "Infinity",
+				"0.1", "123456789012345678901234567890", "1e400", "4.9e-324", "0.30000000000000004" };
+		for (String s : valid) {
+			char[] chars = s.toCharArray();
+			assertEquals(s, Double.parseDouble(s), RecipeLineParser.parseDouble(chars, 0, chars.length), 0);
+		}
+
+		String[] invalid = { "", " ", "-", ".", "e3", "1e", "1.2.3", "1x", "0x1", "0xp1", "Inf", "1ff" };
+		for (String s : invalid) {
+			char[] chars = s.toCharArray();
+			assertTrue(s, Double.isNaN(RecipeLineParser.parseDouble(chars, 0, chars.length)));
+		}
+	}
+
+	@Test
+	public void testRepeatedNamesAreShared() {
+		RecipeLineParser parser = new RecipeLineParser();
+		char[] first = "a$Dessert$1$sugar$1".toCharArray();
+		char[] second = "b$Dessert$1$sugar$2".toCharArray();
+		Recipe a = parser.parse(first, 0, first.length);
+		Recipe b = parser.parse(second, 0, second.length);
+
+		assertSame(a.getCategory(), b.getCategory());
+		assertSame(a.getIngredients().getIngredientNames().iterator().next(), b.getIngredients().getIngredientNames().iterator().next());
+	}
+
+	@Test
+	public void testLongLinesAcrossBuffers() throws IOException {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 20000; i++) {
+			text.append("line").append(i).append(i % 2 == 0 ? "\r\n" : "\n");
+		}
+		String longLine = "x".repeat(200_000);
+		text.append(longLine);
+
+		LineScanner lines = new LineScanner(new StringReader(text.toString()));
+		for (int i = 0; i < 20000; i++) {
+			assertTrue(lines.next());
+			assertEquals("line" + i, new String(lines.buffer(), lines.start(), lines.end() - lines.start()));
+		}
+		assertTrue(lines.next());
+		assertEquals(longLine.length(), lines.end() - lines.start());
+		assertFalse(lines.next());
+	}
+
+	@Test
+	public void testReadMappedFile() throws IOException {
+		// Large enough to be split into several chunks
+		StringBuilder text = new StringBuilder("name$category$nPortions$ingredients$amounts\r\n");
+		for (int i = 0; i < 40000; i++) {
+			if (i % 7 == 0) {
+				text.append("Bad$line$").append(i).append("\n");
+			} else {
+				text.append("Recipe ").append(i).append("$Category$").append(i % 8 + 1)
+						.append("$ingredient a;ingredient b;ingredient ").append(i % 100)
+						.append("$1.5;2;").append(i).append(i % 3 == 0 ? "\r\n" : "\n");
+			}
+		}
+		Path file = Files.createTempFile("recipes", ".txt");
+		try {
+			Files.writeString(file, text, Charset.defaultCharset());
+			List<Recipe> expected = read(text.toString());
+			ForkJoinPool pool = new ForkJoinPool(4);
+			List<Recipe> recipes = new RecipeReader().readRecipes(file, pool);
+			pool.shutdown();
+
+			assertEquals(expected.size(), recipes.size());
+			for (int i = 0; i < expected.size(); i++) {
+				assertEquals(expected.get(i).getName(), recipes.get(i).getName());
+				assertEquals(expected.get(i).getNPortions(), recipes.get(i).getNPortions());
+				assertEquals(expected.get(i).getIngredients().toString(), recipes.get(i).getIngredients().toString());
+			}
+
+			Files.writeString(file, "");
+			assertEquals(0, new RecipeReader().readRecipes(file).size());
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	/**
+	 * An endless recipe file, which can only be read lazily.
+	 */
+	private static class EndlessRecipes extends InputStream {
+		private byte[] line = "header\n".getBytes();
+		private int position;
+		private int lines;
+		private boolean closed;
+
+		@Override
+		public int read() {
+			if (position == line.length) {
+				lines++;
+				line = (lines % 2 == 0 ? "bad line\n" : "Recipe " + lines + "$Dinner$2$potato;salt$4;0.5\n").getBytes();
+				position = 0;
+			}
+			return line[position++];
+		}
+
+		@Override
+		public void close() {
+			closed = true;
+		}
+	}
+
+	@Test
+	public void testStreamRecipes() {
+		EndlessRecipes input = new EndlessRecipes();
+		try (Stream<Recipe> recipes = new RecipeReader().streamRecipes(input)) {
+			List<String> names = recipes.limit(3).map(Recipe::getName).collect(Collectors.toList());
+			assertEquals(List.of("Recipe 1", "Recipe 3", "Recipe 5"), names);
+		}
+		assertTrue(input.closed);
+	}
+
+	@Test
+	public void testReadRecipesWithCallback() throws IOException {
+		StringBuilder names = new StringBuilder();
+		new RecipeReader().readRecipes(new ByteArrayInputStream("header\na$b$1$x$1\nbad\nc$d$1$x$1".getBytes()),
+				recipe -> names.append(recipe.getName()));
+		assertEquals("ac", names.toString());
+	}
+}
@@ -1,6 +1,9 @@
 package food;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import java.util.Collection;
 import java.util.Map;
@@ -42,4 +45,80 @@ public class RecipeTest {
 		Collection<String> expectedNames2 = Set.of("food1", "food2", "food3");
 		IngredientContainerTest.assertCollectionsContainTheSame(expectedNames2, r3.getIngredients().getIngredientNames());
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testCreateNPortionsUsingDelegation() {
+		IngredientContainer ig = createIG(Map.of("food1", 10.0, "food2", 31.0));
+		Recipe r = new Recipe("Recipe", "Dinner", 4, ig);
+
+		Recipe r2 = r.createNPortionsUsingDelegation(8);
+		assertEquals(20.0, r2.getIngredients().getIngredientAmount("food1"), EPSILON);
+		assertEquals(62.0, r2.getIngredients().getIngredientAmount("food2"), EPSILON);
+
+		// Scaling a scaled recipe composes the factors
+		Recipe r3 = r2.createNPortionsUsingDelegation(2);
+		assertEquals(5.0, r3.getIngredients().getIngredientAmount("food1"), EPSILON);
+		assertEquals(0.5, ((ScaledIngredients) r3.getIngredients()).getScale(), EPSILON);
+
+		// Changes to the original ingredients show through
+		ig.addIngredient("food3", 4.0);
+		assertEquals(8.0, r2.getIngredients().getIngredientAmount("food3"), EPSILON);
+		IngredientContainerTest.assertCollectionsContainTheSame(Set.of("food1", "food2", "food3"), r3.getIngredients().getIngredientNames());
+	}
+
+	@Test
+	public void testScaledRecipeCache() {
+		ScaledRecipeCache cache = new ScaledRecipeCache(2);
+		Recipe r = new Recipe("Recipe", "Dinner", 4, createIG(Map.of("food1", 10.0)));
+		Recipe other = new Recipe("Recipe", "Dinner", 4, createIG(Map.of("food1", 10.0)));
+
+		Recipe r8 = cache.get(r, 8);
+		assertEquals(20.0, r8.getIngredients().getIngredientAmount("food1"), EPSILON);
+		assertSame(r8, cache.get(r, 8));
+		// Recipes are compared by identity
+		assertNotSame(r8, cache.get(other, 8));
+		assertEquals(1, cache.getHits());
+		assertEquals(2, cache.getMisses());
+
+		// r8 was used more recently than other's, so other's is evicted
+		cache.get(r, 8);
+		cache.get(r, 2);
+		assertEquals(2, cache.size());
+		assertSame(r8, cache.get(r, 8));
+		cache.get(other, 8);
+		assertEquals(4, cache.getMisses());
+
+		cache.setMaxSize(0);
+		assertEquals(0, cache.size());
+		assertNotSame(cache.get(r, 8), cache.get(r, 8));
+	}
+
+	@Test
+	public void testScaledRecipeCacheFollowsChanges() {
+		ScaledRecipeCache cache = new ScaledRecipeCache(2);
+		IngredientContainer ig = createIG(Map.of("food1", 10.0));
+		Recipe r = new Recipe("Recipe", "Dinner", 4, ig);
+
+		// Cached recipes are shared, so their ingredients cannot be changed
+		Recipe r8 = cache.get(r, 8);
+		assertTrue(r8.getIngredients() instanceof PersistentIngredients);
+
+		ig.addIngredient("food2", 1.0);
+		Recipe changed = cache.get(r, 8);
+		assertNotSame(r8, changed);
+		assertEquals(2.0, changed.getIngredients().getIngredientAmount("food2"), EPSILON);
+		assertSame(changed, cache.get(r, 8));
+		ig.removeIngredient("food1", 5.0);
+		assertEquals(10.0, cache.get(r, 8).getIngredients().getIngredientAmount("food1"), EPSILON);
+		assertEquals(1, cache.getHits());
+		assertEquals(3, cache.getMisses());
+	}
+
+	@Test
+	public void testCreateNPortionsCopies() {
+		Recipe r = new Recipe("Recipe", "Dinner", 4, createIG(Map.of("food1", 10.0)));
+		Recipe r8 = r.createNPortions(8);
+		assertNotSame(r8, r.createNPortions(8));
+		assertNotSame(r8.getIngredients(), r.createNPortions(8).getIngredients());
+	}
+}
@@ -1,10 +1,18 @@
 package food;
 
+import java.util.ArrayList;
 import java.util.Collection;
 
+/**
+ * A live view of another `Ingredients`-object where every amount is multiplied by a scale factor.
+ *
+ * No amounts are copied, so changes to the original ingredients show through. Scaling a
+ * `ScaledIngredients` again composes the scale factors instead of stacking views.
+ */
 public class ScaledIngredients implements Ingredients {
 
-	private final IngredientContainer ingredients;
+	private final Ingredients ingredients;
+	private final double scale;
 
 	/**
 	 * Create a new scaled ingredients, given by an original `Ingredients`-object and a scale
@@ -12,14 +20,23 @@ public class ScaledIngredients implements Ingredients {
 	 * @param scale The scale to use
 	 */
 	public ScaledIngredients(Ingredients ingredients, double scale) {
-		this.ingredients = new IngredientContainer();
-
-		for (var name : ingredients.getIngredientNames()) {
-			var amount = ingredients.getIngredientAmount(name);
-			this.ingredients.addIngredient(name, amount * scale);
+		if (ingredients instanceof ScaledIngredients) {
+			var scaled = (ScaledIngredients) ingredients;
+			this.ingredients = scaled.ingredients;
+			this.scale = scaled.scale * scale;
+		} else {
+			this.ingredients = ingredients;
+			this.scale = scale;
 		}
 	}
 
+	/**
+	 * @return The scale factor applied to the original ingredients
+	 */
+	public double getScale() {
+		return scale;
+	}
+
 	@Override
 	public Iterable<String> ingredientNames() {
 		return ingredients.ingredientNames();
@@ -32,17 +49,32 @@ public class ScaledIngredients implements Ingredients {
 
 	@Override
 	public double getIngredientAmount(String ingredient) {
-		return ingredients.getIngredientAmount(ingredient);
+		return ingredients.getIngredientAmount(ingredient) * scale;
 	}
 
 	@Override
 	public boolean containsIngredients(Ingredients other) {
-		return ingredients.containsIngredients(other);
+		for (var name : other.ingredientNames()) {
+			if (getIngredientAmount(name) < other.getIngredientAmount(name)) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 	@Override
 	public Ingredients missingIngredients(Ingredients other) {
-		return ingredients.missingIngredients(other);
+		var missing = new IngredientContainer();
+
+		for (var name : ingredients.ingredientNames()) {
+			var amount = getIngredientAmount(name);
+			var otherAmount = other.getIngredientAmount(name);
+			if (otherAmount < amount) {
+				missing.addIngredient(name, amount - otherAmount);
+			}
+		}
+
+		return missing;
 	}
 
 	@Override
@@ -50,6 +82,16 @@ public class ScaledIngredients implements Ingredients {
 		return new ScaledIngredients(this, scale);
 	}
 
+	@Override
+	public String toString() {
+		var strings = new ArrayList<String>();
+		for (var name : ingredients.ingredientNames()) {
+			strings.add(name + ": " + getIngredientAmount(name));
+		}
+
+		return String.join("\n", strings);
+	}
+
 	// Examples of SOME use of ScaledIngredients.
 	public static void main(String[] args) {
 
@@ -0,0 +1,200 @@
+package food;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of recipes scaled like {@link Recipe#createNPortions(int)}, for callers that scale the same
+ * recipes over and over, keyed on the recipe's identity and the number of portions. When the cache is full,
+ * the least recently used scaled recipe is evicted.
+ *
+ * Cached recipes are shared by every caller asking for the same scaling, so their ingredients are
+ * {@link PersistentIngredients}, which cannot be changed. A cached recipe is also kept with the amounts it
+ * was scaled from, and is scaled again if the original recipe's ingredients have changed since.
+ * A hit allocates nothing beyond that check, since lookups reuse a probe key, and needs no check at all
+ * for a recipe whose own ingredients are PersistentIngredients.
+ */
+public class ScaledRecipeCache {
+
+    /**
+     * The default maximum size of {@link #getDefault()}.
+     */
+    public static final int DEFAULT_MAX_SIZE = 1024;
+
+    private static final ScaledRecipeCache DEFAULT = new ScaledRecipeCache(DEFAULT_MAX_SIZE);
+
+    private final LinkedHashMap<Key, CachedRecipe> cache;
+    private final Key probe;
+    private int maxSize;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param maxSize The largest number of scaled recipes to keep, where 0 disables caching
+     * @throws IllegalArgumentException if maxSize is negative
+     */
+    public ScaledRecipeCache(int maxSize) {
+        cache = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CachedRecipe> eldest) {
+                return size() > ScaledRecipeCache.this.maxSize;
+            }
+        };
+        probe = new Key(null, 0);
+        setMaxSize(maxSize);
+    }
+
+    /**
+     * @return A cache shared by the callers that opt in, e.g. the kitchen's UI
+     */
+    public static ScaledRecipeCache getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Get a recipe scaled to `n` portions, scaling it if it is not cached.
+     *
+     * @param recipe The recipe to scale
+     * @param n The number of portions the scaled recipe should make
+     * @return The scaled recipe, whose ingredients cannot be changed
+     */
+    public Recipe get(Recipe recipe, int n) {
+        synchronized (this) {
+            probe.recipe = recipe;
+            probe.n = n;
+            var entry = cache.get(probe);
+            if (entry != null && !entry.isScaledFrom(recipe.getIngredients())) {
+                cache.remove(probe);
+                entry = null;
+            }
+            probe.recipe = null;
+            if (entry != null) {
+                hits++;
+                return entry.scaled;
+            }
+            misses++;
+        }
+
+        // Scale outside the lock. Two threads missing on the same key both scale, and the first one is kept.
+        var ingredients = recipe.getIngredients();
+        var source = PersistentIngredients.of(ingredients);
+        var scaled = new Recipe(recipe.getName(), recipe.getCategory(), n,
+                PersistentIngredients.of(source.scaleIngredients((double) n / recipe.getNPortions())));
+        var entry = new CachedRecipe(scaled, source == ingredients ? null : source);
+        synchronized (this) {
+            if (maxSize == 0) {
+                return scaled;
+            }
+            var existing = cache.putIfAbsent(new Key(recipe, n), entry);
+            return existing == null ? scaled : existing.scaled;
+        }
+    }
+
+    /**
+     * @param maxSize The largest number of scaled recipes to keep, where 0 disables caching
+     * @throws IllegalArgumentException if maxSize is negative
+     */
+    public synchronized void setMaxSize(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Size cannot be negative");
+        }
+
+        this.maxSize = maxSize;
+        var it = cache.entrySet().iterator();
+        for (var excess = cache.size() - maxSize; excess > 0; excess--) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    public synchronized int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return The number of scaled recipes in the cache
+     */
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    /**
+     * @return The number of lookups that found a cached recipe
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return The number of lookups that had to scale the recipe
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Remove all scaled recipes, and reset the counters.
+     */
+    public synchronized void clear() {
+        cache.clear();
+        hits = 0;
+        misses = 0;
+    }
+
+    /**
+     * A scaled recipe, and the amounts of the recipe it was scaled from if they may change.
+     */
+    private static class CachedRecipe {
+        final Recipe scaled;
+        private final PersistentIngredients source;
+
+        CachedRecipe(Recipe scaled, PersistentIngredients source) {
+            this.scaled = scaled;
+            this.source = source;
+        }
+
+        boolean isScaledFrom(Ingredients ingredients) {
+            if (source == null) {
+                return true;
+            }
+
+            var count = 0;
+            for (var name : ingredients.ingredientNames()) {
+                if (source.getIngredientAmount(name) != ingredients.getIngredientAmount(name)) {
+                    return false;
+                }
+                count++;
+            }
+            return count == source.size();
+        }
+    }
+
+    /**
+     * A recipe, compared by identity, and a number of portions.
+     */
+    private static class Key {
+        private Recipe recipe;
+        private int n;
+
+        Key(Recipe recipe, int n) {
+            this.recipe = recipe;
+            this.n = n;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(recipe) * 31 + n;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            var other = (Key) o;
+            return recipe == other.recipe && n == other.n;
+        }
+    }
+}
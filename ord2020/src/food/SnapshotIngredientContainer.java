@@ -0,0 +1,289 @@
+package food;
+
+import java.util.Collection;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Thread-safe ingredient storage for kitchens where reporting threads read the storage while cooking threads
+ * change it. The contents are kept as {@link PersistentIngredients}, and every change publishes a new version
+ * that shares most of its structure with the previous one, at a cost of O(log n) per changed ingredient.
+ *
+ * Reads never lock: each read method works on the version that was current when it was called, and
+ * {@link #snapshot()} hands out a version that never changes, so a reader sees a consistent view across
+ * any number of reads without copying the storage. Changes are serialized by the container's monitor,
+ * and a multi-ingredient change is published as one version, so readers see all of it or none of it.
+ */
+public class SnapshotIngredientContainer implements IngredientStorage {
+
+    private volatile PersistentIngredients current;
+    private final CopyOnWriteArrayList<IngredientStorageObserver> observers;
+
+    /**
+     * Initializes a new, empty container.
+     */
+    public SnapshotIngredientContainer() {
+        this(PersistentIngredients.empty());
+    }
+
+    /**
+     * Initializes a new container.
+     * @param ingredients Initial ingredients in the container
+     */
+    public SnapshotIngredientContainer(Ingredients ingredients) {
+        current = PersistentIngredients.of(ingredients);
+        observers = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * @return The current contents, which are immutable, so reading them needs no locking
+     */
+    @Override
+    public PersistentIngredients snapshot() {
+        return current;
+    }
+
+    /**
+     * Add `amount` of `ingredient` to the container.
+     *
+     * @param ingredient The name of the ingredient to add
+     * @param amount The amount of the ingredient to add
+     * @throws IllegalArgumentException if amount is not positive
+     */
+    @Override
+    public synchronized void addIngredient(String ingredient, double amount) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Amount must be positive");
+        }
+
+        var oldAmount = current.getIngredientAmount(ingredient);
+        current = current.with(ingredient, oldAmount + amount);
+        fireIngredientChanged(ingredient, oldAmount, oldAmount + amount);
+    }
+
+    /**
+     * Remove `amount` of `ingredient` from the container.
+     *
+     * If the resulting amount of the ingredient is 0, its name is removed.
+     *
+     * @param ingredient The name of the ingredient to remove
+     * @param amount The amount of the ingredient to remove
+     * @throws IllegalArgumentException if the ingredient is not in the container
+     */
+    @Override
+    public synchronized void removeIngredient(String ingredient, double amount) {
+        var oldAmount = current.getIngredientAmount(ingredient);
+        if (oldAmount == 0) {
+            throw new IllegalArgumentException("Key does not exist");
+        }
+
+        var newAmount = Math.max(0, oldAmount - amount);
+        current = current.with(ingredient, newAmount);
+        fireIngredientChanged(ingredient, oldAmount, newAmount);
+    }
+
+    /**
+     * Add all ingredients from another Ingredients object into this, as one new version.
+     *
+     * @param ingredients the ingredients to add
+     */
+    @Override
+    public synchronized void addIngredients(Ingredients ingredients) {
+        var old = current;
+        var updated = old;
+        for (var name : ingredients.ingredientNames()) {
+            updated = updated.with(name, updated.getIngredientAmount(name) + ingredients.getIngredientAmount(name));
+        }
+        current = updated;
+        fireChanges(old, updated, ingredients);
+    }
+
+    /**
+     * Remove all ingredients in other from this, as one new version.
+     *
+     * @param ingredients the ingredients to remove
+     * @throws IllegalArgumentException if this does not contain enough of any of the ingredients (without changing this)
+     */
+    @Override
+    public synchronized void removeIngredients(Ingredients ingredients) {
+        var old = current;
+        if (!old.containsIngredients(ingredients)) {
+            throw new IllegalArgumentException("Not enough of any of the ingredients");
+        }
+
+        var updated = old;
+        for (var name : ingredients.ingredientNames()) {
+            updated = updated.with(name, updated.getIngredientAmount(name) - ingredients.getIngredientAmount(name));
+        }
+        current = updated;
+        fireChanges(old, updated, ingredients);
+    }
+
+    /**
+     * @return An Iterable giving the names of all the ingredients in the current version
+     */
+    @Override
+    public Iterable<String> ingredientNames() {
+        return current.ingredientNames();
+    }
+
+    /**
+     * @return A collection containing the names of all the ingredients in the current version
+     */
+    @Override
+    public Collection<String> getIngredientNames() {
+        return current.getIngredientNames();
+    }
+
+    /**
+     * @param ingredient The ingredient to get the amount of
+     * @return The amount of ingredient, or 0.0 if the ingredient does not exist
+     */
+    @Override
+    public double getIngredientAmount(String ingredient) {
+        return current.getIngredientAmount(ingredient);
+    }
+
+    /**
+     * Checks if the all the ingredients in other is contained in the current version
+     * @param other
+     * @return true of there is at least the same or larger amount of ingredients in this than in other, false otherwise
+     */
+    @Override
+    public boolean containsIngredients(Ingredients other) {
+        return current.containsIngredients(other);
+    }
+
+    /**
+     * Returns the ingredients that must be added to other for the current version to be contained in it
+     * @param other
+     * @return a new Ingredients that if added to other would make it contain this
+     */
+    @Override
+    public Ingredients missingIngredients(Ingredients other) {
+        return current.missingIngredients(other);
+    }
+
+    /**
+     * Returns the ingredients that you get if you scale the current version by factor 'scale'.
+     * @param scale
+     * @return a new scaled Ingredients
+     */
+    @Override
+    public Ingredients scaleIngredients(double scale) {
+        return current.scaleIngredients(scale);
+    }
+
+    /**
+     * Register an observer that is told about every change to the amount of an ingredient.
+     * Observers are called on the changing thread after the change is published, while holding the
+     * container's monitor, so they see the changes in order. Observers must not change this storage.
+     *
+     * @param observer The observer to add
+     */
+    @Override
+    public void addObserver(IngredientStorageObserver observer) {
+        observers.add(observer);
+    }
+
+    @Override
+    public void removeObserver(IngredientStorageObserver observer) {
+        observers.remove(observer);
+    }
+
+    /**
+     * Get a string containing the ingredients with amounts in the same format as {@link IngredientContainer#toString()}.
+     *
+     * @return A string with one `name: amount` line per ingredient
+     */
+    @Override
+    public String toString() {
+        return current.toString();
+    }
+
+    private void fireChanges(PersistentIngredients old, PersistentIngredients updated, Ingredients changed) {
+        if (observers.isEmpty()) {
+            return;
+        }
+
+        for (var name : changed.ingredientNames()) {
+            var oldAmount = old.getIngredientAmount(name);
+            var newAmount = updated.getIngredientAmount(name);
+            if (oldAmount != newAmount) {
+                fireIngredientChanged(name, oldAmount, newAmount);
+            }
+        }
+    }
+
+    private void fireIngredientChanged(String ingredient, double oldAmount, double newAmount) {
+        for (var o : observers) {
+            o.ingredientChanged(ingredient, oldAmount, newAmount);
+        }
+    }
+
+    /**
+     * Reports how many consistent reads a reporting thread gets while another thread keeps cooking,
+     * from snapshots and from copies of a locked IngredientContainer.
+     * @param args
+     */
+    public static void main(String[] args) throws InterruptedException {
+        var random = new Random(42);
+        var recipe = new IngredientContainer();
+        for (var i = 0; i < 8; i++) {
+            recipe.addIngredient("ingredient" + random.nextInt(2000), 1 + random.nextInt(5));
+        }
+
+        var snapshots = new SnapshotIngredientContainer();
+        var locked = new IngredientContainer();
+        for (var i = 0; i < 2000; i++) {
+            snapshots.addIngredient("ingredient" + i, 1e12);
+            locked.addIngredient("ingredient" + i, 1e12);
+        }
+
+        var snapshotReads = measure(() -> snapshots.removeIngredients(recipe), () -> total(snapshots.snapshot()));
+        var copyReads = measure(() -> {
+            synchronized (locked) {
+                locked.removeIngredients(recipe);
+            }
+        }, () -> {
+            IngredientContainer copy;
+            synchronized (locked) {
+                copy = new IngredientContainer(locked);
+            }
+            return total(copy);
+        });
+        System.out.printf("snapshot reads/s: %.0f, copy reads/s: %.0f%n", snapshotReads, copyReads);
+    }
+
+    private static double total(Ingredients ingredients) {
+        var total = 0d;
+        for (var name : ingredients.ingredientNames()) {
+            total += ingredients.getIngredientAmount(name);
+        }
+        return total;
+    }
+
+    private static double measure(Runnable write, DoubleSupplier read) throws InterruptedException {
+        var durationMillis = 500;
+        var running = new AtomicBoolean(true);
+        var writer = new Thread(() -> {
+            while (running.get()) {
+                write.run();
+            }
+        });
+        writer.start();
+
+        var reads = 0L;
+        var end = System.nanoTime() + durationMillis * 1_000_000L;
+        while (System.nanoTime() < end) {
+            read.getAsDouble();
+            reads++;
+        }
+        running.set(false);
+        writer.join();
+
+        return reads * 1000d / durationMillis;
+    }
+}
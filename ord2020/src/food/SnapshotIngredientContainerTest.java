@@ -0,0 +1,91 @@
+package food;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+public class SnapshotIngredientContainerTest {
+
+	@Test
+	public void testSnapshotDoesNotChange() {
+		SnapshotIngredientContainer storage = new SnapshotIngredientContainer();
+		storage.addIngredient("egg", 4);
+		Ingredients snapshot = storage.snapshot();
+
+		storage.removeIngredient("egg", 4);
+		storage.addIngredient("milk", 1);
+		assertEquals(4, snapshot.getIngredientAmount("egg"), 0);
+		assertEquals(0, snapshot.getIngredientAmount("milk"), 0);
+		assertEquals(0, storage.getIngredientAmount("egg"), 0);
+		assertTrue(storage.getIngredientNames().contains("milk"));
+	}
+
+	@Test
+	public void testRemoveIngredientsIsAllOrNothing() {
+		SnapshotIngredientContainer storage = new SnapshotIngredientContainer();
+		storage.addIngredient("egg", 4);
+		storage.addIngredient("milk", 1);
+		IngredientContainer recipe = new IngredientContainer();
+		recipe.addIngredient("egg", 2);
+		recipe.addIngredient("milk", 2);
+
+		try {
+			storage.removeIngredients(recipe);
+			fail();
+		} catch (IllegalArgumentException e) {}
+		assertEquals(4, storage.getIngredientAmount("egg"), 0);
+
+		recipe.removeIngredient("milk", 1);
+		storage.removeIngredients(recipe);
+		assertEquals(2, storage.getIngredientAmount("egg"), 0);
+		assertEquals(0, storage.getIngredientAmount("milk"), 0);
+	}
+
+	@Test
+	public void testReadersSeeWholeChanges() throws InterruptedException {
+		SnapshotIngredientContainer storage = new SnapshotIngredientContainer();
+		IngredientContainer recipe = new IngredientContainer();
+		for (int i = 0; i < 20; i++) {
+			storage.addIngredient("ingredient" + i, 1e6);
+			recipe.addIngredient("ingredient" + i, 1);
+		}
+
+		Kitchen kitchen = new Kitchen(storage);
+		AtomicBoolean running = new AtomicBoolean(true);
+		Thread cook = new Thread(() -> {
+			while (running.get()) {
+				storage.removeIngredients(recipe);
+			}
+		});
+		cook.start();
+		try {
+			// Every ingredient is used once per change, so they all have the same amount in a consistent view
+			for (int read = 0; read < 2000; read++) {
+				Ingredients snapshot = kitchen.getStorageSnapshot();
+				double amount = snapshot.getIngredientAmount("ingredient0");
+				for (String name : snapshot.ingredientNames()) {
+					assertEquals(amount, snapshot.getIngredientAmount(name), 0);
+				}
+			}
+		} finally {
+			running.set(false);
+			cook.join();
+		}
+	}
+
+	@Test
+	public void testObservers() {
+		SnapshotIngredientContainer storage = new SnapshotIngredientContainer();
+		Kitchen kitchen = new Kitchen(storage, new Recipe("Omelette", "Breakfast", 1,
+				PersistentIngredients.empty().with("egg", 2)));
+		assertTrue(kitchen.getRecipesThatCanBeCreated().isEmpty());
+		storage.addIngredient("egg", 3);
+		assertEquals(1, kitchen.getRecipesThatCanBeCreated().size());
+		storage.removeIngredients(PersistentIngredients.empty().with("egg", 2));
+		assertTrue(kitchen.getRecipesThatCanBeCreated().isEmpty());
+	}
+}
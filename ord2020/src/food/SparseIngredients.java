@@ -0,0 +1,311 @@
+package food;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable ingredients stored as a sparse vector: ingredient IDs from an
+ * {@link IngredientDictionary} sorted in ascending order, with amounts in a parallel array.
+ *
+ * When both sides of {@link #containsIngredients(Ingredients)} or {@link #missingIngredients(Ingredients)}
+ * are sparse vectors over the same dictionary, the operation is a single merge pass over the two arrays.
+ * Other implementations of {@link Ingredients} are handled through their String-based methods.
+ */
+public class SparseIngredients implements Ingredients {
+
+    private final IngredientDictionary dictionary;
+    private final int[] ids;
+    private final double[] amounts;
+
+    /**
+     * Initializes a sparse copy of the given ingredients using the default dictionary.
+     * @param ingredients The ingredients to copy
+     */
+    public SparseIngredients(Ingredients ingredients) {
+        this(ingredients, IngredientDictionary.getDefault());
+    }
+
+    /**
+     * Initializes a sparse copy of the given ingredients.
+     * @param ingredients The ingredients to copy
+     * @param dictionary The dictionary used to translate ingredient names to IDs
+     */
+    public SparseIngredients(Ingredients ingredients, IngredientDictionary dictionary) {
+        this.dictionary = dictionary;
+
+        if (ingredients instanceof SparseIngredients && ((SparseIngredients) ingredients).dictionary == dictionary) {
+            var other = (SparseIngredients) ingredients;
+            ids = other.ids;
+            amounts = other.amounts;
+            return;
+        }
+
+        var names = ingredients.getIngredientNames();
+        var unsortedIds = new int[names.size()];
+        var unsortedAmounts = new double[names.size()];
+        var n = 0;
+        for (var name : names) {
+            unsortedIds[n] = dictionary.getId(name);
+            unsortedAmounts[n] = ingredients.getIngredientAmount(name);
+            n++;
+        }
+
+        ids = new int[n];
+        amounts = new double[n];
+        sortInto(unsortedIds, unsortedAmounts, n, ids, amounts);
+    }
+
+    /**
+     * Initializes sparse ingredients from ID and amount arrays that are already sorted by ID.
+     * The arrays are used as is, and must not be changed afterwards.
+     */
+    SparseIngredients(IngredientDictionary dictionary, int[] ids, double[] amounts) {
+        this.dictionary = dictionary;
+        this.ids = ids;
+        this.amounts = amounts;
+    }
+
+    /**
+     * Creates sparse ingredients from unsorted ID and amount arrays. The arrays are not changed.
+     *
+     * @param dictionary The dictionary the IDs belong to
+     * @param ids The ingredient IDs, without duplicates
+     * @param amounts The amount of each ingredient
+     * @param n The number of ingredients to use from the arrays
+     * @return The sparse ingredients
+     */
+    static SparseIngredients of(IngredientDictionary dictionary, int[] ids, double[] amounts, int n) {
+        var sortedIds = new int[n];
+        var sortedAmounts = new double[n];
+        sortInto(ids, amounts, n, sortedIds, sortedAmounts);
+        return new SparseIngredients(dictionary, sortedIds, sortedAmounts);
+    }
+
+    /**
+     * @return The dictionary used to translate ingredient names to IDs
+     */
+    public IngredientDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * @return The number of ingredients
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * @return An Iterable giving the names of all the ingredients
+     */
+    @Override
+    public Iterable<String> ingredientNames() {
+        return getIngredientNames();
+    }
+
+    /**
+     * @return A collection containing the names of all the ingredients, in ID order
+     */
+    @Override
+    public Collection<String> getIngredientNames() {
+        return new AbstractCollection<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                return new Iterator<String>() {
+                    private int i = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return i < ids.length;
+                    }
+
+                    @Override
+                    public String next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        return dictionary.getName(ids[i++]);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return ids.length;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof String && indexOf(dictionary.findId((String) o)) >= 0;
+            }
+        };
+    }
+
+    /**
+     * @param ingredient The ingredient to get the amount of
+     * If the ingredient does not exist, the double 0.0 is returned.
+     * @return The amount of ingredient
+     */
+    @Override
+    public double getIngredientAmount(String ingredient) {
+        return getIngredientAmount(dictionary.findId(ingredient));
+    }
+
+    /**
+     * @param id The ID of the ingredient to get the amount of
+     * If the ingredient does not exist, the double 0.0 is returned.
+     * @return The amount of ingredient
+     */
+    public double getIngredientAmount(int id) {
+        var i = indexOf(id);
+        return i < 0 ? 0d : amounts[i];
+    }
+
+    /**
+     * Checks if the all the ingredients in other is contained in this
+     * @param other
+     * @return true of there is at least the same or larger amount of ingredients in this than in other, false otherwise
+     */
+    @Override
+    public boolean containsIngredients(Ingredients other) {
+        if (other instanceof SparseIngredients && ((SparseIngredients) other).dictionary == dictionary) {
+            var o = (SparseIngredients) other;
+            var i = 0;
+            for (var j = 0; j < o.ids.length; j++) {
+                var id = o.ids[j];
+                while (i < ids.length && ids[i] < id) {
+                    i++;
+                }
+                var amount = i < ids.length && ids[i] == id ? amounts[i] : 0d;
+                if (amount < o.amounts[j]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        if (other instanceof IndexedIngredientContainer && ((IndexedIngredientContainer) other).getDictionary() == dictionary) {
+            var o = (IndexedIngredientContainer) other;
+            for (var slot = o.nextSlot(0); slot < o.capacity(); slot = o.nextSlot(slot + 1)) {
+                if (getIngredientAmount(o.idAt(slot)) < o.amountAt(slot)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        for (var name : other.ingredientNames()) {
+            if (getIngredientAmount(name) < other.getIngredientAmount(name)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the ingredients that must be added to other for this to be contained in it
+     * @param other
+     * @return a new Ingredients that if added to other would make it contain this
+     */
+    @Override
+    public Ingredients missingIngredients(Ingredients other) {
+        var missingIds = new int[ids.length];
+        var missingAmounts = new double[ids.length];
+        var n = 0;
+
+        if (other instanceof SparseIngredients && ((SparseIngredients) other).dictionary == dictionary) {
+            var o = (SparseIngredients) other;
+            var j = 0;
+            for (var i = 0; i < ids.length; i++) {
+                var id = ids[i];
+                while (j < o.ids.length && o.ids[j] < id) {
+                    j++;
+                }
+                var otherAmount = j < o.ids.length && o.ids[j] == id ? o.amounts[j] : 0d;
+                if (otherAmount < amounts[i]) {
+                    missingIds[n] = id;
+                    missingAmounts[n] = amounts[i] - otherAmount;
+                    n++;
+                }
+            }
+        } else {
+            var indexed = other instanceof IndexedIngredientContainer
+                    && ((IndexedIngredientContainer) other).getDictionary() == dictionary
+                    ? (IndexedIngredientContainer) other : null;
+            for (var i = 0; i < ids.length; i++) {
+                var otherAmount = indexed != null
+                        ? indexed.getIngredientAmount(ids[i])
+                        : other.getIngredientAmount(dictionary.getName(ids[i]));
+                if (otherAmount < amounts[i]) {
+                    missingIds[n] = ids[i];
+                    missingAmounts[n] = amounts[i] - otherAmount;
+                    n++;
+                }
+            }
+        }
+
+        return new SparseIngredients(dictionary, Arrays.copyOf(missingIds, n), Arrays.copyOf(missingAmounts, n));
+    }
+
+    /**
+     * Returns the ingredients that you get if you scale this by factor 'scale'.
+     * The ID array is shared with this, only the amounts are copied.
+     * @param scale
+     * @return a new scaled Ingredients
+     */
+    @Override
+    public Ingredients scaleIngredients(double scale) {
+        var scaled = new double[amounts.length];
+        for (var i = 0; i < amounts.length; i++) {
+            scaled[i] = amounts[i] * scale;
+        }
+
+        return new SparseIngredients(dictionary, ids, scaled);
+    }
+
+    /**
+     * Get a string containing the ingredients with amounts in the same format as {@link IngredientContainer#toString()}.
+     *
+     * @return A string with one `name: amount` line per ingredient
+     */
+    @Override
+    public String toString() {
+        var strings = new ArrayList<String>();
+        for (var i = 0; i < ids.length; i++) {
+            strings.add(dictionary.getName(ids[i]) + ": " + amounts[i]);
+        }
+
+        return String.join("\n", strings);
+    }
+
+    int idAt(int i) {
+        return ids[i];
+    }
+
+    double amountAt(int i) {
+        return amounts[i];
+    }
+
+    private int indexOf(int id) {
+        return id < 0 ? -1 : Arrays.binarySearch(ids, id);
+    }
+
+    private static void sortInto(int[] ids, double[] amounts, int n, int[] sortedIds, double[] sortedAmounts) {
+        // Pack ID and original position into one long, so the pairs can be sorted with a primitive sort
+        var keys = new long[n];
+        for (var i = 0; i < n; i++) {
+            keys[i] = ((long) ids[i] << 32) | i;
+        }
+        Arrays.sort(keys);
+
+        for (var i = 0; i < n; i++) {
+            var from = (int) keys[i];
+            sortedIds[i] = ids[from];
+            sortedAmounts[i] = amounts[from];
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package food;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class SparseIngredientsTest {
+	private static final double EPSILON = 0.0001;
+
+	private IngredientContainer createIG(Map<String, Double> ingredients) {
+		IngredientContainer ig = new IngredientContainer();
+		for (String i : ingredients.keySet()) {
+			ig.addIngredient(i, ingredients.get(i));
+		}
+		return ig;
+	}
+
+	@Test
+	public void testCopy() {
+		IngredientDictionary dictionary = new IngredientDictionary();
+		SparseIngredients sparse = new SparseIngredients(createIG(Map.of("food1", 5.0, "food2", 10.0)), dictionary);
+
+		assertEquals(2, sparse.size());
+		assertEquals(5.0, sparse.getIngredientAmount("food1"), EPSILON);
+		assertEquals(10.0, sparse.getIngredientAmount("food2"), EPSILON);
+		assertEquals(0.0, sparse.getIngredientAmount("food3"), EPSILON);
+		IngredientContainerTest.assertCollectionsContainTheSame(Set.of("food1", "food2"), sparse.getIngredientNames());
+		assertTrue(sparse.getIngredientNames().contains("food2"));
+		assertFalse(sparse.getIngredientNames().contains("food3"));
+	}
+
+	@Test
+	public void testMergeContainsAndMissing() {
+		IngredientDictionary dictionary = new IngredientDictionary();
+		// Register the names out of order, so IDs and insertion order differ
+		dictionary.getId("food4");
+		dictionary.getId("food2");
+
+		SparseIngredients storage = new SparseIngredients(createIG(Map.of("food1", 15.0, "food2", 31.0, "food4", 35.1)), dictionary);
+		SparseIngredients recipe0 = new SparseIngredients(createIG(Map.of("food1", 10.0, "food2", 31.0)), dictionary);
+		SparseIngredients recipe1 = new SparseIngredients(createIG(Map.of("food4", 40.0, "food2", 5.0, "food5", 2.0)), dictionary);
+
+		assertTrue(storage.containsIngredients(recipe0));
+		assertFalse(storage.containsIngredients(recipe1));
+
+		Ingredients missing = recipe1.missingIngredients(storage);
+		IngredientContainerTest.assertCollectionsContainTheSame(Set.of("food4", "food5"), missing.getIngredientNames());
+		assertEquals(4.9, missing.getIngredientAmount("food4"), EPSILON);
+		assertEquals(2.0, missing.getIngredientAmount("food5"), EPSILON);
+		assertTrue(recipe0.missingIngredients(storage).getIngredientNames().isEmpty());
+	}
+
+	@Test
+	public void testFallbackToPlainIngredients() {
+		IngredientDictionary dictionary = new IngredientDictionary();
+		IngredientContainer storage = createIG(Map.of("food1", 15.0, "food2", 3.0));
+		SparseIngredients recipe = new SparseIngredients(createIG(Map.of("food1", 10.0, "food2", 5.0)), dictionary);
+
+		assertFalse(storage.containsIngredients(recipe));
+		assertFalse(recipe.containsIngredients(storage));
+		assertTrue(new SparseIngredients(storage, dictionary).containsIngredients(createIG(Map.of("food1", 15.0))));
+
+		Ingredients missing = recipe.missingIngredients(storage);
+		IngredientContainerTest.assertCollectionsContainTheSame(Set.of("food2"), missing.getIngredientNames());
+		assertEquals(2.0, missing.getIngredientAmount("food2"), EPSILON);
+	}
+
+	@Test
+	public void testScaleIngredients() {
+		SparseIngredients sparse = new SparseIngredients(createIG(Map.of("food1", 5.0, "food2", 10.0)), new IngredientDictionary());
+		Ingredients scaled = sparse.scaleIngredients(0.5);
+		assertEquals(2.5, scaled.getIngredientAmount("food1"), EPSILON);
+		assertEquals(5.0, scaled.getIngredientAmount("food2"), EPSILON);
+		assertEquals(5.0, sparse.getIngredientAmount("food1"), EPSILON);
+	}
+}
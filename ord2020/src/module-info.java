@@ -2,6 +2,7 @@ module ord2020 {
 	requires javafx.fxml;
 	requires javafx.graphics;
 	requires javafx.controls;
+	requires java.management;
 	requires junit;
 
 	exports sample;
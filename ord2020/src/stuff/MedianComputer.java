@@ -1,24 +1,188 @@
 package stuff;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
+/**
+ * Computes medians by selection rather than sorting, in O(n) time on average and O(n log n) at worst.
+ * The values need not be sorted. For streams see {@link RunningMedian}, and for data sets too large
+ * to keep see {@link QuantileSketch}.
+ */
 public class MedianComputer {
+
+    // Selection within ranges this small is done by insertion sort
+    private static final int INSERTION_SORT_SIZE = 16;
+
+    /**
+     * @param doubles the values, in any order
+     * @return the median of the values
+     * @throws IllegalArgumentException if doubles is null or empty, or contains null or NaN
+     */
     public static double compute(List<Double> doubles) {
         if (doubles == null) {
             throw new IllegalArgumentException();
         }
 
-        var size = doubles.size();
-        if (size == 0) {
+        var values = new double[doubles.size()];
+        for (var i = 0; i < values.length; i++) {
+            var value = doubles.get(i);
+            if (value == null) {
+                throw new IllegalArgumentException("Null value at index " + i);
+            }
+            values[i] = value;
+        }
+        return computeInPlace(values);
+    }
+
+    /**
+     * @param values the values, in any order, which are not changed
+     * @return the median of the values
+     * @throws IllegalArgumentException if values is null or empty, or contains NaN
+     */
+    public static double computeArray(double[] values) {
+        if (values == null) {
+            throw new IllegalArgumentException();
+        }
+        return computeInPlace(values.clone());
+    }
+
+    /**
+     * Like {@link #computeArray(double[])}, but without copying the values, which are reordered instead.
+     *
+     * @param values the values, in any order
+     * @return the median of the values
+     * @throws IllegalArgumentException if values is null or empty, or contains NaN
+     */
+    public static double computeInPlace(double[] values) {
+        if (values == null || values.length == 0) {
             throw new IllegalArgumentException();
         }
+        checkNotNaN(values);
 
+        var size = values.length;
         if (size % 2 == 0) {
             var index = (size / 2) - 1;
-            return (doubles.get(index) + doubles.get(index + 1)) / 2d;
+            var lower = select(values, 0, size, index);
+            // The values after index are all at least as large, so the upper middle one is their minimum
+            var upper = values[index + 1];
+            for (var i = index + 2; i < size; i++) {
+                upper = Math.min(upper, values[i]);
+            }
+            return (lower + upper) / 2d;
         } else {
-            var index = size / 2;
-            return doubles.get(index);
+            return select(values, 0, size, size / 2);
+        }
+    }
+
+    /**
+     * Finds the value that would be at index k if the values were sorted, reordering them so that
+     * no value before k is larger and no value after k is smaller.
+     *
+     * @param values the values, in any order
+     * @param k the index in sorted order
+     * @return the k-th smallest value, counting from 0
+     * @throws IllegalArgumentException if k is not an index of values, or values contains NaN
+     */
+    public static double select(double[] values, int k) {
+        if (values == null || k < 0 || k >= values.length) {
+            throw new IllegalArgumentException("No index " + k);
+        }
+        checkNotNaN(values);
+        return select(values, 0, values.length, k);
+    }
+
+    private static void checkNotNaN(double[] values) {
+        for (var i = 0; i < values.length; i++) {
+            if (Double.isNaN(values[i])) {
+                throw new IllegalArgumentException("NaN at index " + i);
+            }
+        }
+    }
+
+    /**
+     * Introselect: quickselect with median-of-three pivots and three-way partitioning, so equal values
+     * cost nothing extra, which sorts the remaining range if the partitions keep being unbalanced.
+     */
+    private static double select(double[] values, int from, int to, int k) {
+        // Quickselect takes about 2 log2(n) rounds when the pivots are reasonable
+        var rounds = 2 * (32 - Integer.numberOfLeadingZeros(to - from));
+        while (to - from > INSERTION_SORT_SIZE) {
+            if (rounds-- == 0) {
+                Arrays.sort(values, from, to);
+                return values[k];
+            }
+
+            var pivot = medianOfThree(values[from], values[(from + to) >>> 1], values[to - 1]);
+            // Partition into [from, lt) < pivot, [lt, i) == pivot and [gt, to) > pivot
+            var lt = from;
+            var gt = to;
+            var i = from;
+            while (i < gt) {
+                var value = values[i];
+                if (value < pivot) {
+                    swap(values, lt++, i++);
+                } else if (value > pivot) {
+                    swap(values, i, --gt);
+                } else {
+                    i++;
+                }
+            }
+
+            if (k < lt) {
+                to = lt;
+            } else if (k >= gt) {
+                from = gt;
+            } else {
+                return pivot;
+            }
+        }
+
+        for (var i = from + 1; i < to; i++) {
+            var value = values[i];
+            var j = i - 1;
+            while (j >= from && values[j] > value) {
+                values[j + 1] = values[j];
+                j--;
+            }
+            values[j + 1] = value;
+        }
+        return values[k];
+    }
+
+    private static double medianOfThree(double a, double b, double c) {
+        return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+    }
+
+    private static void swap(double[] values, int i, int j) {
+        var value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+    }
+
+    /**
+     * Compares the time of finding the median by sorting and by selection.
+     * @param args
+     */
+    public static void main(String[] args) {
+        var random = new Random(42);
+        var values = new double[5_000_000];
+        for (var i = 0; i < values.length; i++) {
+            values[i] = random.nextGaussian();
+        }
+
+        for (var run = 0; run < 5; run++) {
+            var start = System.nanoTime();
+            var sorted = values.clone();
+            Arrays.sort(sorted);
+            var sortedMedian = (sorted[sorted.length / 2 - 1] + sorted[sorted.length / 2]) / 2;
+            var sortNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            var median = computeArray(values);
+            var selectNanos = System.nanoTime() - start;
+            System.out.printf("sort: %d ms, select: %d ms (%s)%n",
+                    sortNanos / 1_000_000, selectNanos / 1_000_000, median == sortedMedian);
         }
     }
 }
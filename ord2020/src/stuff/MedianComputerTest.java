@@ -1,7 +1,9 @@
 package stuff;
 
 import org.junit.Test;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 import org.junit.Assert;
 
 
@@ -38,4 +40,67 @@ public class MedianComputerTest {
             MedianComputer.compute(List.of());
         } catch (IllegalArgumentException e) {}
     }
+
+    @Test
+    public void testComputeUnsorted() {
+        Assert.assertEquals(6, MedianComputer.compute(List.of(9d, 3d, 7d, 1d, 6d, 8d, 3d)), roundErrorDelta);
+        Assert.assertEquals(4.5, MedianComputer.computeArray(new double[] { 8, 1, 5, 3, 9, 2, 6, 4 }), roundErrorDelta);
+    }
+
+    @Test
+    public void testComputeLeavesInputUnchanged() {
+        double[] values = { 5, 1, 4, 2, 3 };
+        Assert.assertEquals(3, MedianComputer.computeArray(values), roundErrorDelta);
+        Assert.assertArrayEquals(new double[] { 5, 1, 4, 2, 3 }, values, 0);
+    }
+
+    @Test
+    public void testComputeMatchesSorting() {
+        Random random = new Random(42);
+        for (int n = 1; n < 300; n += 7) {
+            double[] values = new double[n];
+            for (int i = 0; i < n; i++) {
+                // Few distinct values, so there are many duplicates
+                values[i] = random.nextInt(n % 2 == 0 ? 10 : 1000);
+            }
+            double[] sorted = values.clone();
+            Arrays.sort(sorted);
+            double expected = n % 2 == 0 ? (sorted[n / 2 - 1] + sorted[n / 2]) / 2 : sorted[n / 2];
+            Assert.assertEquals(expected, MedianComputer.computeInPlace(values), roundErrorDelta);
+            for (int k = 0; k < n; k += 5) {
+                Assert.assertEquals(sorted[k], MedianComputer.select(values, k), 0);
+            }
+        }
+    }
+
+    @Test
+    public void testSelectSortedAndReversed() {
+        double[] values = new double[10_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i % 2 == 0 ? i : values.length - i;
+        }
+        Assert.assertEquals(4999.5, MedianComputer.computeArray(values), roundErrorDelta);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = values.length - i;
+        }
+        Assert.assertEquals(101, MedianComputer.select(values, 100), 0);
+    }
+
+    @Test
+    public void testComputeFailsOnBadInput() {
+        for (double[] values : List.of(new double[0], new double[] { 1, Double.NaN, 2 })) {
+            try {
+                MedianComputer.computeArray(values);
+                Assert.fail();
+            } catch (IllegalArgumentException e) {}
+        }
+        try {
+            MedianComputer.compute(Arrays.asList(1d, null));
+            Assert.fail();
+        } catch (IllegalArgumentException e) {}
+        try {
+            MedianComputer.select(new double[] { 1 }, 1);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {}
+    }
 }
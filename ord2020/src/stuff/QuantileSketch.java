@@ -0,0 +1,190 @@
+package stuff;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Approximate quantiles of any number of values in bounded memory, in the style of the KLL sketch.
+ *
+ * Values are kept in a stack of compactors. Every value in compactor h stands for 2^h of the values added.
+ * When a compactor is full it is sorted and every other value, starting at a random one of the first two,
+ * is moved up to the next compactor with twice the weight, while the rest are dropped.
+ * With compactors of size k the sketch keeps O(k log(n / k)) values, and the rank of a returned quantile
+ * is typically off by a small multiple of n / k.
+ */
+public class QuantileSketch {
+
+    private final int capacity;
+    private final Random random;
+    private final List<double[]> compactors = new ArrayList<>();
+    private final List<Integer> sizes = new ArrayList<>();
+    private long count = 0;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Initialises a sketch with compactors of 200 values, good for ranks within roughly 1% of the count.
+     */
+    public QuantileSketch() {
+        this(200);
+    }
+
+    /**
+     * @param k the number of values per compactor, which is rounded up to an even number
+     * @throws IllegalArgumentException if k is less than 2
+     */
+    public QuantileSketch(int k) {
+        this(k, new Random());
+    }
+
+    /**
+     * @param k the number of values per compactor, which is rounded up to an even number
+     * @param random the source of the choices made while compacting, e.g. seeded for repeatable results
+     * @throws IllegalArgumentException if k is less than 2
+     */
+    public QuantileSketch(int k, Random random) {
+        if (k < 2) {
+            throw new IllegalArgumentException("k must be at least 2, was " + k);
+        }
+        this.capacity = k + (k & 1);
+        this.random = random;
+    }
+
+    /**
+     * Adds a value to the sketch.
+     * @param value the value to add
+     * @throws IllegalArgumentException if value is NaN
+     */
+    public void add(double value) {
+        if (Double.isNaN(value)) {
+            throw new IllegalArgumentException("NaN");
+        }
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        insert(0, value);
+    }
+
+    private void insert(int level, double value) {
+        if (level == compactors.size()) {
+            compactors.add(new double[capacity]);
+            sizes.add(0);
+        }
+        var values = compactors.get(level);
+        int size = sizes.get(level);
+        values[size++] = value;
+        if (size < capacity) {
+            sizes.set(level, size);
+            return;
+        }
+
+        sizes.set(level, 0);
+        Arrays.sort(values);
+        for (var i = random.nextInt(2); i < capacity; i += 2) {
+            insert(level + 1, values[i]);
+        }
+    }
+
+    /**
+     * @return the number of values added
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the number of values kept to represent the values added
+     */
+    public int getRetained() {
+        var retained = 0;
+        for (var size : sizes) {
+            retained += size;
+        }
+        return retained;
+    }
+
+    /**
+     * @param q the fraction of the values that should be at most the returned value, from 0 to 1
+     * @return approximately the q-quantile of the values added, exactly the minimum for 0 and the maximum for 1
+     * @throws IllegalArgumentException if q is not between 0 and 1
+     * @throws IllegalStateException if no values have been added
+     */
+    public double getQuantile(double q) {
+        if (!(q >= 0 && q <= 1)) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1, was " + q);
+        }
+        if (count == 0) {
+            throw new IllegalStateException("No values");
+        }
+        if (q == 0) {
+            return min;
+        }
+        if (q == 1) {
+            return max;
+        }
+
+        // Sort the retained values together with their levels, then walk their cumulative weight
+        var retained = getRetained();
+        var values = new double[retained];
+        var levels = new int[retained];
+        var n = 0;
+        for (var level = 0; level < compactors.size(); level++) {
+            var size = sizes.get(level);
+            System.arraycopy(compactors.get(level), 0, values, n, size);
+            Arrays.fill(levels, n, n + size, level);
+            n += size;
+        }
+        var order = new Integer[retained];
+        for (var i = 0; i < retained; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (i, j) -> Double.compare(values[i], values[j]));
+
+        var totalWeight = 0L;
+        for (var level : levels) {
+            totalWeight += 1L << level;
+        }
+        var target = q * totalWeight;
+        var weight = 0L;
+        for (var i : order) {
+            weight += 1L << levels[i];
+            if (weight >= target) {
+                return values[i];
+            }
+        }
+        return max;
+    }
+
+    /**
+     * @return approximately the median of the values added
+     * @throws IllegalStateException if no values have been added
+     */
+    public double getMedian() {
+        return getQuantile(0.5);
+    }
+
+    /**
+     * Compares the sketch's quantiles of ten million values with the exact ones.
+     * @param args
+     */
+    public static void main(String[] args) {
+        var random = new Random(42);
+        var values = new double[10_000_000];
+        var sketch = new QuantileSketch(200, new Random(1));
+        for (var i = 0; i < values.length; i++) {
+            values[i] = Math.exp(random.nextGaussian());
+            sketch.add(values[i]);
+        }
+        Arrays.sort(values);
+
+        System.out.printf("%d values kept of %d%n", sketch.getRetained(), sketch.getCount());
+        for (var q : new double[] { 0.01, 0.1, 0.5, 0.9, 0.99 }) {
+            var estimate = sketch.getQuantile(q);
+            var rank = Arrays.binarySearch(values, estimate);
+            System.out.printf("q %.2f: exact %.4f, sketch %.4f, at rank %.4f%n",
+                    q, values[(int) (q * (values.length - 1))], estimate, (double) rank / values.length);
+        }
+    }
+}
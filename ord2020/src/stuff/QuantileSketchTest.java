@@ -0,0 +1,64 @@
+package stuff;
+
+import org.junit.Test;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Assert;
+
+public class QuantileSketchTest {
+
+    @Test
+    public void testExactWhileSmall() {
+        QuantileSketch sketch = new QuantileSketch(100);
+        for (int i = 1; i <= 99; i++) {
+            sketch.add(100 - i);
+        }
+        Assert.assertEquals(99, sketch.getRetained());
+        Assert.assertEquals(50, sketch.getMedian(), 0);
+        Assert.assertEquals(1, sketch.getQuantile(0), 0);
+        Assert.assertEquals(99, sketch.getQuantile(1), 0);
+        Assert.assertEquals(10, sketch.getQuantile(0.1), 0);
+    }
+
+    @Test
+    public void testRankErrorIsSmall() {
+        Random random = new Random(42);
+        int n = 200_000;
+        double[] values = new double[n];
+        QuantileSketch sketch = new QuantileSketch(200, new Random(1));
+        for (int i = 0; i < n; i++) {
+            values[i] = random.nextGaussian();
+            sketch.add(values[i]);
+        }
+        Arrays.sort(values);
+
+        Assert.assertEquals(n, sketch.getCount());
+        Assert.assertTrue(sketch.getRetained() < 200 * 12);
+        Assert.assertEquals(values[0], sketch.getQuantile(0), 0);
+        Assert.assertEquals(values[n - 1], sketch.getQuantile(1), 0);
+        for (double q : new double[] { 0.01, 0.25, 0.5, 0.75, 0.99 }) {
+            int rank = Arrays.binarySearch(values, sketch.getQuantile(q));
+            Assert.assertEquals(q, (double) rank / n, 0.02);
+        }
+    }
+
+    @Test
+    public void testFails() {
+        QuantileSketch sketch = new QuantileSketch();
+        try {
+            sketch.getMedian();
+            Assert.fail();
+        } catch (IllegalStateException e) {}
+        sketch.add(1);
+        for (double q : new double[] { -0.1, 1.1, Double.NaN }) {
+            try {
+                sketch.getQuantile(q);
+                Assert.fail();
+            } catch (IllegalArgumentException e) {}
+        }
+        try {
+            new QuantileSketch(1);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {}
+    }
+}
@@ -0,0 +1,112 @@
+package stuff;
+
+import java.util.Arrays;
+
+/**
+ * The median of a stream of values, updated in O(log n) per value and read in O(1).
+ * The smaller half of the values is kept in a max-heap and the larger half in a min-heap, both on
+ * primitive arrays, so adding a value does not box it, and the median is at the top of the heaps.
+ */
+public class RunningMedian {
+
+    // The max-heap holds the negated values, so both halves can use the same min-heap code
+    private final DoubleHeap lower = new DoubleHeap();
+    private final DoubleHeap upper = new DoubleHeap();
+
+    /**
+     * Adds a value to the stream.
+     * @param value the value to add
+     * @throws IllegalArgumentException if value is NaN
+     */
+    public void add(double value) {
+        if (Double.isNaN(value)) {
+            throw new IllegalArgumentException("NaN");
+        }
+
+        if (lower.size() == 0 || value <= -lower.peek()) {
+            lower.push(-value);
+        } else {
+            upper.push(value);
+        }
+
+        // Keep the halves of equal size, or the lower one larger by one
+        if (lower.size() > upper.size() + 1) {
+            upper.push(-lower.pop());
+        } else if (upper.size() > lower.size()) {
+            lower.push(-upper.pop());
+        }
+    }
+
+    /**
+     * @return the number of values added
+     */
+    public int size() {
+        return lower.size() + upper.size();
+    }
+
+    /**
+     * @return the median of the values added so far
+     * @throws IllegalStateException if no values have been added
+     */
+    public double getMedian() {
+        if (lower.size() == 0) {
+            throw new IllegalStateException("No values");
+        }
+        if (lower.size() > upper.size()) {
+            return -lower.peek();
+        }
+        return (-lower.peek() + upper.peek()) / 2d;
+    }
+
+    private static class DoubleHeap {
+
+        private double[] values = new double[16];
+        private int size = 0;
+
+        int size() {
+            return size;
+        }
+
+        double peek() {
+            return values[0];
+        }
+
+        void push(double value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            var i = size++;
+            while (i > 0) {
+                var parent = (i - 1) / 2;
+                if (values[parent] <= value) {
+                    break;
+                }
+                values[i] = values[parent];
+                i = parent;
+            }
+            values[i] = value;
+        }
+
+        double pop() {
+            var top = values[0];
+            var value = values[--size];
+            var i = 0;
+            while (true) {
+                var child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && values[child + 1] < values[child]) {
+                    child++;
+                }
+                if (value <= values[child]) {
+                    break;
+                }
+                values[i] = values[child];
+                i = child;
+            }
+            values[i] = value;
+            return top;
+        }
+    }
+}
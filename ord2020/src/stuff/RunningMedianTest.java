@@ -0,0 +1,52 @@
+package stuff;
+
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+
+public class RunningMedianTest {
+
+    double roundErrorDelta = 0.00000001;
+
+    @Test
+    public void testMedianAfterEachValue() {
+        RunningMedian median = new RunningMedian();
+        median.add(5);
+        Assert.assertEquals(5, median.getMedian(), roundErrorDelta);
+        median.add(1);
+        Assert.assertEquals(3, median.getMedian(), roundErrorDelta);
+        median.add(9);
+        Assert.assertEquals(5, median.getMedian(), roundErrorDelta);
+        median.add(2);
+        Assert.assertEquals(3.5, median.getMedian(), roundErrorDelta);
+        Assert.assertEquals(4, median.size());
+    }
+
+    @Test
+    public void testMatchesMedianComputer() {
+        Random random = new Random(42);
+        RunningMedian median = new RunningMedian();
+        List<Double> values = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            double value = random.nextInt(100) - 50;
+            median.add(value);
+            values.add(value);
+            Assert.assertEquals(MedianComputer.compute(values), median.getMedian(), roundErrorDelta);
+        }
+    }
+
+    @Test
+    public void testFails() {
+        RunningMedian median = new RunningMedian();
+        try {
+            median.getMedian();
+            Assert.fail();
+        } catch (IllegalStateException e) {}
+        try {
+            median.add(Double.NaN);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {}
+    }
+}